@@ -11,8 +11,8 @@ public class Main {
     public static void main(String[] args) {
         UserService userService = new UserService();
         TaskService taskService = new TaskService();
-        StoryService storyService = new StoryService();
-        WorkloadService workloadService = new WorkloadService(taskService.getTaskRepo(), userService);
+        StoryService storyService = new StoryService(taskService.getTaskRepo());
+        WorkloadService workloadService = new WorkloadService(taskService.getTaskRepo(), storyService.getStoryRepo(), userService);
 
         // Register and login
         User user = userService.register("John", "john@example.com", "1234");
@@ -25,8 +25,8 @@ public class TestCases {
     public static void main(String[] args) {
         UserService userService = new UserService();
         TaskService taskService = new TaskService();
-        StoryService storyService = new StoryService();
-        WorkloadService workloadService = new WorkloadService(taskService.getTaskRepo(), userService);
+        StoryService storyService = new StoryService(taskService.getTaskRepo());
+        WorkloadService workloadService = new WorkloadService(taskService.getTaskRepo(), storyService.getStoryRepo(), userService);
         User user = null;
 
         // TEST CASE 1 - Register + Login
@@ -324,8 +324,8 @@ public class TestCases {
         System.out.println("\nTesting detailed workload...");
         TaskService taskService = new TaskService();
         UserService userService = new UserService();
-        WorkloadService workloadService = new WorkloadService(taskService.getTaskRepo(), userService);
-        StoryService storyService = new StoryService();
+        StoryService storyService = new StoryService(taskService.getTaskRepo());
+        WorkloadService workloadService = new WorkloadService(taskService.getTaskRepo(), storyService.getStoryRepo(), userService);
         
         try {
             // Create a user
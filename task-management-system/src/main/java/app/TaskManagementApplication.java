@@ -0,0 +1,65 @@
+package app;
+
+import event.EventBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import persistence.Persistence;
+import push.SubscriptionHub;
+import service.StoryService;
+import service.TaskService;
+import service.UserService;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// Serves the HTTP API. The services are the same in-memory ones Main drives
+// from the console, created once and shared by every controller, and made
+// durable by Persistence under task-management.data-dir.
+@SpringBootApplication(scanBasePackages = {"app", "controller"})
+public class TaskManagementApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(TaskManagementApplication.class, args);
+    }
+
+    @Bean
+    public UserService userService() {
+        return new UserService();
+    }
+
+    @Bean
+    public TaskService taskService() {
+        return new TaskService();
+    }
+
+    @Bean
+    public StoryService storyService(TaskService taskService) {
+        return new StoryService(taskService.getTaskRepo());
+    }
+
+    // Recovers the repositories while the context starts, so before the server
+    // accepts requests; closing flushes the log
+    @Bean(destroyMethod = "close")
+    public Persistence persistence(UserService userService, TaskService taskService, StoryService storyService,
+                                   @Value("${task-management.data-dir:data}") String dataDir,
+                                   @Value("${task-management.fsync:true}") boolean fsync,
+                                   @Value("${task-management.snapshot-minutes:10}") long snapshotMinutes) {
+        Persistence persistence = Persistence.open(Paths.get(dataDir), fsync, userService, taskService, storyService);
+        persistence.scheduleSnapshots(snapshotMinutes, TimeUnit.MINUTES);
+        return persistence;
+    }
+
+    // Takes Persistence so recovery is done before the bus starts listening
+    // and restored entities aren't published as changes
+    @Bean
+    public EventBus eventBus(UserService userService, TaskService taskService, StoryService storyService,
+                             Persistence persistence) {
+        return new EventBus(userService, taskService, storyService);
+    }
+
+    @Bean
+    public SubscriptionHub subscriptionHub(EventBus eventBus, TaskService taskService, StoryService storyService) {
+        return new SubscriptionHub(eventBus, taskService.getTaskRepo(), storyService.getStoryRepo());
+    }
+}
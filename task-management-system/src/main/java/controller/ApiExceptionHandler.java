@@ -0,0 +1,80 @@
+package controller;
+
+import exception.PersistenceException;
+import exception.StoryNotFoundException;
+import exception.TaskManagementException;
+import exception.TaskNotFoundException;
+import exception.UserNotFoundException;
+import exception.VersionConflictException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// Maps the services' exceptions to HTTP statuses with a JSON body:
+//
+//   {"status": 404, "error": "Not Found", "message": "Task not found with id: ..."}
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler({TaskNotFoundException.class, StoryNotFoundException.class, UserNotFoundException.class})
+    public ResponseEntity<ApiError> notFound(RuntimeException e) {
+        return error(HttpStatus.NOT_FOUND, e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ApiError> badRequest(IllegalArgumentException e) {
+        return error(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    // An If-Match write found the entity at another version
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<ApiError> preconditionFailed(VersionConflictException e) {
+        return error(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+    }
+
+    // Weak tags fail If-Match's strong comparison against any version
+    @ExceptionHandler(ETags.WeakTag.class)
+    public ResponseEntity<ApiError> weakTag(ETags.WeakTag e) {
+        return error(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+    }
+
+    // The request is valid but the hierarchy doesn't allow it, like a move into the task's own subtree
+    @ExceptionHandler({TaskManagementException.class, IllegalStateException.class})
+    public ResponseEntity<ApiError> conflict(RuntimeException e) {
+        return error(HttpStatus.CONFLICT, e.getMessage());
+    }
+
+    @ExceptionHandler(PersistenceException.class)
+    public ResponseEntity<ApiError> unavailable(PersistenceException e) {
+        return error(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+    }
+
+    static ResponseEntity<ApiError> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(new ApiError(status, message));
+    }
+
+    public static class ApiError {
+        private final int status;
+        private final String error;
+        private final String message;
+
+        ApiError(HttpStatus status, String message) {
+            this.status = status.value();
+            this.error = status.getReasonPhrase();
+            this.message = message;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
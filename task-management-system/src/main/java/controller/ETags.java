@@ -0,0 +1,45 @@
+package controller;
+
+import model.Task;
+
+// Entity versions as HTTP entity tags: version 7 is sent as "7", and an
+// If-Match of "7" makes a write conditional on version 7. If-Match uses the
+// strong comparison (RFC 7232, 3.1), which a weak tag like W/"7" never
+// passes, so it fails the precondition whatever the version.
+final class ETags {
+    private ETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Task.ANY_VERSION when the header is absent or "*"
+    static long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return Task.ANY_VERSION;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            throw new WeakTag(ifMatch);
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                long version = Long.parseLong(tag.substring(1, tag.length() - 1));
+                if (version >= 0) {
+                    return version;
+                }
+            } catch (NumberFormatException e) {
+                // Falls through to the error below
+            }
+        }
+        throw new IllegalArgumentException("Invalid If-Match header: " + ifMatch);
+    }
+
+    // An If-Match write sent a weak entity tag, which never matches
+    static final class WeakTag extends RuntimeException {
+        WeakTag(String ifMatch) {
+            super("If-Match needs a strong entity tag, got " + ifMatch);
+        }
+    }
+}
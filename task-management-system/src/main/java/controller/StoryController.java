@@ -1,25 +1,67 @@
 package controller;
 
 import model.Story;
+import model.StoryProgress;
 import model.Task;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import persistence.Persistence;
 import service.StoryService;
+import service.TaskService;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.SortedMap;
 
+@RestController
+@RequestMapping("/api/stories")
 public class StoryController {
 
     private final StoryService storyService;
+    private final TaskService taskService;
+    private final Persistence persistence;
 
-    public StoryController(StoryService storyService) {
+    public StoryController(StoryService storyService, TaskService taskService, Persistence persistence) {
         this.storyService = storyService;
+        this.taskService = taskService;
+        this.persistence = persistence;
     }
 
-    public Story createStory(String title, String description, List<Task> tasks) {
-        try {
-            return storyService.createStory(title, description, tasks);
-        } catch (Exception e) {
-            System.out.println("Error creating story: " + e.getMessage());
-            return null;
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public StoryView createStory(@RequestBody StoryRequest request) {
+        List<Task> tasks = new ArrayList<>();
+        if (request.taskIds != null) {
+            for (String taskId : request.taskIds) {
+                tasks.add(taskService.getTaskById(taskId));
+            }
         }
+        Story story = storyService.createStory(request.title, request.description, tasks);
+        persistence.awaitDurable();
+        return StoryView.of(story);
+    }
+
+    @GetMapping("/{storyId}")
+    public ResponseEntity<StoryView> getStory(@PathVariable String storyId) {
+        StoryView view = StoryView.of(storyService.getStoryById(storyId));
+        return ResponseEntity.ok().eTag(ETags.of(view.getVersion())).body(view);
+    }
+
+    @GetMapping("/{storyId}/progress")
+    public StoryProgress getProgress(@PathVariable String storyId) {
+        return storyService.getProgress(storyId);
+    }
+
+    @GetMapping("/{storyId}/burndown")
+    public SortedMap<LocalDate, Integer> getBurndown(@PathVariable String storyId) {
+        return storyService.getBurndown(storyId);
+    }
+
+    public static class StoryRequest {
+        public String title;
+        public String description;
+        public List<String> taskIds;
     }
 }
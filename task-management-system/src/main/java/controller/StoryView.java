@@ -0,0 +1,48 @@
+package controller;
+
+import model.Story;
+
+import java.util.List;
+
+public class StoryView {
+    private final String id;
+    private final String title;
+    private final String description;
+    private final List<String> taskIds;
+    private final long version;
+
+    private StoryView(Story story) {
+        this.id = story.getId();
+        this.title = story.getTitle();
+        this.description = story.getDescription();
+        // The story's lock, so the tasks and the version belong together
+        synchronized (story) {
+            this.taskIds = story.getTasks();
+            this.version = story.getVersion();
+        }
+    }
+
+    public static StoryView of(Story story) {
+        return new StoryView(story);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getTaskIds() {
+        return taskIds;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
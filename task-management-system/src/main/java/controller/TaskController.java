@@ -1,71 +1,169 @@
 package controller;
 
+import model.BatchResult;
+import model.SubtreeSummary;
 import model.Task;
+import model.TaskOperation;
+import model.TaskPatch;
+import model.TaskPriority;
 import model.TaskStatus;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import persistence.Persistence;
 import service.TaskService;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+// Writes answer only once their log records are on disk
+@RestController
+@RequestMapping("/api/tasks")
 public class TaskController {
 
     private final TaskService taskService;
+    private final Persistence persistence;
 
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, Persistence persistence) {
         this.taskService = taskService;
+        this.persistence = persistence;
     }
 
-    public Task createTask(String title, String description, Date deadline, String userId) {
-        try {
-            return taskService.createTask(title, description, deadline, userId);
-        } catch (Exception e) {
-            System.out.println("Error creating task: " + e.getMessage());
-            return null;
-        }
+    // A subtask when parentTaskId is given
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public TaskView createTask(@RequestBody TaskRequest request) {
+        Task task = request.parentTaskId == null
+                ? taskService.createTask(request.title, request.description, request.deadline, request.userId)
+                : taskService.createSubtask(request.parentTaskId, request.title, request.description,
+                        request.deadline, request.userId);
+        persistence.awaitDurable();
+        return TaskView.of(task);
     }
 
-    public Task createSubtask(String parentTaskId, String title, String description, Date deadline, String userId) {
-        try {
-            return taskService.createSubtask(parentTaskId, title, description, deadline, userId);
-        } catch (Exception e) {
-            System.out.println("Error creating subtask: " + e.getMessage());
-            return null;
-        }
+    // The ETag carries the task's version for a later If-Match
+    @GetMapping("/{taskId}")
+    public ResponseEntity<TaskView> getTask(@PathVariable String taskId) {
+        return versioned(taskService.getTaskById(taskId));
     }
 
-    public List<Task> getTasksForUser(String userId) {
-        try {
-            return taskService.getTasksByUser(userId);
-        } catch (Exception e) {
-            System.out.println("Error fetching tasks: " + e.getMessage());
-            return null;
-        }
+    @GetMapping("/{taskId}/summary")
+    public SubtreeSummary getSubtreeSummary(@PathVariable String taskId) {
+        return taskService.getSubtreeSummary(taskId);
     }
 
-    public void updateTask(String taskId, String title, String description, Date deadline, TaskStatus status) {
-        try {
-            taskService.updateTask(taskId, title, description, deadline, status);
-            System.out.println("Task updated successfully");
-        } catch (Exception e) {
-            System.out.println("Error updating task: " + e.getMessage());
-        }
+    @GetMapping(params = "userId")
+    public List<TaskView> getTasksForUser(@RequestParam String userId) {
+        return TaskView.of(taskService.getTasksByUser(userId));
+    }
+
+    // With If-Match, only if the task is still at that version; 412 otherwise
+    @PutMapping("/{taskId}")
+    public ResponseEntity<TaskView> updateTask(@PathVariable String taskId, @RequestBody TaskRequest request,
+                                               @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        Task task = taskService.updateTask(taskId, request.title, request.description, request.deadline,
+                request.status, ETags.expectedVersion(ifMatch));
+        persistence.awaitDurable();
+        return versioned(task);
+    }
+
+    // Changes only the fields present in the body; If-Match as for PUT
+    @PatchMapping("/{taskId}")
+    public ResponseEntity<TaskView> patchTask(@PathVariable String taskId, @RequestBody PatchRequest request,
+                                              @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        TaskPatch patch = new TaskPatch(request.title, request.description, request.deadline, request.status,
+                request.priority);
+        Task task = taskService.patchTask(taskId, patch, ETags.expectedVersion(ifMatch));
+        persistence.awaitDurable();
+        return versioned(task);
+    }
+
+    private static ResponseEntity<TaskView> versioned(Task task) {
+        TaskView view = TaskView.of(task);
+        return ResponseEntity.ok().eTag(ETags.of(view.getVersion())).body(view);
+    }
+
+    @DeleteMapping("/{taskId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteTask(@PathVariable String taskId) {
+        taskService.deleteTask(taskId);
+        persistence.awaitDurable();
     }
 
-    public void deleteTask(String taskId) {
-        try {
-            taskService.deleteTask(taskId);
-            System.out.println("Task deleted successfully");
-        } catch (Exception e) {
-            System.out.println("Error deleting task: " + e.getMessage());
+    // A null parentTaskId makes the task a root
+    @PutMapping("/{taskId}/parent")
+    public TaskView moveTask(@PathVariable String taskId, @RequestBody MoveRequest request) {
+        taskService.moveTask(taskId, request.parentTaskId);
+        persistence.awaitDurable();
+        return TaskView.of(taskService.getTaskById(taskId));
+    }
+
+    // Applies the operations as TaskService.applyBatch does, moves and deletes
+    // before field updates, and reports each one's outcome; a failed operation
+    // doesn't stop the rest
+    @PostMapping("/batch")
+    public List<BatchResult.Item> applyBatch(@RequestBody BatchRequest request) {
+        if (request.operations == null) {
+            throw new IllegalArgumentException("Batch operations cannot be null");
+        }
+        List<TaskOperation> operations = new ArrayList<>(request.operations.size());
+        for (OperationRequest operation : request.operations) {
+            operations.add(operation.toOperation());
         }
+        BatchResult result = taskService.applyBatch(operations);
+        persistence.awaitDurable();
+        return result.getItems();
+    }
+
+    public static class TaskRequest {
+        public String title;
+        public String description;
+        public Date deadline;
+        public TaskStatus status;
+        public String userId;
+        public String parentTaskId;
+    }
+
+    public static class PatchRequest {
+        public String title;
+        public String description;
+        public Date deadline;
+        public TaskStatus status;
+        public TaskPriority priority;
+    }
+
+    public static class MoveRequest {
+        public String parentTaskId;
     }
 
-    public void moveTask(String taskId, String newParentId) {
-        try {
-            taskService.moveTask(taskId, newParentId);
-            System.out.println("Task moved successfully");
-        } catch (Exception e) {
-            System.out.println("Error moving task: " + e.getMessage());
+    public static class BatchRequest {
+        public List<OperationRequest> operations;
+    }
+
+    public static class OperationRequest {
+        public TaskOperation.Type type;
+        public String taskId;
+        public String title;
+        public String description;
+        public Date deadline;
+        public TaskStatus status;
+        public String parentTaskId;
+
+        TaskOperation toOperation() {
+            if (type == null) {
+                throw new IllegalArgumentException("Operation type cannot be null");
+            }
+            switch (type) {
+                case UPDATE_STATUS:
+                    return TaskOperation.updateStatus(taskId, status);
+                case UPDATE:
+                    return TaskOperation.update(taskId, title, description, deadline, status);
+                case MOVE:
+                    return TaskOperation.move(taskId, parentTaskId);
+                default:
+                    return TaskOperation.delete(taskId);
+            }
         }
     }
 }
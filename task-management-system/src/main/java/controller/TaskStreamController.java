@@ -0,0 +1,76 @@
+package controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import push.PushSink;
+import push.PushSubscription;
+import push.SubscriptionHub;
+import push.TaskDelta;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Server-sent event streams of task changes. Each stream starts with the
+// current tasks of the topic and then carries batches of TaskDelta as JSON,
+// one "tasks" event per batch. Streams end after STREAM_TIMEOUT or when the
+// client falls behind; clients reconnect and get a fresh snapshot. An unknown
+// user has an empty stream, an unknown story or task is a 404.
+@RestController
+@RequestMapping("/api/stream")
+public class TaskStreamController {
+    static final long STREAM_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+
+    private final SubscriptionHub hub;
+
+    public TaskStreamController(SubscriptionHub hub) {
+        this.hub = hub;
+    }
+
+    @GetMapping(path = "/users/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter userTasks(@PathVariable String userId) {
+        return stream(sink -> hub.subscribeToUser(userId, sink));
+    }
+
+    @GetMapping(path = "/stories/{storyId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter storyTasks(@PathVariable String storyId) {
+        return stream(sink -> hub.subscribeToStory(storyId, sink));
+    }
+
+    @GetMapping(path = "/tasks/{taskId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subtree(@PathVariable String taskId) {
+        return stream(sink -> hub.subscribeToSubtree(taskId, sink));
+    }
+
+    private SseEmitter stream(Function<PushSink, PushSubscription> subscribe) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT);
+        PushSubscription subscription = subscribe.apply(new EmitterSink(emitter));
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return emitter;
+    }
+
+    private static class EmitterSink implements PushSink {
+        private final SseEmitter emitter;
+
+        EmitterSink(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void send(List<TaskDelta> deltas) throws Exception {
+            long last = deltas.get(deltas.size() - 1).getSequence();
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(last))
+                    .name("tasks")
+                    .data(deltas, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void close(String reason) {
+            emitter.complete();
+        }
+    }
+}
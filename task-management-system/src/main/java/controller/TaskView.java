@@ -0,0 +1,94 @@
+package controller;
+
+import model.Task;
+import model.TaskPriority;
+import model.TaskStatus;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// JSON form of a task. Parent and subtasks are given by id, since the Task
+// graph itself links both ways.
+public class TaskView {
+    private final String id;
+    private final String title;
+    private final String description;
+    private final Date deadline;
+    private final TaskStatus status;
+    private final TaskPriority priority;
+    private final String assignedUserId;
+    private final String parentTaskId;
+    private final List<String> subtaskIds;
+    private final long version;
+
+    private TaskView(Task task) {
+        Task.State state = task.getState();
+        this.id = task.getId();
+        this.title = state.getTitle();
+        this.description = state.getDescription();
+        this.deadline = state.getDeadline();
+        this.status = state.getStatus();
+        this.priority = state.getPriority();
+        this.assignedUserId = state.getAssignedUserId();
+        this.parentTaskId = task.getParentTaskId();
+        this.version = state.getVersion();
+        List<Task> children = task.getChildren();
+        this.subtaskIds = new ArrayList<>(children.size());
+        for (Task child : children) {
+            subtaskIds.add(child.getId());
+        }
+    }
+
+    public static TaskView of(Task task) {
+        return new TaskView(task);
+    }
+
+    public static List<TaskView> of(List<Task> tasks) {
+        List<TaskView> views = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            views.add(new TaskView(task));
+        }
+        return views;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Date getDeadline() {
+        return deadline;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public TaskPriority getPriority() {
+        return priority;
+    }
+
+    public String getAssignedUserId() {
+        return assignedUserId;
+    }
+
+    public String getParentTaskId() {
+        return parentTaskId;
+    }
+
+    public List<String> getSubtaskIds() {
+        return subtaskIds;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
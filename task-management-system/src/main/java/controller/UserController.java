@@ -1,31 +1,51 @@
 package controller;
 
+import exception.UserNotFoundException;
 import model.User;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import persistence.Persistence;
 import service.UserService;
 
+@RestController
+@RequestMapping("/api/users")
 public class UserController {
 
     private final UserService userService;
+    private final Persistence persistence;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, Persistence persistence) {
         this.userService = userService;
+        this.persistence = persistence;
     }
 
-    public User register(String name, String email, String password) {
-        try {
-            return userService.register(name, email, password);
-        } catch (Exception e) {
-            System.out.println("Error registering user: " + e.getMessage());
-            return null;
-        }
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public UserView register(@RequestBody UserRequest request) {
+        User user = userService.register(request.name, request.email, request.password);
+        persistence.awaitDurable();
+        return UserView.of(user);
     }
 
-    public User login(String email, String password) {
+    // An unknown email and a wrong password look the same to the caller
+    @PostMapping("/login")
+    public ResponseEntity<?> login(@RequestBody UserRequest request) {
         try {
-            return userService.login(email, password);
-        } catch (Exception e) {
-            System.out.println("Error logging in: " + e.getMessage());
-            return null;
+            return ResponseEntity.ok(UserView.of(userService.login(request.email, request.password)));
+        } catch (UserNotFoundException | IllegalArgumentException e) {
+            return ApiExceptionHandler.error(HttpStatus.UNAUTHORIZED, "Invalid email or password");
         }
     }
+
+    @GetMapping("/{userId}")
+    public UserView getUser(@PathVariable String userId) {
+        return UserView.of(userService.getUserById(userId));
+    }
+
+    public static class UserRequest {
+        public String name;
+        public String email;
+        public String password;
+    }
 }
@@ -0,0 +1,32 @@
+package controller;
+
+import model.User;
+
+// JSON form of a user, without the password
+public class UserView {
+    private final String id;
+    private final String name;
+    private final String email;
+
+    private UserView(User user) {
+        this.id = user.getId();
+        this.name = user.getName();
+        this.email = user.getEmail();
+    }
+
+    public static UserView of(User user) {
+        return new UserView(user);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+}
@@ -0,0 +1,280 @@
+package event;
+
+import model.Task;
+
+import java.util.List;
+
+// A change to a user, task or story, as published on the EventBus. Task
+// events carry the task's immutable state at the time of the change.
+public abstract class DomainEvent {
+    private final long timestamp = System.currentTimeMillis();
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public static final class TaskCreated extends DomainEvent {
+        private final String taskId;
+        private final String parentTaskId;
+        private final Task.State state;
+
+        TaskCreated(String taskId, String parentTaskId, Task.State state) {
+            this.taskId = taskId;
+            this.parentTaskId = parentTaskId;
+            this.state = state;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public String getParentTaskId() {
+            return parentTaskId;
+        }
+
+        public Task.State getState() {
+            return state;
+        }
+
+        @Override
+        public String toString() {
+            return "TaskCreated{taskId='" + taskId + "', parentTaskId='" + parentTaskId + "'}";
+        }
+    }
+
+    // Title, description, deadline, status or priority changed
+    public static final class TaskUpdated extends DomainEvent {
+        private final String taskId;
+        private final Task.State state;
+
+        TaskUpdated(String taskId, Task.State state) {
+            this.taskId = taskId;
+            this.state = state;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public Task.State getState() {
+            return state;
+        }
+
+        @Override
+        public String toString() {
+            return "TaskUpdated{taskId='" + taskId + "', status=" + state.getStatus() + '}';
+        }
+    }
+
+    // Moving a task between two parents is published as two moves, out of the
+    // old parent and into the new one. Both positions are given as the ids of
+    // the parent and everything above it, nearest first, as they were at the
+    // time of the move.
+    public static final class TaskMoved extends DomainEvent {
+        private final String taskId;
+        private final List<String> oldAncestorIds;
+        private final List<String> newAncestorIds;
+
+        TaskMoved(String taskId, List<String> oldAncestorIds, List<String> newAncestorIds) {
+            this.taskId = taskId;
+            this.oldAncestorIds = oldAncestorIds;
+            this.newAncestorIds = newAncestorIds;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public String getOldParentTaskId() {
+            return oldAncestorIds.isEmpty() ? null : oldAncestorIds.get(0);
+        }
+
+        public String getNewParentTaskId() {
+            return newAncestorIds.isEmpty() ? null : newAncestorIds.get(0);
+        }
+
+        public List<String> getOldAncestorIds() {
+            return oldAncestorIds;
+        }
+
+        public List<String> getNewAncestorIds() {
+            return newAncestorIds;
+        }
+
+        @Override
+        public String toString() {
+            return "TaskMoved{taskId='" + taskId + "', from='" + getOldParentTaskId()
+                    + "', to='" + getNewParentTaskId() + "'}";
+        }
+    }
+
+    // Carries the task's last state and ancestors, nearest first, since the
+    // task itself is gone. A subtree is deleted from the top down, before it is
+    // detached from its parent, so every event in it sees the whole path.
+    public static final class TaskDeleted extends DomainEvent {
+        private final String taskId;
+        private final List<String> ancestorIds;
+        private final Task.State state;
+
+        TaskDeleted(String taskId, List<String> ancestorIds, Task.State state) {
+            this.taskId = taskId;
+            this.ancestorIds = ancestorIds;
+            this.state = state;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public String getParentTaskId() {
+            return ancestorIds.isEmpty() ? null : ancestorIds.get(0);
+        }
+
+        public List<String> getAncestorIds() {
+            return ancestorIds;
+        }
+
+        public Task.State getState() {
+            return state;
+        }
+
+        @Override
+        public String toString() {
+            return "TaskDeleted{taskId='" + taskId + "'}";
+        }
+    }
+
+    public static final class TaskAssigned extends DomainEvent {
+        private final String taskId;
+        private final String oldUserId;
+        private final String newUserId;
+
+        TaskAssigned(String taskId, String oldUserId, String newUserId) {
+            this.taskId = taskId;
+            this.oldUserId = oldUserId;
+            this.newUserId = newUserId;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public String getOldUserId() {
+            return oldUserId;
+        }
+
+        public String getNewUserId() {
+            return newUserId;
+        }
+
+        @Override
+        public String toString() {
+            return "TaskAssigned{taskId='" + taskId + "', from='" + oldUserId + "', to='" + newUserId + "'}";
+        }
+    }
+
+    public static final class StoryCreated extends DomainEvent {
+        private final String storyId;
+        private final String title;
+        private final List<String> taskIds;
+
+        StoryCreated(String storyId, String title, List<String> taskIds) {
+            this.storyId = storyId;
+            this.title = title;
+            this.taskIds = taskIds;
+        }
+
+        public String getStoryId() {
+            return storyId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public List<String> getTaskIds() {
+            return taskIds;
+        }
+
+        @Override
+        public String toString() {
+            return "StoryCreated{storyId='" + storyId + "', tasks=" + taskIds.size() + '}';
+        }
+    }
+
+    public static final class StoryTaskAdded extends DomainEvent {
+        private final String storyId;
+        private final String taskId;
+
+        StoryTaskAdded(String storyId, String taskId) {
+            this.storyId = storyId;
+            this.taskId = taskId;
+        }
+
+        public String getStoryId() {
+            return storyId;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        @Override
+        public String toString() {
+            return "StoryTaskAdded{storyId='" + storyId + "', taskId='" + taskId + "'}";
+        }
+    }
+
+    // A task left a story, which happens when the task is deleted
+    public static final class StoryTaskRemoved extends DomainEvent {
+        private final String storyId;
+        private final String taskId;
+
+        StoryTaskRemoved(String storyId, String taskId) {
+            this.storyId = storyId;
+            this.taskId = taskId;
+        }
+
+        public String getStoryId() {
+            return storyId;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        @Override
+        public String toString() {
+            return "StoryTaskRemoved{storyId='" + storyId + "', taskId='" + taskId + "'}";
+        }
+    }
+
+    public static final class UserRegistered extends DomainEvent {
+        private final String userId;
+        private final String name;
+        private final String email;
+
+        UserRegistered(String userId, String name, String email) {
+            this.userId = userId;
+            this.name = name;
+            this.email = email;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        @Override
+        public String toString() {
+            return "UserRegistered{userId='" + userId + "'}";
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package event;
+
+import model.Story;
+import model.Task;
+import model.User;
+import repository.StoryIndex;
+import repository.TaskIndex;
+import repository.UserIndex;
+import service.StoryService;
+import service.TaskService;
+import service.UserService;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Publishes a typed event for every mutation of users, tasks and stories,
+// captured from the repositories so changes made directly on a Task are
+// included. Subscribers get every event from the sequence they ask for, as
+// long as it is still in the ring. A subscriber a full ring behind holds
+// publishing back for at most maxPublishWaitMillis before it is cut off.
+//
+//   EventBus bus = new EventBus(userService, taskService, storyService);
+//   Subscription subscription = bus.subscribe((event, sequence, endOfBatch) -> ..., lastSeen + 1);
+//
+// Task events are published under the task's lock, so the events of one task
+// are numbered in the order its changes happened. That's also why the wait
+// for a slow subscriber is bounded: it stalls writers while it lasts.
+public class EventBus implements Closeable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final long DEFAULT_MAX_PUBLISH_WAIT_MILLIS = 100;
+
+    private final EventRing ring;
+    private final ChangeCapture capture = new ChangeCapture();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    public EventBus(UserService userService, TaskService taskService, StoryService storyService) {
+        this(DEFAULT_CAPACITY, userService, taskService, storyService);
+    }
+
+    public EventBus(int capacity, UserService userService, TaskService taskService, StoryService storyService) {
+        this(capacity, DEFAULT_MAX_PUBLISH_WAIT_MILLIS, userService, taskService, storyService);
+    }
+
+    public EventBus(int capacity, long maxPublishWaitMillis, UserService userService, TaskService taskService,
+                    StoryService storyService) {
+        ring = new EventRing(capacity, TimeUnit.MILLISECONDS.toNanos(maxPublishWaitMillis));
+        // Registering replays what already exists; only changes from here on are events
+        userService.getUserRepo().addIndex(capture);
+        taskService.getTaskRepo().addIndex(capture);
+        storyService.getStoryRepo().addIndex(capture);
+        capture.live = true;
+    }
+
+    // Delivers events from the next one published on
+    public Subscription subscribe(EventHandler handler) {
+        return subscribe(handler, ring.cursor() + 1);
+    }
+
+    // Delivers events from the given sequence on. Throws IllegalArgumentException
+    // if that event has already been overwritten or hasn't been reached yet.
+    public Subscription subscribe(EventHandler handler, long fromSequence) {
+        Subscription subscription = new Subscription(ring, handler, fromSequence,
+                "event-subscriber-" + subscriberCount.incrementAndGet());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+        subscription.close();
+    }
+
+    // Sequence of the last event published, -1 before the first
+    public long getSequence() {
+        return ring.cursor();
+    }
+
+    // Oldest sequence a subscriber can still resume from
+    public long getOldestSequence() {
+        return Math.max(0, ring.cursor() - ring.capacity() + 1);
+    }
+
+    @Override
+    public void close() {
+        capture.live = false;
+        for (Subscription subscription : subscriptions) {
+            unsubscribe(subscription);
+        }
+    }
+
+    private void publish(DomainEvent event) {
+        ring.publish(event);
+    }
+
+    private class ChangeCapture implements TaskIndex, UserIndex, StoryIndex {
+        volatile boolean live;
+
+        @Override
+        public void onSave(Task task) {
+            if (live) {
+                publish(new DomainEvent.TaskCreated(task.getId(), task.getParentTaskId(), task.getState()));
+            }
+        }
+
+        @Override
+        public void onDelete(Task task) {
+            if (live) {
+                publish(new DomainEvent.TaskDeleted(task.getId(), ancestors(task.getParent()), task.getState()));
+            }
+        }
+
+        @Override
+        public void onAssigneeChanged(Task task, String oldUserId, String newUserId) {
+            if (live) {
+                publish(new DomainEvent.TaskAssigned(task.getId(), oldUserId, newUserId));
+            }
+        }
+
+        // One event however many fields the write changed
+        @Override
+        public void onUpdated(Task task) {
+            if (live) {
+                publish(new DomainEvent.TaskUpdated(task.getId(), task.getState()));
+            }
+        }
+
+        // One event per move rather than one for the detach and one for the attach
+        @Override
+        public void onMoved(Task task, Task oldParent) {
+            if (live) {
+                publish(new DomainEvent.TaskMoved(task.getId(), ancestors(oldParent), ancestors(task.getParent())));
+            }
+        }
+
+        // The given task and those above it, nearest first
+        private List<String> ancestors(Task task) {
+            if (task == null) {
+                return Collections.emptyList();
+            }
+            List<String> ids = new ArrayList<>(task.getDepth() + 1);
+            for (Task current = task; current != null; current = current.getParent()) {
+                ids.add(current.getId());
+            }
+            return Collections.unmodifiableList(ids);
+        }
+
+        @Override
+        public void onSave(User user) {
+            if (live) {
+                publish(new DomainEvent.UserRegistered(user.getId(), user.getName(), user.getEmail()));
+            }
+        }
+
+        @Override
+        public void onSave(Story story) {
+            if (live) {
+                publish(new DomainEvent.StoryCreated(story.getId(), story.getTitle(),
+                        Collections.unmodifiableList(story.getTasks())));
+            }
+        }
+
+        @Override
+        public void onTaskAdded(Story story, String taskId) {
+            if (live) {
+                publish(new DomainEvent.StoryTaskAdded(story.getId(), taskId));
+            }
+        }
+
+        @Override
+        public void onTaskRemoved(Story story, String taskId) {
+            if (live) {
+                publish(new DomainEvent.StoryTaskRemoved(story.getId(), taskId));
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package event;
+
+// Receives events on a subscription's own thread, in sequence order. Events
+// arrive in batches of whatever was published while the previous batch ran;
+// endOfBatch marks the last one, which is the place to flush buffered work.
+//
+// A handler a full ring behind holds producers back, but only for a bounded
+// time. One that is still behind then gets onOverrun instead of the events it
+// missed, and its subscription ends.
+public interface EventHandler {
+    void onEvent(DomainEvent event, long sequence, boolean endOfBatch) throws Exception;
+
+    // Producers stopped waiting before the event at missedSequence was read, so
+    // it may be overwritten. Whatever
+    // the handler derives from the events is stale from there on; subscribe
+    // again and rebuild it from the current state.
+    default void onOverrun(long missedSequence) {
+    }
+}
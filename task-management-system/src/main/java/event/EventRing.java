@@ -0,0 +1,187 @@
+package event;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// A bounded multi-producer ring in the style of the LMAX Disruptor. Producers
+// claim a sequence with one atomic increment and take no locks. A claimed slot
+// is only written once every consumer has read the event it replaces, so a
+// slow consumer holds producers back instead of losing events. Events are
+// published under the task locks, though, so that wait is bounded: a consumer
+// that hasn't moved on within maxWaitNanos is cut off and producers carry on
+// without it.
+final class EventRing {
+    // Each slot holds an event together with its sequence, replaced as one
+    // reference and only by a higher sequence. A producer that stalled between
+    // claiming and writing so long that its slot was reused can't hide the
+    // newer event; its own is dropped, and only cut-off consumers wanted it.
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final long maxWaitNanos;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<Gate> gates = new CopyOnWriteArrayList<>();
+
+    EventRing(int capacity, long maxWaitNanos) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity);
+        }
+        if (maxWaitNanos < 0) {
+            throw new IllegalArgumentException("maxWaitNanos must not be negative");
+        }
+        entries = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    long publish(DomainEvent event) {
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - capacity();
+        if (wrapPoint > minimumGate()) {
+            awaitGates(wrapPoint);
+        }
+        int slot = (int) sequence & mask;
+        Entry entry = new Entry(sequence, event);
+        while (true) {
+            Entry current = entries.get(slot);
+            if (current != null && current.sequence > sequence) {
+                break;
+            }
+            if (entries.compareAndSet(slot, current, entry)) {
+                break;
+            }
+        }
+        return sequence;
+    }
+
+    // Waits for every consumer to read past the wrap point, and cuts off those
+    // that haven't once maxWaitNanos is up
+    private void awaitGates(long wrapPoint) {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        for (int attempt = 0; wrapPoint > minimumGate(); attempt++) {
+            if (System.nanoTime() - deadline >= 0) {
+                for (Gate gate : gates) {
+                    if (gate.sequence.get() < wrapPoint) {
+                        gate.cutOff = true;
+                        gates.remove(gate);
+                    }
+                }
+                return;
+            }
+            backOff(attempt);
+        }
+    }
+
+    // The event at the sequence once it is published, or null if it isn't yet.
+    // Throws Overrun if it has already been overwritten.
+    DomainEvent get(long sequence) {
+        Entry entry = entries.get((int) sequence & mask);
+        if (entry == null || entry.sequence < sequence) {
+            return null;
+        }
+        if (entry.sequence == sequence) {
+            return entry.event;
+        }
+        throw new Overrun(sequence);
+    }
+
+    // Highest sequence from the given one on up to which everything is published
+    long highestPublished(long from, long limit) {
+        long sequence = from;
+        while (sequence < limit) {
+            Entry entry = entries.get((int) (sequence + 1) & mask);
+            if (entry == null || entry.sequence != sequence + 1) {
+                break;
+            }
+            sequence++;
+        }
+        return sequence;
+    }
+
+    long cursor() {
+        return claimed.get();
+    }
+
+    // Starts gating producers on a consumer that has read everything before
+    // the given sequence. Fails if that event has already been overwritten.
+    Gate addGate(long fromSequence) {
+        if (fromSequence < 0 || fromSequence > claimed.get() + 1) {
+            throw new IllegalArgumentException("Cannot resume from sequence " + fromSequence
+                    + "; the next event is " + (claimed.get() + 1));
+        }
+        Gate gate = new Gate(fromSequence - 1);
+        gates.add(gate);
+        // A producer that claimed before the gate was added may not have seen
+        // it, but then its sequence is at most the cursor read here
+        long oldest = claimed.get() - capacity() + 1;
+        if (fromSequence < oldest) {
+            gates.remove(gate);
+            throw new IllegalArgumentException("Cannot resume from sequence " + fromSequence
+                    + "; the oldest retained event is " + oldest);
+        }
+        return gate;
+    }
+
+    void removeGate(Gate gate) {
+        gates.remove(gate);
+    }
+
+    private long minimumGate() {
+        long minimum = Long.MAX_VALUE;
+        for (Gate gate : gates) {
+            minimum = Math.min(minimum, gate.sequence.get());
+        }
+        return minimum;
+    }
+
+    // Spin, then yield, then sleep briefly: cheap when the wait is short and
+    // gentle on the CPU when a consumer is idle for long
+    static void backOff(int attempt) {
+        if (attempt < 100) {
+            Thread.onSpinWait();
+        } else if (attempt < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    private static final class Entry {
+        final long sequence;
+        final DomainEvent event;
+
+        Entry(long sequence, DomainEvent event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+    }
+
+    // How far one consumer has read
+    static final class Gate {
+        // Sequence of the last event read
+        final AtomicLong sequence;
+        // Set when producers stopped waiting for this consumer
+        volatile boolean cutOff;
+
+        Gate(long sequence) {
+            this.sequence = new AtomicLong(sequence);
+        }
+    }
+
+    // The event a consumer asked for was overwritten, or producers stopped
+    // waiting for it, before it was read
+    static final class Overrun extends RuntimeException {
+        final long sequence;
+
+        Overrun(long sequence) {
+            super("Event " + sequence + " was overwritten", null, false, false);
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package event;
+
+import java.io.Closeable;
+
+// One consumer of the ring, running on its own thread. It reads every event
+// published since the last batch in one pass and only then moves its gate, so
+// producers see one write per batch rather than one per event. If producers
+// give up waiting for it, it stops and tells the handler instead of
+// delivering a gap.
+public class Subscription implements Closeable {
+    // Caps a batch so the gate moves, and producers move on, at least this often
+    static final int MAX_BATCH = 1024;
+
+    private final EventRing ring;
+    private final EventHandler handler;
+    private final EventRing.Gate gate;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    Subscription(EventRing ring, EventHandler handler, long fromSequence, String name) {
+        this.ring = ring;
+        this.handler = handler;
+        this.gate = ring.addGate(fromSequence);
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Sequence of the last event handled; resume from the one after it
+    public long getSequence() {
+        return gate.sequence.get();
+    }
+
+    // False once closed or cut off for holding producers back too long
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        long next = gate.sequence.get() + 1;
+        int idle = 0;
+        try {
+            while (running) {
+                if (gate.cutOff) {
+                    throw new EventRing.Overrun(next);
+                }
+                if (ring.get(next) == null) {
+                    EventRing.backOff(idle++);
+                    continue;
+                }
+                idle = 0;
+                long last = ring.highestPublished(next, next + MAX_BATCH - 1);
+                for (long sequence = next; sequence <= last; sequence++) {
+                    DomainEvent event = ring.get(sequence);
+                    try {
+                        handler.onEvent(event, sequence, sequence == last);
+                    } catch (Exception e) {
+                        // One failing event must not stop the subscription
+                        worker.getUncaughtExceptionHandler().uncaughtException(worker, e);
+                    }
+                }
+                gate.sequence.set(last);
+                next = last + 1;
+            }
+        } catch (EventRing.Overrun overrun) {
+            running = false;
+            ring.removeGate(gate);
+            handler.onOverrun(overrun.sequence);
+        }
+    }
+
+    // Waits until every event published so far has been handled
+    public void awaitCaughtUp() throws InterruptedException {
+        long target = ring.cursor();
+        for (int attempt = 0; gate.sequence.get() < target && running; attempt++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            EventRing.backOff(attempt);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        ring.removeGate(gate);
+        if (Thread.currentThread() != worker) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
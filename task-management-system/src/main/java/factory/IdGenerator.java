@@ -0,0 +1,5 @@
+package factory;
+
+public interface IdGenerator {
+    String nextId();
+}
@@ -0,0 +1,21 @@
+package factory;
+
+// Process-wide id source used by TaskFactory and the model constructors
+public final class IdGenerators {
+    private static volatile IdGenerator generator = new SnowflakeIdGenerator(Long.getLong("taskmanagement.node-id", 0));
+
+    private IdGenerators() {
+    }
+
+    public static String nextId() {
+        return generator.nextId();
+    }
+
+    public static IdGenerator get() {
+        return generator;
+    }
+
+    public static void set(IdGenerator idGenerator) {
+        generator = idGenerator;
+    }
+}
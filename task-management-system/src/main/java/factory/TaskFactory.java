@@ -7,10 +7,10 @@ import java.util.Date;
 
 public class TaskFactory {
     public static Task createTask(String title, String description, Date deadline) {
-        return new Task(title, description, deadline);
+        return new Task(IdGenerators.nextId(), title, description, deadline);
     }
 
     public static Story createStory(String title, String description) {
-        return new Story(title, description);
+        return new Story(IdGenerators.nextId(), title, description);
     }
 }
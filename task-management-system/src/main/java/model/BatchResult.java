@@ -0,0 +1,64 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BatchResult {
+    private final List<Item> items;
+
+    public BatchResult(List<Item> items) {
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    // One per operation, in the order of the batch
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public List<Item> getErrors() {
+        List<Item> errors = new ArrayList<>();
+        for (Item item : items) {
+            if (!item.isSuccess()) {
+                errors.add(item);
+            }
+        }
+        return errors;
+    }
+
+    public static class Item {
+        private final int index;
+        private final String taskId;
+        private final String error;
+
+        private Item(int index, String taskId, String error) {
+            this.index = index;
+            this.taskId = taskId;
+            this.error = error;
+        }
+
+        public static Item applied(int index, String taskId) {
+            return new Item(index, taskId, null);
+        }
+
+        public static Item failed(int index, String taskId, String error) {
+            return new Item(index, taskId, error);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BulkImportResult {
+    private final List<Item> items;
+
+    public BulkImportResult(List<Item> items) {
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public List<Task> getCreated() {
+        List<Task> created = new ArrayList<>();
+        for (Item item : items) {
+            if (item.isSuccess()) {
+                created.add(item.getTask());
+            }
+        }
+        return created;
+    }
+
+    public List<Item> getErrors() {
+        List<Item> errors = new ArrayList<>();
+        for (Item item : items) {
+            if (!item.isSuccess()) {
+                errors.add(item);
+            }
+        }
+        return errors;
+    }
+
+    public static class Item {
+        private final int index;
+        private final String ref;
+        private final Task task;
+        private final String error;
+
+        private Item(int index, String ref, Task task, String error) {
+            this.index = index;
+            this.ref = ref;
+            this.task = task;
+            this.error = error;
+        }
+
+        public static Item created(int index, String ref, Task task) {
+            return new Item(index, ref, task, null);
+        }
+
+        public static Item failed(int index, String ref, String error) {
+            return new Item(index, ref, null, error);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getRef() {
+            return ref;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
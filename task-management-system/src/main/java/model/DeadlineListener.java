@@ -0,0 +1,6 @@
+package model;
+
+public interface DeadlineListener {
+    // The task's deadline has just passed and the task is still open
+    void onDeadlinePassed(Task task);
+}
@@ -1,22 +1,61 @@
 package model;
 
+import factory.IdGenerators;
+
 import java.util.*;
 
 public class Story {
     private String id;
     private String title;
     private String description;
-    private List<String> taskIds;
+    // Insertion-ordered and duplicate-free
+    private Set<String> taskIds;
+    // Goes up by one whenever the story's tasks change; guarded by this
+    private long version = 1;
+    private volatile StoryListener listener;
 
     public Story(String title, String description) {
-        this.id = UUID.randomUUID().toString();
+        this(IdGenerators.nextId(), title, description);
+    }
+
+    public Story(String id, String title, String description) {
+        this.id = id;
         this.title = title;
         this.description = description;
-        this.taskIds = new ArrayList<>();
+        this.taskIds = new LinkedHashSet<>();
+    }
+
+    // Restores a story as it was persisted, version included
+    public Story(String id, String title, String description, Collection<String> taskIds, long version) {
+        this(id, title, description);
+        this.taskIds.addAll(taskIds);
+        this.version = version;
+    }
+
+    // A task that is already in the story is left as it is
+    public synchronized void addTask(Task task) {
+        if (!taskIds.add(task.getId())) {
+            return;
+        }
+        version++;
+        StoryListener current = listener;
+        if (current != null) {
+            current.onTaskAdded(this, task.getId());
+        }
     }
 
-    public void addTask(Task task) {
-        taskIds.add(task.getId());
+    public synchronized void removeTask(String taskId) {
+        if (taskIds.remove(taskId)) {
+            version++;
+            StoryListener current = listener;
+            if (current != null) {
+                current.onTaskRemoved(this, taskId);
+            }
+        }
+    }
+
+    public void setListener(StoryListener listener) {
+        this.listener = listener;
     }
 
     public String getId() {
@@ -31,10 +70,18 @@ public class Story {
         return description;
     }
 
-    public List<String> getTasks() {
+    public synchronized List<String> getTasks() {
         return new ArrayList<>(taskIds);
     }
 
+    public synchronized int getTaskCount() {
+        return taskIds.size();
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
     @Override
     public String toString() {
         return "Story{" +
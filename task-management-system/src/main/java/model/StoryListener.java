@@ -0,0 +1,7 @@
+package model;
+
+public interface StoryListener {
+    void onTaskAdded(Story story, String taskId);
+
+    void onTaskRemoved(Story story, String taskId);
+}
@@ -0,0 +1,66 @@
+package model;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Task counts of one story at a point in time
+public class StoryProgress {
+    private final String storyId;
+    private final int[] counts;
+    private final int total;
+
+    public StoryProgress(String storyId, int[] counts) {
+        this.storyId = storyId;
+        this.counts = counts.clone();
+        int sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+        this.total = sum;
+    }
+
+    public String getStoryId() {
+        return storyId;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCount(TaskStatus status) {
+        return counts[status.ordinal()];
+    }
+
+    public Map<TaskStatus, Integer> getCountsByStatus() {
+        Map<TaskStatus, Integer> result = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            result.put(status, counts[status.ordinal()]);
+        }
+        return result;
+    }
+
+    public int getBlocked() {
+        return getCount(TaskStatus.BLOCKED);
+    }
+
+    // Tasks still to be done: neither completed nor cancelled
+    public int getRemaining() {
+        return total - getCount(TaskStatus.COMPLETED) - getCount(TaskStatus.CANCELLED);
+    }
+
+    // Completed share of the tasks that weren't cancelled, 0 to 100
+    public double getPercentDone() {
+        int planned = total - getCount(TaskStatus.CANCELLED);
+        return planned == 0 ? 0 : 100.0 * getCount(TaskStatus.COMPLETED) / planned;
+    }
+
+    @Override
+    public String toString() {
+        return "StoryProgress{" +
+                "storyId='" + storyId + '\'' +
+                ", total=" + total +
+                ", done=" + getCount(TaskStatus.COMPLETED) +
+                ", blocked=" + getBlocked() +
+                '}';
+    }
+}
@@ -3,18 +3,9 @@ package model;
 import java.util.*;
 
 public class Subtask extends Task {
-    private String parentTaskId;
-
-    public Subtask(String title, String description, Date deadline, String parentTaskId) {
+    // The parent id is derived from the parent link Task already keeps
+    public Subtask(String title, String description, Date deadline, Task parent) {
         super(title, description, deadline);
-        this.parentTaskId = parentTaskId;
-    }
-
-    public String getParentTaskId() {
-        return parentTaskId;
-    }
-
-    public void setParentTaskId(String parentTaskId) {
-        this.parentTaskId = parentTaskId;
+        parent.addSubtask(this);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package model;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Aggregates over the descendants of one task, not counting the task itself
+public class SubtreeSummary {
+    private final String taskId;
+    private final int[] statusCounts;
+    private final int[] priorityCounts;
+    private final Date earliestDeadline;
+    private final int descendants;
+
+    public SubtreeSummary(String taskId, int[] statusCounts, int[] priorityCounts, Date earliestDeadline) {
+        this.taskId = taskId;
+        this.statusCounts = statusCounts.clone();
+        this.priorityCounts = priorityCounts.clone();
+        this.earliestDeadline = earliestDeadline;
+        int sum = 0;
+        for (int count : statusCounts) {
+            sum += count;
+        }
+        this.descendants = sum;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public int getDescendantCount() {
+        return descendants;
+    }
+
+    public int getCount(TaskStatus status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    public Map<TaskStatus, Integer> getCountsByStatus() {
+        Map<TaskStatus, Integer> result = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            result.put(status, statusCounts[status.ordinal()]);
+        }
+        return result;
+    }
+
+    public int getCount(TaskPriority priority) {
+        return priorityCounts[priority.ordinal()];
+    }
+
+    // Null when the task has no descendants
+    public TaskPriority getHighestPriority() {
+        TaskPriority[] priorities = TaskPriority.values();
+        for (int i = priorities.length - 1; i >= 0; i--) {
+            if (priorityCounts[i] > 0) {
+                return priorities[i];
+            }
+        }
+        return null;
+    }
+
+    // Null when no descendant has a deadline
+    public Date getEarliestDeadline() {
+        return earliestDeadline == null ? null : new Date(earliestDeadline.getTime());
+    }
+
+    @Override
+    public String toString() {
+        return "SubtreeSummary{" +
+                "taskId='" + taskId + '\'' +
+                ", descendants=" + descendants +
+                ", done=" + getCount(TaskStatus.COMPLETED) +
+                ", highestPriority=" + getHighestPriority() +
+                ", earliestDeadline=" + earliestDeadline +
+                '}';
+    }
+}
@@ -1,53 +1,119 @@
 package model;
 
+import factory.IdGenerators;
+
 import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 public class Task {
-    private String id;
-    private String title;
-    private String description;
-    private Date deadline;
-    private TaskStatus status;
-    private TaskPriority priority;
-    private String assignedUserId;
-    private String parentTaskId; // Changed from parentId to parentTaskId to be more explicit
-    private List<Task> subtasks;
-
-    private final ReentrantLock lock = new ReentrantLock();
+    // Expected version that matches any version
+    public static final long ANY_VERSION = -1;
+    private static final Task[] NO_SUBTASKS = new Task[0];
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private final String id;
+    // Replaced as a whole under the lock and published by the volatile write,
+    // so readers never lock and never see half of an update
+    private volatile State state;
+    // Copy-on-write: replaced under the lock and read without it. Leaves, which
+    // are most tasks, share one empty array.
+    private volatile Task[] subtasks = NO_SUBTASKS;
+    // Hierarchy position, maintained on addSubtask/removeSubtask so ancestor
+    // checks never go back to the repository
+    private volatile Task parent;
+    private volatile Task root = this;
+    private volatile int depth;
+
+    private volatile TaskListener listener;
 
     public Task(String title, String description, Date deadline) {
-        this.id = UUID.randomUUID().toString();
-        this.title = title;
-        this.description = description;
-        this.deadline = deadline;
-        this.status = TaskStatus.PENDING;
-        this.priority = TaskPriority.MEDIUM;
-        this.subtasks = new ArrayList<>();
+        this(IdGenerators.nextId(), title, description, deadline);
+    }
+
+    public Task(String id, String title, String description, Date deadline) {
+        this(id, title, description, deadline, TaskStatus.PENDING, TaskPriority.MEDIUM, null, 1);
+    }
+
+    // Restores a task as it was persisted, version included
+    public Task(String id, String title, String description, Date deadline, TaskStatus status, TaskPriority priority,
+                String assignedUserId, long version) {
+        this.id = id;
+        this.state = new State(title, description, millis(deadline), status, priority, assignedUserId, version);
     }
 
+    // The child's lock and ours are taken one after the other, never nested
     public void addSubtask(Task subtask) {
+        subtask.attachTo(this);
+        ReentrantLock lock = lock();
         lock.lock();
         try {
-            if (subtask.getParentTaskId() != null) {
-                throw new IllegalStateException("Task already has a parent");
-            }
-            subtask.setParentTaskId(this.id);
-            subtasks.add(subtask);
+            Task[] current = subtasks;
+            Task[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subtask;
+            subtasks = updated;
         } finally {
             lock.unlock();
         }
+        subtask.relabelSubtree();
     }
 
     public void removeSubtask(Task subtask) {
+        boolean removed = false;
+        ReentrantLock lock = lock();
         lock.lock();
         try {
-            if (subtasks.remove(subtask)) {
-                subtask.setParentTaskId(null);
+            Task[] current = subtasks;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == subtask) {
+                    Task[] updated = current.length == 1 ? NO_SUBTASKS : new Task[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    subtasks = updated;
+                    removed = true;
+                    break;
+                }
             }
         } finally {
             lock.unlock();
         }
+        if (removed) {
+            subtask.setParent(null);
+            subtask.relabelSubtree();
+        }
+    }
+
+    // True if this task is a strict ancestor of the other. Tasks in different
+    // trees or at a depth not below this one are rejected without walking; otherwise
+    // walks up depth(other) - depth(this) parent references in memory.
+    public boolean isAncestorOf(Task other) {
+        if (other.root != this.root) {
+            return false;
+        }
+        int steps = other.depth - this.depth;
+        if (steps <= 0) {
+            return false;
+        }
+        Task current = other;
+        while (steps-- > 0 && current != null) {
+            current = current.parent;
+        }
+        return current == this;
+    }
+
+    // Recomputes depth and root for this task and its descendants, iteratively
+    private void relabelSubtree() {
+        Deque<Task> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Task task = pending.pop();
+            Task taskParent = task.parent;
+            task.depth = taskParent == null ? 0 : taskParent.depth + 1;
+            task.root = taskParent == null ? task : taskParent.root;
+            for (Task child : task.subtasks) {
+                pending.push(child);
+            }
+        }
     }
 
     public String getId() {
@@ -55,77 +121,304 @@ public class Task {
     }
 
     public void update(String title, String description, Date deadline, TaskStatus status) {
+        write(ANY_VERSION, new TaskPatch(title, description, deadline, status, null), true);
+    }
+
+    // Replaces the fields only if the task is still at the expected version;
+    // returns false, changing nothing, if it has moved on
+    public boolean compareAndUpdate(long expectedVersion, String title, String description, Date deadline,
+                                    TaskStatus status) {
+        return write(expectedVersion, new TaskPatch(title, description, deadline, status, null), true);
+    }
+
+    // Changes only the fields the patch sets, leaving the rest as they are at
+    // the time of the write. Pass ANY_VERSION to apply it unconditionally.
+    public boolean patch(long expectedVersion, TaskPatch patch) {
+        return write(expectedVersion, patch, false);
+    }
+
+    public void setStatus(TaskStatus status) {
+        write(ANY_VERSION, new TaskPatch(null, null, null, status, null), false);
+    }
+
+    // A write that changes anything swaps in a state one version newer, then
+    // notifies the listener of what changed; one that changes nothing leaves
+    // the state and version alone. A full write takes title, description and
+    // deadline from the patch even when they are null.
+    private boolean write(long expectedVersion, TaskPatch patch, boolean full) {
+        ReentrantLock lock = lock();
         lock.lock();
         try {
-            this.title = title;
-            this.description = description;
-            this.deadline = deadline;
-            this.status = status;
+            State old = state;
+            if (expectedVersion != ANY_VERSION && expectedVersion != old.version) {
+                return false;
+            }
+            String title = full || patch.getTitle() != null ? patch.getTitle() : old.title;
+            String description = full || patch.getDescription() != null ? patch.getDescription() : old.description;
+            long deadline = full || patch.getDeadline() != null ? millis(patch.getDeadline()) : old.deadline;
+            TaskStatus status = patch.getStatus() != null ? patch.getStatus() : old.status;
+            TaskPriority priority = patch.getPriority() != null ? patch.getPriority() : old.priority;
+            boolean details = !Objects.equals(old.title, title) || !Objects.equals(old.description, description)
+                    || old.deadline != deadline;
+            if (!details && old.status == status && old.priority == priority) {
+                return true;
+            }
+            state = new State(title, description, deadline, status, priority, old.assignedUserId, old.version + 1);
+            TaskListener current = listener;
+            if (current == null) {
+                return true;
+            }
+            if (details) {
+                current.onDetailsChanged(this);
+            }
+            if (old.deadline != deadline) {
+                current.onDeadlineChanged(this, old.getDeadline(), state.getDeadline());
+            }
+            if (old.status != status) {
+                current.onStatusChanged(this, old.status, status);
+            }
+            if (old.priority != priority) {
+                current.onPriorityChanged(this, old.priority, priority);
+            }
+            current.onUpdated(this);
+            return true;
         } finally {
             lock.unlock();
         }
     }
 
+    // All fields as of one point in time; use it when reading several at once
+    public State getState() {
+        return state;
+    }
+
+    // Goes up by one on every write that changes the task's fields. Moves don't
+    // change it; they are serialized by the service instead.
+    public long getVersion() {
+        return state.version;
+    }
+
     public String getTitle() {
-        return title;
+        return state.title;
     }
 
     public String getDescription() {
-        return description;
+        return state.description;
     }
 
     public Date getDeadline() {
-        return deadline;
+        return state.getDeadline();
     }
 
     public TaskStatus getStatus() {
-        return status;
+        return state.status;
     }
 
     public String getAssignedUserId() {
-        return assignedUserId;
+        return state.assignedUserId;
     }
 
     public void setAssignedUserId(String userId) {
-        this.assignedUserId = userId;
+        ReentrantLock lock = lock();
+        lock.lock();
+        try {
+            State old = state;
+            String oldUserId = old.assignedUserId;
+            if (Objects.equals(oldUserId, userId)) {
+                return;
+            }
+            state = new State(old.title, old.description, old.deadline, old.status, old.priority, userId,
+                    old.version + 1);
+            // Notify under the lock so listeners see reassignments of one task in order
+            TaskListener current = listener;
+            if (current != null) {
+                current.onAssigneeChanged(this, oldUserId, userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setListener(TaskListener listener) {
+        this.listener = listener;
     }
 
     public List<String> getSubtasks() {
+        Task[] current = subtasks;
+        List<String> ids = new ArrayList<>(current.length);
+        for (Task child : current) {
+            ids.add(child.getId());
+        }
+        return ids;
+    }
+
+    public List<Task> getChildren() {
+        return new ArrayList<>(Arrays.asList(subtasks));
+    }
+
+    private void attachTo(Task parent) {
+        ReentrantLock lock = lock();
         lock.lock();
         try {
-            return subtasks.stream()
-                    .map(Task::getId)
-                    .collect(java.util.stream.Collectors.toList());
+            if (this.parent != null) {
+                throw new IllegalStateException("Task already has a parent");
+            }
+            setParent(parent);
         } finally {
             lock.unlock();
         }
     }
 
-    public void setParentTaskId(String parentTaskId) {
-        this.parentTaskId = parentTaskId;
+    private void setParent(Task parent) {
+        ReentrantLock lock = lock();
+        lock.lock();
+        try {
+            String oldParentTaskId = getParentTaskId();
+            this.parent = parent;
+            String parentTaskId = getParentTaskId();
+            TaskListener current = listener;
+            if (current != null && !Objects.equals(oldParentTaskId, parentTaskId)) {
+                current.onParentChanged(this, oldParentTaskId, parentTaskId);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     public String getParentTaskId() {
-        return parentTaskId;
+        Task current = parent;
+        return current == null ? null : current.getId();
+    }
+
+    public Task getParent() {
+        return parent;
+    }
+
+    public String getRootTaskId() {
+        return root.getId();
+    }
+
+    public int getDepth() {
+        return depth;
     }
 
     public TaskPriority getPriority() {
-        return priority;
+        return state.priority;
     }
 
     public void setPriority(TaskPriority priority) {
-        this.priority = priority;
+        write(ANY_VERSION, new TaskPatch(null, null, null, null, priority), false);
     }
 
     @Override
     public String toString() {
+        State current = state;
         return "Task{" +
                 "id='" + id + '\'' +
-                ", title='" + title + '\'' +
-                ", status=" + status +
-                ", assignedUserId='" + assignedUserId + '\'' +
-                ", parentTaskId='" + parentTaskId + '\'' +
-                ", subtasks=" + subtasks.size() +
+                ", title='" + current.title + '\'' +
+                ", status=" + current.status +
+                ", assignedUserId='" + current.assignedUserId + '\'' +
+                ", parentTaskId='" + getParentTaskId() + '\'' +
+                ", subtasks=" + subtasks.length +
                 '}';
     }
+
+    private ReentrantLock lock() {
+        return TaskLocks.lockFor(id);
+    }
+
+    // Runs the action with the lock of the task with the given id held, so it is
+    // ordered with that task's changes and the notifications they send
+    public static void runLocked(String taskId, Runnable action) {
+        ReentrantLock lock = TaskLocks.lockFor(taskId);
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Runs the action on each task with the task's lock held, taking every
+    // stripe once and in ascending order, so a batch pays one acquisition per
+    // stripe instead of one per change
+    public static void forEachLocked(Collection<Task> tasks, Consumer<Task> action) {
+        Task[] batch = tasks.toArray(new Task[0]);
+        // Stripe in the high half and batch position in the low half, so one
+        // primitive sort groups by stripe and keeps batch order within a stripe
+        long[] order = new long[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            order[i] = (long) TaskLocks.stripeOf(batch[i].id) << 32 | i;
+        }
+        Arrays.sort(order);
+        int i = 0;
+        while (i < order.length) {
+            int stripe = (int) (order[i] >>> 32);
+            ReentrantLock lock = TaskLocks.lockAt(stripe);
+            lock.lock();
+            try {
+                for (; i < order.length && (int) (order[i] >>> 32) == stripe; i++) {
+                    action.accept(batch[(int) order[i]]);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static long millis(Date date) {
+        return date == null ? NO_DEADLINE : date.getTime();
+    }
+
+    // Immutable values of a task's mutable fields
+    public static final class State {
+        private final String title;
+        private final String description;
+        // Epoch millis rather than a Date, which would be one more object per task
+        private final long deadline;
+        private final TaskStatus status;
+        private final TaskPriority priority;
+        private final String assignedUserId;
+        private final long version;
+
+        private State(String title, String description, long deadline, TaskStatus status, TaskPriority priority,
+                      String assignedUserId, long version) {
+            this.title = title;
+            this.description = description;
+            this.deadline = deadline;
+            this.status = status;
+            this.priority = priority;
+            this.assignedUserId = assignedUserId;
+            this.version = version;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        // A fresh copy on every call; null if the task has no deadline
+        public Date getDeadline() {
+            return deadline == NO_DEADLINE ? null : new Date(deadline);
+        }
+
+        public TaskStatus getStatus() {
+            return status;
+        }
+
+        public TaskPriority getPriority() {
+            return priority;
+        }
+
+        public String getAssignedUserId() {
+            return assignedUserId;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
 }
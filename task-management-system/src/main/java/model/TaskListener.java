@@ -0,0 +1,30 @@
+package model;
+
+import java.util.Date;
+
+public interface TaskListener {
+    default void onAssigneeChanged(Task task, String oldUserId, String newUserId) {
+    }
+
+    default void onStatusChanged(Task task, TaskStatus oldStatus, TaskStatus newStatus) {
+    }
+
+    default void onPriorityChanged(Task task, TaskPriority oldPriority, TaskPriority newPriority) {
+    }
+
+    default void onParentChanged(Task task, String oldParentTaskId, String newParentTaskId) {
+    }
+
+    // Title, description or deadline changed through Task.update
+    default void onDetailsChanged(Task task) {
+    }
+
+    // Fired after onDetailsChanged when the deadline was among the changes
+    default void onDeadlineChanged(Task task, Date oldDeadline, Date newDeadline) {
+    }
+
+    // Fired once per write to the task's fields, after the callbacks for the
+    // fields it changed
+    default void onUpdated(Task task) {
+    }
+}
@@ -0,0 +1,35 @@
+package model;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Shared lock table for tasks. A task's lock is picked by hashing its id, so
+// tasks carry no lock object of their own; unrelated tasks that share a stripe
+// just serialize their (short) critical sections. Locks are reentrant, and no
+// code holds two task locks at once (batches take stripes one at a time, in
+// ascending order), so stripe collisions cannot deadlock.
+final class TaskLocks {
+    private static final int STRIPES = 1 << 10;
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private TaskLocks() {
+    }
+
+    static ReentrantLock lockFor(String taskId) {
+        return LOCKS[stripeOf(taskId)];
+    }
+
+    static int stripeOf(String taskId) {
+        int hash = taskId.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    static ReentrantLock lockAt(int stripe) {
+        return LOCKS[stripe];
+    }
+}
@@ -0,0 +1,78 @@
+package model;
+
+import java.util.Date;
+
+// One entry of a mutation batch; see TaskService.applyBatch
+public class TaskOperation {
+    public enum Type {
+        UPDATE_STATUS,
+        UPDATE,
+        MOVE,
+        DELETE
+    }
+
+    private final Type type;
+    private final String taskId;
+    private final String title;
+    private final String description;
+    private final Date deadline;
+    private final TaskStatus status;
+    private final String parentTaskId;
+
+    private TaskOperation(Type type, String taskId, String title, String description, Date deadline,
+                          TaskStatus status, String parentTaskId) {
+        this.type = type;
+        this.taskId = taskId;
+        this.title = title;
+        this.description = description;
+        this.deadline = deadline;
+        this.status = status;
+        this.parentTaskId = parentTaskId;
+    }
+
+    public static TaskOperation updateStatus(String taskId, TaskStatus status) {
+        return new TaskOperation(Type.UPDATE_STATUS, taskId, null, null, null, status, null);
+    }
+
+    public static TaskOperation update(String taskId, String title, String description, Date deadline,
+                                       TaskStatus status) {
+        return new TaskOperation(Type.UPDATE, taskId, title, description, deadline, status, null);
+    }
+
+    // A null parent makes the task a root
+    public static TaskOperation move(String taskId, String parentTaskId) {
+        return new TaskOperation(Type.MOVE, taskId, null, null, null, null, parentTaskId);
+    }
+
+    public static TaskOperation delete(String taskId) {
+        return new TaskOperation(Type.DELETE, taskId, null, null, null, null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Date getDeadline() {
+        return deadline;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public String getParentTaskId() {
+        return parentTaskId;
+    }
+}
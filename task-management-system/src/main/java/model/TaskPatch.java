@@ -0,0 +1,40 @@
+package model;
+
+import java.util.Date;
+
+// Field-level change to a task: null fields are left as they are
+public class TaskPatch {
+    private final String title;
+    private final String description;
+    private final Date deadline;
+    private final TaskStatus status;
+    private final TaskPriority priority;
+
+    public TaskPatch(String title, String description, Date deadline, TaskStatus status, TaskPriority priority) {
+        this.title = title;
+        this.description = description;
+        this.deadline = deadline;
+        this.status = status;
+        this.priority = priority;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Date getDeadline() {
+        return deadline;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public TaskPriority getPriority() {
+        return priority;
+    }
+}
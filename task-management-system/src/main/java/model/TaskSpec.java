@@ -0,0 +1,57 @@
+package model;
+
+import java.util.Date;
+
+// One entry of a bulk import. The ref is a client-chosen key that later entries
+// of the same batch can name as their parent; parent may also be the id of a
+// task that already exists.
+public class TaskSpec {
+    private final String ref;
+    private final String parent;
+    private final String title;
+    private final String description;
+    private final Date deadline;
+    private final String assignedUserId;
+    private TaskPriority priority;
+
+    public TaskSpec(String ref, String parent, String title, String description, Date deadline, String assignedUserId) {
+        this.ref = ref;
+        this.parent = parent;
+        this.title = title;
+        this.description = description;
+        this.deadline = deadline;
+        this.assignedUserId = assignedUserId;
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    public String getParent() {
+        return parent;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Date getDeadline() {
+        return deadline;
+    }
+
+    public String getAssignedUserId() {
+        return assignedUserId;
+    }
+
+    public TaskPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(TaskPriority priority) {
+        this.priority = priority;
+    }
+}
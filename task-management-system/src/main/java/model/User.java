@@ -1,18 +1,24 @@
 package model;
 
-import java.util.UUID;
+import factory.IdGenerators;
 
 public class User {
     private String id;
     private String name;
     private String email;
-    private String password;
+    // Salted hash; the password itself is never kept
+    private String passwordHash;
 
     public User(String name, String email, String password) {
-        this.id = UUID.randomUUID().toString();
+        this(IdGenerators.nextId(), name, email, Passwords.hash(password));
+    }
+
+    // Restores a user from a hash made by Passwords.hash
+    public User(String id, String name, String email, String passwordHash) {
+        this.id = id;
         this.name = name;
         this.email = email;
-        this.password = password;
+        this.passwordHash = passwordHash;
     }
 
     public String getId() {
@@ -27,7 +33,11 @@ public class User {
         return email;
     }
 
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
     public boolean checkPassword(String pwd) {
-        return this.password.equals(pwd);
+        return pwd != null && Passwords.matches(pwd, passwordHash);
     }
 }
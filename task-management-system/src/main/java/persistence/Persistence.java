@@ -0,0 +1,267 @@
+package persistence;
+
+import exception.PersistenceException;
+import model.Story;
+import model.Task;
+import model.User;
+import repository.StoryIndex;
+import repository.StoryRepository;
+import repository.TaskIndex;
+import repository.TaskRepository;
+import repository.UserIndex;
+import repository.UserRepository;
+import service.StoryService;
+import service.TaskService;
+import service.UserService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Makes the in-memory repositories durable on local disk: every user, task and
+// story mutation is appended to a write-ahead log, and snapshots bound how much
+// log a restart has to replay. Call open() before serving traffic.
+public class Persistence implements Closeable {
+    private final UserRepository userRepo;
+    private final TaskRepository taskRepo;
+    private final StoryRepository storyRepo;
+    private final SnapshotStore snapshots;
+    private final WriteAheadLog log;
+    private ScheduledExecutorService scheduler;
+
+    private Persistence(Path directory, boolean fsync, UserRepository userRepo, TaskRepository taskRepo,
+                        StoryRepository storyRepo) {
+        this.userRepo = userRepo;
+        this.taskRepo = taskRepo;
+        this.storyRepo = storyRepo;
+        this.snapshots = new SnapshotStore(directory);
+
+        long lastSeq = recover(directory);
+        this.log = new WriteAheadLog(directory, fsync, lastSeq);
+
+        // Attach after recovery so restored entities aren't logged again
+        MutationLogger logger = new MutationLogger();
+        userRepo.addIndex(logger);
+        taskRepo.addIndex(logger);
+        storyRepo.addIndex(logger);
+        logger.live = true;
+    }
+
+    // Recovers the latest snapshot plus log tail into the services' (empty) repositories
+    public static Persistence open(Path directory, boolean fsync, UserService userService, TaskService taskService,
+                                   StoryService storyService) {
+        return new Persistence(directory, fsync, userService.getUserRepo(), taskService.getTaskRepo(),
+                storyService.getStoryRepo());
+    }
+
+    // Writes a snapshot and drops the log segments it covers. The snapshot's
+    // rename is made durable first, so a crash can't lose both it and the segments.
+    public synchronized void snapshot() {
+        long replayFrom = log.rotate();
+        snapshots.write(replayFrom, userRepo.findAll(), taskRepo.findAll(), storyRepo.findAll());
+        log.deleteSegmentsBefore(replayFrom);
+    }
+
+    public synchronized void scheduleSnapshots(long period, TimeUnit unit) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "snapshot-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::snapshot, period, period, unit);
+        }
+    }
+
+    // Blocks until every mutation made so far is on disk. Call it after a write
+    // and before acknowledging it, with no locks held; callers waiting at the
+    // same time share one fsync.
+    public void awaitDurable() {
+        log.awaitDurable(log.lastSequence());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        log.close();
+    }
+
+    private long recover(Path directory) {
+        Map<String, User> users = new LinkedHashMap<>();
+        Map<String, Records.TaskState> tasks = new LinkedHashMap<>();
+        Map<String, Records.StoryState> stories = new LinkedHashMap<>();
+
+        SnapshotStore.Snapshot snapshot = snapshots.readLatest();
+        long replayFrom = 0;
+        if (snapshot != null) {
+            replayFrom = snapshot.replayFromSegment;
+            snapshot.users.forEach(user -> users.put(user.getId(), user));
+            snapshot.tasks.forEach(task -> tasks.put(task.id, task));
+            snapshot.stories.forEach(story -> stories.put(story.id, story));
+        }
+
+        // Replaying records the snapshot already reflects is harmless: task, user and
+        // story records are full-state upserts, and a story's task ids are a set
+        long lastSeq = WriteAheadLog.replay(directory, replayFrom, 0, (seq, type, in) -> {
+            switch (type) {
+                case Records.TASK_PUT:
+                    Records.TaskState task = Records.readTask(in);
+                    tasks.put(task.id, task);
+                    break;
+                case Records.TASK_DELETE:
+                    tasks.remove(Records.readString(in));
+                    break;
+                case Records.USER_PUT:
+                    User user = Records.readUser(in);
+                    users.put(user.getId(), user);
+                    break;
+                case Records.STORY_PUT:
+                    Records.StoryState story = Records.readStory(in);
+                    stories.put(story.id, story);
+                    break;
+                case Records.STORY_TASK_ADDED:
+                    Records.StoryState target = stories.get(Records.readString(in));
+                    String taskId = Records.readString(in);
+                    long version = in.readLong();
+                    if (target != null) {
+                        target.taskIds.add(taskId);
+                        target.version = Math.max(target.version, version);
+                    }
+                    break;
+                default:
+                    throw new IOException("Unknown log record type " + type);
+            }
+        });
+
+        users.values().forEach(userRepo::save);
+
+        Map<String, Task> restored = new ConcurrentHashMap<>(tasks.size() * 2);
+        tasks.values().parallelStream().forEach(state -> restored.put(state.id, state.toTask()));
+        linkTopDown(tasks.values(), restored);
+        taskRepo.saveAll(restored.values());
+
+        for (Records.StoryState state : stories.values()) {
+            storyRepo.save(state.toStory(restored));
+        }
+        return lastSeq;
+    }
+
+    // Attaches every task to its parent, parents before children, so each
+    // addSubtask relabels only the task being attached
+    private static void linkTopDown(Collection<Records.TaskState> states, Map<String, Task> restored) {
+        Map<String, List<Task>> childrenByParent = new HashMap<>();
+        Deque<Task> pending = new ArrayDeque<>();
+        for (Records.TaskState state : states) {
+            Task task = restored.get(state.id);
+            if (state.parentTaskId != null && restored.containsKey(state.parentTaskId)) {
+                childrenByParent.computeIfAbsent(state.parentTaskId, id -> new ArrayList<>()).add(task);
+            } else {
+                pending.add(task);
+            }
+        }
+        while (!pending.isEmpty()) {
+            Task parent = pending.poll();
+            List<Task> children = childrenByParent.remove(parent.getId());
+            if (children != null) {
+                for (Task child : children) {
+                    parent.addSubtask(child);
+                    pending.add(child);
+                }
+            }
+        }
+    }
+
+    private interface Encoder {
+        void encode(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            encoder.encode(out);
+        } catch (IOException e) {
+            throw new PersistenceException("Cannot encode log record", e);
+        }
+        log.append(type, bytes.toByteArray());
+    }
+
+    // Turns repository events into log records. Task callbacks run under the
+    // task's lock, so records for one task reach the log in mutation order.
+    private class MutationLogger implements TaskIndex, UserIndex, StoryIndex {
+        volatile boolean live;
+
+        private void putTask(Task task) {
+            if (live) {
+                append(Records.TASK_PUT, out -> Records.writeTask(out, task));
+            }
+        }
+
+        @Override
+        public void onSave(Task task) {
+            putTask(task);
+        }
+
+        @Override
+        public void onDelete(Task task) {
+            if (live) {
+                append(Records.TASK_DELETE, out -> Records.writeString(out, task.getId()));
+            }
+        }
+
+        @Override
+        public void onAssigneeChanged(Task task, String oldUserId, String newUserId) {
+            putTask(task);
+        }
+
+        // One record per write, whichever fields it changed
+        @Override
+        public void onUpdated(Task task) {
+            putTask(task);
+        }
+
+        @Override
+        public void onParentChanged(Task task, String oldParentTaskId, String newParentTaskId) {
+            putTask(task);
+        }
+
+        @Override
+        public void onSave(User user) {
+            if (live) {
+                append(Records.USER_PUT, out -> Records.writeUser(out, user));
+            }
+        }
+
+        @Override
+        public void onSave(Story story) {
+            if (live) {
+                append(Records.STORY_PUT, out -> Records.writeStory(out, story));
+            }
+        }
+
+        @Override
+        public void onTaskAdded(Story story, String taskId) {
+            if (live) {
+                append(Records.STORY_TASK_ADDED, out -> {
+                    Records.writeString(out, story.getId());
+                    Records.writeString(out, taskId);
+                    // Called under the story's lock, so this is the version the add produced
+                    out.writeLong(story.getVersion());
+                });
+            }
+        }
+
+        // Only deleted tasks leave stories, and recovery drops ids of tasks that no longer exist
+        @Override
+        public void onTaskRemoved(Story story, String taskId) {
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package persistence;
+
+import model.Story;
+import model.Task;
+import model.TaskPriority;
+import model.TaskStatus;
+import model.User;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Binary encodings of users, tasks and stories shared by the log and snapshots
+final class Records {
+    static final byte TASK_PUT = 1;
+    static final byte TASK_DELETE = 2;
+    static final byte USER_PUT = 3;
+    static final byte STORY_PUT = 4;
+    static final byte STORY_TASK_ADDED = 5;
+
+    private Records() {
+    }
+
+    static void writeTask(DataOutput out, Task task) throws IOException {
+        Task.State state = task.getState();
+        writeString(out, task.getId());
+        writeString(out, state.getTitle());
+        writeString(out, state.getDescription());
+        Date deadline = state.getDeadline();
+        out.writeLong(deadline != null ? deadline.getTime() : Long.MIN_VALUE);
+        out.writeByte(state.getStatus().ordinal());
+        out.writeByte(state.getPriority() != null ? state.getPriority().ordinal() : -1);
+        writeString(out, state.getAssignedUserId());
+        writeString(out, task.getParentTaskId());
+        out.writeLong(state.getVersion());
+    }
+
+    static TaskState readTask(DataInput in) throws IOException {
+        TaskState state = new TaskState();
+        state.id = readString(in);
+        state.title = readString(in);
+        state.description = readString(in);
+        long deadline = in.readLong();
+        state.deadline = deadline != Long.MIN_VALUE ? new Date(deadline) : null;
+        state.status = TaskStatus.values()[in.readByte()];
+        byte priority = in.readByte();
+        state.priority = priority >= 0 ? TaskPriority.values()[priority] : null;
+        state.assignedUserId = readString(in);
+        state.parentTaskId = readString(in);
+        state.version = in.readLong();
+        return state;
+    }
+
+    static void writeUser(DataOutput out, User user) throws IOException {
+        writeString(out, user.getId());
+        writeString(out, user.getName());
+        writeString(out, user.getEmail());
+        writeString(out, user.getPasswordHash());
+    }
+
+    static User readUser(DataInput in) throws IOException {
+        return new User(readString(in), readString(in), readString(in), readString(in));
+    }
+
+    static void writeStory(DataOutput out, Story story) throws IOException {
+        writeString(out, story.getId());
+        writeString(out, story.getTitle());
+        writeString(out, story.getDescription());
+        List<String> taskIds;
+        long version;
+        // The story's lock, so the tasks and the version belong together
+        synchronized (story) {
+            taskIds = story.getTasks();
+            version = story.getVersion();
+        }
+        out.writeInt(taskIds.size());
+        for (String taskId : taskIds) {
+            writeString(out, taskId);
+        }
+        out.writeLong(version);
+    }
+
+    static StoryState readStory(DataInput in) throws IOException {
+        StoryState state = new StoryState();
+        state.id = readString(in);
+        state.title = readString(in);
+        state.description = readString(in);
+        int count = in.readInt();
+        state.taskIds = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            state.taskIds.add(readString(in));
+        }
+        state.version = in.readLong();
+        return state;
+    }
+
+    // Length-prefixed UTF-8; unlike writeUTF there is no 64KB limit, and -1 encodes null
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static class TaskState {
+        String id;
+        String title;
+        String description;
+        Date deadline;
+        TaskStatus status;
+        TaskPriority priority;
+        String assignedUserId;
+        String parentTaskId;
+        long version;
+
+        // Builds an unsaved, unlinked task; parents are linked once every task exists
+        Task toTask() {
+            return new Task(id, title, description, deadline, status, priority, assignedUserId, version);
+        }
+    }
+
+    static class StoryState {
+        String id;
+        String title;
+        String description;
+        // A set, so replaying an add the snapshot already holds changes nothing
+        Set<String> taskIds;
+        long version;
+
+        // Removals aren't logged; each bumped the version once, and recovery
+        // drops the ids of tasks that no longer exist, so add one per dropped id
+        Story toStory(Map<String, Task> restored) {
+            List<String> present = new ArrayList<>(taskIds.size());
+            for (String taskId : taskIds) {
+                if (restored.containsKey(taskId)) {
+                    present.add(taskId);
+                }
+            }
+            return new Story(id, title, description, present, version + taskIds.size() - present.size());
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package persistence;
+
+import exception.PersistenceException;
+import model.Story;
+import model.Task;
+import model.TaskPriority;
+import model.TaskStatus;
+import model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Compact point-in-time images of all users, tasks and stories. A snapshot
+// named for log segment N holds everything written to segments before N, so
+// recovery loads it and replays segments N and later.
+//
+// The file is written and read through a MappedByteBuffer. Every entity is a
+// fixed-width record, so record i of a section sits at a computable offset and
+// sections decode in parallel chunks. Strings live in a trailing UTF-8 heap and
+// are referenced as (offset, length). Ids are dictionary-encoded into an int
+// index, enums are stored as ordinal bytes and deadlines as epoch millis.
+//
+//   header   64 bytes: magic, version, replayFromSegment, counts, heap length, CRC32C of the body
+//   ids      idCount x (int heapOffset, int length)
+//   users    userCount x USER_BYTES    id, name, email, password hash
+//   tasks    taskCount x TASK_BYTES    id, title, description, deadline, status, priority, assignee, parent,
+//                                      version
+//   stories  storyCount x STORY_BYTES  id, title, description, first task ref, task ref count,
+//                                      version
+//   refs     storyTaskRefCount x int   task id index per story member
+//   heap     heapLength bytes
+public class SnapshotStore {
+    private static final int MAGIC = 0x544D5353; // "TMSS"
+    private static final int VERSION = 5;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private static final int HEADER_BYTES = 64;
+    private static final int STRING_BYTES = 8;
+    private static final int ID_BYTES = 8;
+    private static final int USER_BYTES = 4 + 3 * STRING_BYTES;
+    private static final int TASK_BYTES = 4 + 2 * STRING_BYTES + 8 + 1 + 1 + 2 + 4 + 4 + 8;
+    private static final int STORY_BYTES = 4 + 2 * STRING_BYTES + 4 + 4 + 8;
+    private static final int CHUNK_SIZE = 16384;
+    private static final long MAX_MAPPED_BYTES = Integer.MAX_VALUE;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public void write(long replayFromSegment, Collection<User> users, Collection<Task> tasks, Collection<Story> stories) {
+        // The repositories keep changing while we write, so copy them first
+        List<User> userList = new ArrayList<>(users);
+        List<Task> taskList = new ArrayList<>(tasks);
+        List<Story> storyList = new ArrayList<>(stories);
+        Encoder encoder = new Encoder();
+
+        ByteBuffer userRecords = ByteBuffer.allocate(userList.size() * USER_BYTES);
+        for (User user : userList) {
+            userRecords.putInt(encoder.id(user.getId()));
+            encoder.string(userRecords, user.getName());
+            encoder.string(userRecords, user.getEmail());
+            encoder.string(userRecords, user.getPasswordHash());
+        }
+        ByteBuffer taskRecords = ByteBuffer.allocate(taskList.size() * TASK_BYTES);
+        for (Task task : taskList) {
+            Task.State state = task.getState();
+            taskRecords.putInt(encoder.id(task.getId()));
+            encoder.string(taskRecords, state.getTitle());
+            encoder.string(taskRecords, state.getDescription());
+            Date deadline = state.getDeadline();
+            taskRecords.putLong(deadline != null ? deadline.getTime() : Long.MIN_VALUE);
+            taskRecords.put((byte) state.getStatus().ordinal());
+            taskRecords.put((byte) (state.getPriority() != null ? state.getPriority().ordinal() : -1));
+            taskRecords.putShort((short) 0);
+            taskRecords.putInt(encoder.id(state.getAssignedUserId()));
+            taskRecords.putInt(encoder.id(task.getParentTaskId()));
+            taskRecords.putLong(state.getVersion());
+        }
+        ByteBuffer storyRecords = ByteBuffer.allocate(storyList.size() * STORY_BYTES);
+        List<Integer> storyTaskRefs = new ArrayList<>();
+        for (Story story : storyList) {
+            List<String> taskIds;
+            long version;
+            synchronized (story) {
+                taskIds = story.getTasks();
+                version = story.getVersion();
+            }
+            storyRecords.putInt(encoder.id(story.getId()));
+            encoder.string(storyRecords, story.getTitle());
+            encoder.string(storyRecords, story.getDescription());
+            storyRecords.putInt(storyTaskRefs.size());
+            storyRecords.putInt(taskIds.size());
+            storyRecords.putLong(version);
+            for (String taskId : taskIds) {
+                storyTaskRefs.add(encoder.id(taskId));
+            }
+        }
+
+        byte[] heap = encoder.heap.toByteArray();
+        long size = (long) HEADER_BYTES + (long) encoder.idRefs.size() * 4 + userRecords.capacity()
+                + taskRecords.capacity() + storyRecords.capacity() + (long) storyTaskRefs.size() * 4 + heap.length;
+        if (size > MAX_MAPPED_BYTES) {
+            throw new PersistenceException("Snapshot of " + size + " bytes exceeds the mappable size");
+        }
+
+        Path target = snapshotPath(replayFromSegment);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(temp);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.position(HEADER_BYTES);
+                for (int ref : encoder.idRefs) {
+                    buffer.putInt(ref);
+                }
+                buffer.put(userRecords.flip());
+                buffer.put(taskRecords.flip());
+                buffer.put(storyRecords.flip());
+                for (int ref : storyTaskRefs) {
+                    buffer.putInt(ref);
+                }
+                buffer.put(heap);
+
+                CRC32C crc = new CRC32C();
+                crc.update(buffer.duplicate().position(HEADER_BYTES));
+                buffer.position(0);
+                buffer.putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(replayFromSegment)
+                        .putInt(encoder.idRefs.size() / 2)
+                        .putInt(userList.size())
+                        .putInt(taskList.size())
+                        .putInt(storyList.size())
+                        .putInt(storyTaskRefs.size())
+                        .putLong(heap.length)
+                        .putLong(crc.getValue());
+                buffer.force();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // The rename must be on disk before the caller deletes the log segments it covers
+            WriteAheadLog.syncDirectory(directory);
+        } catch (IOException e) {
+            throw new PersistenceException("Cannot write snapshot " + target, e);
+        }
+        deleteSnapshotsBefore(replayFromSegment);
+    }
+
+    // The newest readable snapshot, or null if none was ever written. Refuses to
+    // continue when snapshots exist but none can be read: the log segments they
+    // covered are gone, so starting empty would silently lose data.
+    public Snapshot readLatest() {
+        List<Long> segments = listSnapshots();
+        IOException lastError = null;
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            try {
+                return read(snapshotPath(segments.get(i)));
+            } catch (IOException e) {
+                lastError = e;
+            }
+        }
+        if (lastError != null) {
+            throw new PersistenceException("No readable snapshot in " + directory, lastError);
+        }
+        return null;
+    }
+
+    private Snapshot read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > MAX_MAPPED_BYTES) {
+                throw new IOException("Not a snapshot: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a snapshot: " + path);
+        }
+        long replayFromSegment = buffer.getLong(8);
+        int idCount = buffer.getInt(16);
+        int userCount = buffer.getInt(20);
+        int taskCount = buffer.getInt(24);
+        int storyCount = buffer.getInt(28);
+        int storyTaskRefCount = buffer.getInt(32);
+        long heapLength = buffer.getLong(36);
+        long expectedCrc = buffer.getLong(44);
+
+        int idsAt = HEADER_BYTES;
+        int usersAt = idsAt + idCount * ID_BYTES;
+        int tasksAt = usersAt + userCount * USER_BYTES;
+        int storiesAt = tasksAt + taskCount * TASK_BYTES;
+        int refsAt = storiesAt + storyCount * STORY_BYTES;
+        int heapAt = refsAt + storyTaskRefCount * 4;
+        if (heapAt + heapLength != buffer.capacity()) {
+            throw new IOException("Truncated snapshot: " + path);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(HEADER_BYTES));
+        if (crc.getValue() != expectedCrc) {
+            throw new IOException("Corrupt snapshot: " + path);
+        }
+
+        Decoder decoder = new Decoder(buffer, heapAt);
+        String[] ids = new String[idCount];
+        inChunks(idCount, i -> ids[i] = decoder.string(idsAt + i * ID_BYTES));
+
+        User[] users = new User[userCount];
+        inChunks(userCount, i -> {
+            int at = usersAt + i * USER_BYTES;
+            users[i] = new User(ids[buffer.getInt(at)], decoder.string(at + 4), decoder.string(at + 12),
+                    decoder.string(at + 20));
+        });
+
+        TaskStatus[] statuses = TaskStatus.values();
+        TaskPriority[] priorities = TaskPriority.values();
+        Records.TaskState[] tasks = new Records.TaskState[taskCount];
+        inChunks(taskCount, i -> {
+            int at = tasksAt + i * TASK_BYTES;
+            Records.TaskState state = new Records.TaskState();
+            state.id = ids[buffer.getInt(at)];
+            state.title = decoder.string(at + 4);
+            state.description = decoder.string(at + 12);
+            long deadline = buffer.getLong(at + 20);
+            state.deadline = deadline != Long.MIN_VALUE ? new Date(deadline) : null;
+            state.status = statuses[buffer.get(at + 28)];
+            byte priority = buffer.get(at + 29);
+            state.priority = priority >= 0 ? priorities[priority] : null;
+            state.assignedUserId = idAt(ids, buffer.getInt(at + 32));
+            state.parentTaskId = idAt(ids, buffer.getInt(at + 36));
+            state.version = buffer.getLong(at + 40);
+            tasks[i] = state;
+        });
+
+        Records.StoryState[] stories = new Records.StoryState[storyCount];
+        inChunks(storyCount, i -> {
+            int at = storiesAt + i * STORY_BYTES;
+            Records.StoryState state = new Records.StoryState();
+            state.id = ids[buffer.getInt(at)];
+            state.title = decoder.string(at + 4);
+            state.description = decoder.string(at + 12);
+            int firstRef = buffer.getInt(at + 20);
+            int refCount = buffer.getInt(at + 24);
+            state.version = buffer.getLong(at + 28);
+            state.taskIds = new LinkedHashSet<>();
+            for (int r = 0; r < refCount; r++) {
+                state.taskIds.add(ids[buffer.getInt(refsAt + (firstRef + r) * 4)]);
+            }
+            stories[i] = state;
+        });
+
+        Snapshot snapshot = new Snapshot(replayFromSegment);
+        snapshot.users.addAll(Arrays.asList(users));
+        snapshot.tasks.addAll(Arrays.asList(tasks));
+        snapshot.stories.addAll(Arrays.asList(stories));
+        return snapshot;
+    }
+
+    private static String idAt(String[] ids, int index) {
+        return index >= 0 ? ids[index] : null;
+    }
+
+    // Runs action for 0..count-1, splitting large ranges into chunks decoded in parallel
+    private static void inChunks(int count, IntConsumer action) {
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1) {
+            range = range.parallel();
+        }
+        range.forEach(chunk -> {
+            int end = Math.min(count, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                action.accept(i);
+            }
+        });
+    }
+
+    // Builds the id dictionary and string heap while records are encoded
+    private static class Encoder {
+        final Map<String, Integer> idIndex = new HashMap<>();
+        final List<Integer> idRefs = new ArrayList<>();
+        final ByteArrayOutputStream heap = new ByteArrayOutputStream(1 << 16);
+
+        int id(String id) {
+            if (id == null) {
+                return -1;
+            }
+            Integer index = idIndex.get(id);
+            if (index == null) {
+                index = idIndex.size();
+                idIndex.put(id, index);
+                byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+                idRefs.add(heap.size());
+                idRefs.add(bytes.length);
+                heap.writeBytes(bytes);
+            }
+            return index;
+        }
+
+        void string(ByteBuffer record, String value) {
+            if (value == null) {
+                record.putInt(-1).putInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            record.putInt(heap.size()).putInt(bytes.length);
+            heap.writeBytes(bytes);
+        }
+    }
+
+    private static class Decoder {
+        private final ByteBuffer buffer;
+        private final int heapAt;
+
+        Decoder(ByteBuffer buffer, int heapAt) {
+            this.buffer = buffer;
+            this.heapAt = heapAt;
+        }
+
+        // Absolute reads only, so chunks can decode concurrently from one buffer
+        String string(int at) {
+            int offset = buffer.getInt(at);
+            if (offset < 0) {
+                return null;
+            }
+            int length = buffer.getInt(at + 4);
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(heapAt + offset);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void deleteSnapshotsBefore(long segment) {
+        for (long existing : listSnapshots()) {
+            if (existing < segment) {
+                try {
+                    Files.deleteIfExists(snapshotPath(existing));
+                } catch (IOException e) {
+                    // A stale snapshot is harmless; the next snapshot retries
+                }
+            }
+        }
+    }
+
+    private List<Long> listSnapshots() {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> segments.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        } catch (IOException e) {
+            throw new PersistenceException("Cannot list snapshots in " + directory, e);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private Path snapshotPath(long segment) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+    }
+
+    static class Snapshot {
+        final long replayFromSegment;
+        final List<User> users = new ArrayList<>();
+        final List<Records.TaskState> tasks = new ArrayList<>();
+        final List<Records.StoryState> stories = new ArrayList<>();
+
+        Snapshot(long replayFromSegment) {
+            this.replayFromSegment = replayFromSegment;
+        }
+    }
+}
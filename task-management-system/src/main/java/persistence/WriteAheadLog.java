@@ -0,0 +1,346 @@
+package persistence;
+
+import exception.PersistenceException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only log of mutation records split into numbered segment files.
+//
+// Frame layout: [int payloadLength][long seq][byte type][payload][int crc32],
+// where the CRC covers seq, type and payload. Appenders only enqueue; a single
+// writer thread drains whatever has queued up, writes it with one write() and
+// one fsync (group commit), then wakes anyone waiting in awaitDurable.
+public class WriteAheadLog implements Closeable {
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final int MAX_BATCH = 8192;
+    // Far above any real record (a story with a million tasks is ~20 MB), low
+    // enough that a corrupt length can't make replay allocate the heap away
+    static final int MAX_RECORD_BYTES = 64 << 20;
+    // length, seq and type before the payload, crc after it
+    private static final int FRAME_OVERHEAD = 4 + 8 + 1 + 4;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Object CLOSE = new Object();
+    // Windows can't open a directory to force it, and doesn't need to
+    private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    public interface RecordHandler {
+        void handle(long seq, byte type, DataInput payload) throws IOException;
+    }
+
+    private final Path directory;
+    private final boolean fsync;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private final Object durableMonitor = new Object();
+
+    private long lastSeq;
+    private volatile long durableSeq;
+    private volatile Throwable failure;
+    private FileChannel channel;
+    private long segment;
+
+    // Starts a fresh segment after any existing ones; sequence numbers continue from lastSeq
+    public WriteAheadLog(Path directory, boolean fsync, long lastSeq) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.lastSeq = lastSeq;
+        this.durableSeq = lastSeq;
+        try {
+            Files.createDirectories(directory);
+            List<Long> segments = listSegments(directory);
+            openSegment(segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1);
+        } catch (IOException e) {
+            throw new PersistenceException("Cannot open write-ahead log in " + directory, e);
+        }
+        writer = new Thread(this::runWriter, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Queues a record and returns its sequence number without waiting for disk.
+    // Blocks only when the writer has fallen QUEUE_CAPACITY records behind.
+    public synchronized long append(byte type, byte[] payload) {
+        checkHealthy();
+        if (payload.length > MAX_RECORD_BYTES) {
+            throw new PersistenceException("Record of " + payload.length + " bytes exceeds the "
+                    + MAX_RECORD_BYTES + " byte limit");
+        }
+        long seq = ++lastSeq;
+        try {
+            queue.put(new Entry(seq, type, payload));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while appending to the write-ahead log", e);
+        }
+        return seq;
+    }
+
+    public synchronized long lastSequence() {
+        return lastSeq;
+    }
+
+    public void awaitDurable(long seq) {
+        synchronized (durableMonitor) {
+            while (durableSeq < seq) {
+                checkHealthy();
+                try {
+                    durableMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new PersistenceException("Interrupted while waiting for the write-ahead log", e);
+                }
+            }
+        }
+    }
+
+    // Switches to a new segment and returns its number. Every record appended
+    // before this call lives in an earlier segment.
+    public long rotate() {
+        CompletableFuture<Long> rotated = new CompletableFuture<>();
+        synchronized (this) {
+            checkHealthy();
+            try {
+                queue.put(rotated);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PersistenceException("Interrupted while rotating the write-ahead log", e);
+            }
+        }
+        return rotated.join();
+    }
+
+    public void deleteSegmentsBefore(long segmentNumber) {
+        try {
+            for (long existing : listSegments(directory)) {
+                if (existing < segmentNumber) {
+                    Files.deleteIfExists(segmentPath(directory, existing));
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Cannot delete old log segments", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        awaitDurable(lastSequence());
+        try {
+            queue.put(CLOSE);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Replays every intact record in segments numbered >= fromSegment, in order,
+    // and returns the highest sequence number seen. A torn or corrupt frame ends
+    // its segment: it can only be the tail left by a crash mid-write.
+    public static long replay(Path directory, long fromSegment, long lastSeq, RecordHandler handler) {
+        if (!Files.isDirectory(directory)) {
+            return lastSeq;
+        }
+        try {
+            for (long segmentNumber : listSegments(directory)) {
+                if (segmentNumber >= fromSegment) {
+                    lastSeq = Math.max(lastSeq, replaySegment(segmentPath(directory, segmentNumber), handler));
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Cannot replay write-ahead log in " + directory, e);
+        }
+        return lastSeq;
+    }
+
+    private static long replaySegment(Path path, RecordHandler handler) throws IOException {
+        long lastSeq = 0;
+        long remaining = Files.size(path);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                int length;
+                long seq;
+                byte type;
+                byte[] payload;
+                int crc;
+                try {
+                    length = in.readInt();
+                    // A length the segment can't hold was never written whole
+                    if (length < 0 || length > MAX_RECORD_BYTES || length > remaining - FRAME_OVERHEAD) {
+                        return lastSeq;
+                    }
+                    seq = in.readLong();
+                    type = in.readByte();
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc = in.readInt();
+                } catch (EOFException e) {
+                    return lastSeq;
+                }
+                if (crc != checksum(seq, type, payload)) {
+                    return lastSeq;
+                }
+                handler.handle(seq, type, new DataInputStream(new ByteArrayInputStream(payload)));
+                lastSeq = seq;
+                remaining -= FRAME_OVERHEAD + length;
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>(MAX_BATCH);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream out = new DataOutputStream(buffer);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            long batchSeq = -1;
+            try {
+                for (Object item : batch) {
+                    if (item instanceof Entry) {
+                        Entry entry = (Entry) item;
+                        out.writeInt(entry.payload.length);
+                        out.writeLong(entry.seq);
+                        out.writeByte(entry.type);
+                        out.write(entry.payload);
+                        out.writeInt(checksum(entry.seq, entry.type, entry.payload));
+                        batchSeq = entry.seq;
+                    } else if (item == CLOSE) {
+                        flush(buffer);
+                        markDurable(batchSeq);
+                        channel.close();
+                        return;
+                    } else {
+                        @SuppressWarnings("unchecked")
+                        CompletableFuture<Long> rotated = (CompletableFuture<Long>) item;
+                        flush(buffer);
+                        channel.close();
+                        openSegment(segment + 1);
+                        rotated.complete(segment);
+                    }
+                }
+                flush(buffer);
+                markDurable(batchSeq);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+                for (Object item : batch) {
+                    if (item instanceof CompletableFuture) {
+                        ((CompletableFuture<?>) item).completeExceptionally(e);
+                    }
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(ByteArrayOutputStream buffer) throws IOException {
+        if (buffer.size() == 0) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        buffer.reset();
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    private void markDurable(long seq) {
+        if (seq < 0) {
+            return;
+        }
+        synchronized (durableMonitor) {
+            durableSeq = seq;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void fail(Throwable cause) {
+        synchronized (durableMonitor) {
+            failure = cause;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void checkHealthy() {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new PersistenceException("Write-ahead log failed", cause);
+        }
+    }
+
+    private void openSegment(long segmentNumber) throws IOException {
+        segment = segmentNumber;
+        channel = FileChannel.open(segmentPath(directory, segmentNumber),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Otherwise a crash can lose the new file, fsynced records and all
+        if (fsync) {
+            syncDirectory(directory);
+        }
+    }
+
+    // Makes files created, renamed or deleted in the directory survive a crash;
+    // forcing a file only covers its contents
+    static void syncDirectory(Path directory) throws IOException {
+        if (WINDOWS) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static int checksum(long seq, byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(9);
+        header.putLong(seq).put(type).flip();
+        crc.update(header);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> segments.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static Path segmentPath(Path directory, long segmentNumber) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+    }
+
+    private static class Entry {
+        final long seq;
+        final byte type;
+        final byte[] payload;
+
+        Entry(long seq, byte type, byte[] payload) {
+            this.seq = seq;
+            this.type = type;
+            this.payload = payload;
+        }
+    }
+}
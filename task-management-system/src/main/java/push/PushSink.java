@@ -0,0 +1,13 @@
+package push;
+
+import java.util.List;
+
+// Where a subscription's deltas go, e.g. an SSE connection. send is called
+// from the hub's dispatcher threads, one call at a time per subscription.
+public interface PushSink {
+    void send(List<TaskDelta> deltas) throws Exception;
+
+    // The hub gave up on this subscriber: it fell too far behind, send failed
+    // or the hub shut down
+    void close(String reason);
+}
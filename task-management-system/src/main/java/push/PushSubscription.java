@@ -0,0 +1,140 @@
+package push;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// One subscriber's queue. Deltas for the same task replace each other, so a
+// burst of changes to one task is sent as its latest state. The queue holds at
+// most maxPending distinct changed tasks; a subscriber that falls further
+// behind than that is dropped rather than letting its backlog grow. The initial
+// snapshot doesn't count toward the cap, since a topic may hold any number of
+// tasks, and goes out in batches of at most maxPending. So is one whose send
+// takes longer than maxSendMillis, since it holds a dispatcher thread while
+// its connection drains.
+public class PushSubscription implements Closeable {
+    private final SubscriptionHub hub;
+    private final String topic;
+    private final PushSink sink;
+    private final int maxPending;
+    private final long maxSendMillis;
+    // Guarded by this
+    private final Map<String, TaskDelta> pending = new LinkedHashMap<>();
+    // The pending tasks queued only by the snapshot; guarded by this
+    private final Set<String> snapshotted = new HashSet<>();
+    // A flush is scheduled or running; guarded by this
+    private boolean flushing;
+    private volatile boolean closed;
+
+    PushSubscription(SubscriptionHub hub, String topic, PushSink sink, int maxPending, long maxSendMillis) {
+        this.hub = hub;
+        this.topic = topic;
+        this.sink = sink;
+        this.maxPending = maxPending;
+        this.maxSendMillis = maxSendMillis;
+    }
+
+    String getTopic() {
+        return topic;
+    }
+
+    PushSink getSink() {
+        return sink;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // A snapshot delta never replaces a queued change, which is at least as new
+    void offer(TaskDelta delta, boolean snapshot) {
+        boolean schedule = false;
+        boolean overflow = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            String taskId = delta.getTaskId();
+            boolean queued = pending.containsKey(taskId);
+            boolean changed = queued && !snapshotted.contains(taskId);
+            if (!snapshot && !changed && pending.size() - snapshotted.size() >= maxPending) {
+                overflow = true;
+                closed = true;
+                pending.clear();
+                snapshotted.clear();
+            } else {
+                if (!snapshot) {
+                    // Re-inserting moves the task to the back, after changes queued before this one
+                    snapshotted.remove(taskId);
+                    pending.remove(taskId);
+                    pending.put(taskId, delta);
+                } else if (!queued) {
+                    snapshotted.add(taskId);
+                    pending.put(taskId, delta);
+                }
+                schedule = !flushing;
+                flushing = true;
+            }
+        }
+        if (overflow) {
+            hub.drop(this, "Subscriber fell more than " + maxPending + " tasks behind");
+        } else if (schedule) {
+            hub.schedule(this);
+        }
+    }
+
+    // Runs on a dispatcher thread; never concurrently for one subscription
+    void flush() {
+        List<TaskDelta> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+            snapshotted.clear();
+        }
+        for (int from = 0; from < batch.size() && !closed; from += maxPending) {
+            String failure = null;
+            long start = System.nanoTime();
+            try {
+                sink.send(batch.subList(from, Math.min(from + maxPending, batch.size())));
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                if (millis > maxSendMillis) {
+                    failure = "Send took " + millis + "ms";
+                }
+            } catch (Exception e) {
+                failure = "Send failed: " + e;
+            }
+            if (failure != null) {
+                discard();
+                hub.drop(this, failure);
+                return;
+            }
+        }
+        boolean again;
+        synchronized (this) {
+            again = !pending.isEmpty() && !closed;
+            flushing = again;
+        }
+        if (again) {
+            hub.schedule(this);
+        }
+    }
+
+    // Stops delivery; a flush already scheduled finds nothing to send
+    void discard() {
+        synchronized (this) {
+            closed = true;
+            pending.clear();
+            snapshotted.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        discard();
+        hub.remove(this);
+    }
+}
@@ -0,0 +1,334 @@
+package push;
+
+import event.DomainEvent;
+import event.EventBus;
+import event.EventHandler;
+import event.Subscription;
+import exception.StoryNotFoundException;
+import exception.TaskNotFoundException;
+import model.Story;
+import model.Task;
+import repository.StoryRepository;
+import repository.TaskRepository;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pushes task changes to subscribers of a user's tasks, a story's tasks or a
+// task's subtree. The hub reads the event bus on one thread and turns each
+// event into deltas for the topics it touches; only topics with subscribers
+// cost anything. Subscribers are flushed by a small dispatcher pool after a
+// short linger, so a burst of changes goes out as one batch per subscriber.
+//
+// A new subscriber first receives the current tasks of its topic, then the
+// changes from there on.
+public class SubscriptionHub implements EventHandler, Closeable {
+    public static final int DEFAULT_MAX_PENDING = 1024;
+    public static final long DEFAULT_LINGER_MILLIS = 50;
+    public static final long DEFAULT_MAX_SEND_MILLIS = 250;
+    // Sends wait on the network rather than the CPU, so use more threads than cores
+    public static final int DEFAULT_DISPATCHER_THREADS = 16;
+
+    private static final String USER = "user:";
+    private static final String STORY = "story:";
+    private static final String SUBTREE = "task:";
+
+    private final TaskRepository taskRepo;
+    private final StoryRepository storyRepo;
+    private final EventBus bus;
+    private volatile Subscription feed;
+    private final ScheduledExecutorService dispatcher;
+    private final int maxPending;
+    private final long lingerMillis;
+    private final long maxSendMillis;
+    private final Map<String, Set<PushSubscription>> topics = new ConcurrentHashMap<>();
+    // Subtree routing walks the ancestors of every changed task, so skip it while nobody needs it
+    private final AtomicInteger subtreeSubscribers = new AtomicInteger();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SubscriptionHub(EventBus bus, TaskRepository taskRepo, StoryRepository storyRepo) {
+        this(bus, taskRepo, storyRepo, DEFAULT_MAX_PENDING, DEFAULT_LINGER_MILLIS, DEFAULT_MAX_SEND_MILLIS,
+                DEFAULT_DISPATCHER_THREADS);
+    }
+
+    public SubscriptionHub(EventBus bus, TaskRepository taskRepo, StoryRepository storyRepo,
+                           int maxPending, long lingerMillis, long maxSendMillis, int dispatcherThreads) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending must be positive");
+        }
+        this.taskRepo = taskRepo;
+        this.storyRepo = storyRepo;
+        this.bus = bus;
+        this.maxPending = maxPending;
+        this.lingerMillis = lingerMillis;
+        this.maxSendMillis = maxSendMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newScheduledThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "push-dispatcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.feed = bus.subscribe(this);
+    }
+
+    public PushSubscription subscribeToUser(String userId, PushSink sink) {
+        PushSubscription subscription = register(USER + userId, sink);
+        for (Task task : taskRepo.findAllByUserId(userId)) {
+            snapshot(subscription, task);
+        }
+        return subscription;
+    }
+
+    public PushSubscription subscribeToStory(String storyId, PushSink sink) {
+        Story story = storyRepo.findById(storyId);
+        if (story == null) {
+            throw new StoryNotFoundException("Story not found with id: " + storyId);
+        }
+        PushSubscription subscription = register(STORY + storyId, sink);
+        for (String taskId : story.getTasks()) {
+            Task task = taskRepo.findById(taskId);
+            if (task != null) {
+                snapshot(subscription, task);
+            }
+        }
+        return subscription;
+    }
+
+    // The task and all of its descendants
+    public PushSubscription subscribeToSubtree(String taskId, PushSink sink) {
+        Task root = taskRepo.findById(taskId);
+        if (root == null) {
+            throw new TaskNotFoundException("Task not found with id: " + taskId);
+        }
+        subtreeSubscribers.incrementAndGet();
+        PushSubscription subscription = register(SUBTREE + taskId, sink);
+        for (Task task : subtree(root)) {
+            snapshot(subscription, task);
+        }
+        return subscription;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    // Subscribers dropped for falling behind, receiving too slowly or failing to receive
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private PushSubscription register(String topic, PushSink sink) {
+        PushSubscription subscription = new PushSubscription(this, topic, sink, maxPending, maxSendMillis);
+        topics.computeIfAbsent(topic, key -> ConcurrentHashMap.newKeySet()).add(subscription);
+        subscribers.incrementAndGet();
+        return subscription;
+    }
+
+    private void snapshot(PushSubscription subscription, Task task) {
+        subscription.offer(TaskDelta.upsert(task.getId(), task.getParentTaskId(), task.getState(), -1,
+                System.currentTimeMillis()), true);
+    }
+
+    void schedule(PushSubscription subscription) {
+        dispatcher.schedule(subscription::flush, lingerMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void drop(PushSubscription subscription, String reason) {
+        if (remove(subscription)) {
+            dropped.incrementAndGet();
+            dispatcher.execute(() -> subscription.getSink().close(reason));
+        }
+    }
+
+    boolean remove(PushSubscription subscription) {
+        boolean[] removed = new boolean[1];
+        topics.computeIfPresent(subscription.getTopic(), (key, members) -> {
+            removed[0] = members.remove(subscription);
+            return members.isEmpty() ? null : members;
+        });
+        if (removed[0]) {
+            subscribers.decrementAndGet();
+            if (subscription.getTopic().startsWith(SUBTREE)) {
+                subtreeSubscribers.decrementAndGet();
+            }
+        }
+        return removed[0];
+    }
+
+    @Override
+    public void onEvent(DomainEvent event, long sequence, boolean endOfBatch) {
+        if (topics.isEmpty()) {
+            return;
+        }
+        long time = event.getTimestamp();
+        if (event instanceof DomainEvent.TaskCreated) {
+            DomainEvent.TaskCreated created = (DomainEvent.TaskCreated) event;
+            Task task = taskRepo.findById(created.getTaskId());
+            TaskDelta delta = TaskDelta.upsert(created.getTaskId(), created.getParentTaskId(), created.getState(),
+                    sequence, time);
+            sendToUser(created.getState().getAssignedUserId(), delta);
+            sendToStories(created.getTaskId(), delta);
+            sendToAncestors(task, delta);
+        } else if (event instanceof DomainEvent.TaskUpdated) {
+            DomainEvent.TaskUpdated updated = (DomainEvent.TaskUpdated) event;
+            Task task = taskRepo.findById(updated.getTaskId());
+            TaskDelta delta = TaskDelta.upsert(updated.getTaskId(), task == null ? null : task.getParentTaskId(),
+                    updated.getState(), sequence, time);
+            sendToUser(updated.getState().getAssignedUserId(), delta);
+            sendToStories(updated.getTaskId(), delta);
+            sendToAncestors(task, delta);
+        } else if (event instanceof DomainEvent.TaskAssigned) {
+            DomainEvent.TaskAssigned assigned = (DomainEvent.TaskAssigned) event;
+            sendToUser(assigned.getOldUserId(), TaskDelta.removed(assigned.getTaskId(), sequence, time));
+            Task task = taskRepo.findById(assigned.getTaskId());
+            if (task != null) {
+                sendToUser(assigned.getNewUserId(),
+                        TaskDelta.upsert(task.getId(), task.getParentTaskId(), task.getState(), sequence, time));
+            }
+        } else if (event instanceof DomainEvent.TaskMoved) {
+            DomainEvent.TaskMoved moved = (DomainEvent.TaskMoved) event;
+            if (subtreeSubscribers.get() > 0) {
+                moved(moved, sequence, time);
+            }
+        } else if (event instanceof DomainEvent.TaskDeleted) {
+            DomainEvent.TaskDeleted deleted = (DomainEvent.TaskDeleted) event;
+            TaskDelta delta = TaskDelta.removed(deleted.getTaskId(), sequence, time);
+            sendToUser(deleted.getState().getAssignedUserId(), delta);
+            if (subtreeSubscribers.get() > 0) {
+                send(SUBTREE + deleted.getTaskId(), delta);
+                send(watching(deleted.getAncestorIds()), delta);
+            }
+        } else if (event instanceof DomainEvent.StoryTaskAdded) {
+            DomainEvent.StoryTaskAdded added = (DomainEvent.StoryTaskAdded) event;
+            Task task = taskRepo.findById(added.getTaskId());
+            if (task != null) {
+                send(STORY + added.getStoryId(),
+                        TaskDelta.upsert(task.getId(), task.getParentTaskId(), task.getState(), sequence, time));
+            }
+        } else if (event instanceof DomainEvent.StoryTaskRemoved) {
+            DomainEvent.StoryTaskRemoved removed = (DomainEvent.StoryTaskRemoved) event;
+            send(STORY + removed.getStoryId(), TaskDelta.removed(removed.getTaskId(), sequence, time));
+        }
+    }
+
+    // Subscribers above the old position lose the moved subtree; those above
+    // the new one get all of it. The positions come from the event, since the
+    // old parent may be gone by now.
+    private void moved(DomainEvent.TaskMoved moved, long sequence, long time) {
+        List<Set<PushSubscription>> leaving = watching(moved.getOldAncestorIds());
+        List<Set<PushSubscription>> joining = watching(moved.getNewAncestorIds());
+        if (leaving.isEmpty() && joining.isEmpty()) {
+            return;
+        }
+        Task task = taskRepo.findById(moved.getTaskId());
+        if (task == null) {
+            // Deleted since; the deletions tell the new position's subscribers
+            send(leaving, TaskDelta.removed(moved.getTaskId(), sequence, time));
+            return;
+        }
+        for (Task member : subtree(task)) {
+            send(leaving, TaskDelta.removed(member.getId(), sequence, time));
+            send(joining, TaskDelta.upsert(member.getId(), member.getParentTaskId(), member.getState(),
+                    sequence, time));
+        }
+    }
+
+    private List<Set<PushSubscription>> watching(List<String> taskIds) {
+        List<Set<PushSubscription>> watching = new ArrayList<>();
+        for (String taskId : taskIds) {
+            Set<PushSubscription> members = topics.get(SUBTREE + taskId);
+            if (members != null) {
+                watching.add(members);
+            }
+        }
+        return watching;
+    }
+
+    private static void send(List<Set<PushSubscription>> watching, TaskDelta delta) {
+        for (Set<PushSubscription> members : watching) {
+            for (PushSubscription subscription : members) {
+                subscription.offer(delta, false);
+            }
+        }
+    }
+
+    // The hub fell a full ring behind the bus and missed changes, so no
+    // subscriber's view can be trusted. Follow the bus again from here and close
+    // every stream; clients reconnect and start from a fresh snapshot.
+    @Override
+    public void onOverrun(long missedSequence) {
+        feed = bus.subscribe(this);
+        for (Set<PushSubscription> members : topics.values()) {
+            for (PushSubscription subscription : members) {
+                drop(subscription, "Missed changes from event " + missedSequence + "; reconnect");
+            }
+        }
+    }
+
+    // The task itself and everything above it
+    private void sendToAncestors(Task task, TaskDelta delta) {
+        if (subtreeSubscribers.get() == 0) {
+            return;
+        }
+        for (Task current = task; current != null; current = current.getParent()) {
+            send(SUBTREE + current.getId(), delta);
+        }
+    }
+
+    // Unassigned tasks have no user topic
+    private void sendToUser(String userId, TaskDelta delta) {
+        if (userId != null) {
+            send(USER + userId, delta);
+        }
+    }
+
+    private void sendToStories(String taskId, TaskDelta delta) {
+        for (String storyId : storyRepo.findStoryIdsByTaskId(taskId)) {
+            send(STORY + storyId, delta);
+        }
+    }
+
+    private void send(String topic, TaskDelta delta) {
+        Set<PushSubscription> members = topics.get(topic);
+        if (members != null) {
+            for (PushSubscription subscription : members) {
+                subscription.offer(delta, false);
+            }
+        }
+    }
+
+    private static List<Task> subtree(Task root) {
+        List<Task> result = new ArrayList<>();
+        Deque<Task> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Task task = pending.pop();
+            result.add(task);
+            for (Task child : task.getChildren()) {
+                pending.push(child);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        bus.unsubscribe(feed);
+        for (Set<PushSubscription> members : topics.values()) {
+            for (PushSubscription subscription : members) {
+                if (remove(subscription)) {
+                    subscription.discard();
+                    subscription.getSink().close("Server shutting down");
+                }
+            }
+        }
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,93 @@
+package push;
+
+import model.Task;
+import model.TaskPriority;
+import model.TaskStatus;
+
+import java.util.Date;
+
+// One task change as pushed to a subscriber. UPSERT carries the task's
+// current fields; REMOVED means the task left the subscribed view (deleted,
+// reassigned, moved out of the subtree or out of the story) together with
+// any of its subtasks in that view.
+public class TaskDelta {
+    public enum Type {
+        UPSERT,
+        REMOVED
+    }
+
+    private final Type type;
+    private final String taskId;
+    private final String parentTaskId;
+    private final Task.State state;
+    private final long sequence;
+    private final long timestamp;
+
+    TaskDelta(Type type, String taskId, String parentTaskId, Task.State state, long sequence, long timestamp) {
+        this.type = type;
+        this.taskId = taskId;
+        this.parentTaskId = parentTaskId;
+        this.state = state;
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+    }
+
+    static TaskDelta upsert(String taskId, String parentTaskId, Task.State state, long sequence, long timestamp) {
+        return new TaskDelta(Type.UPSERT, taskId, parentTaskId, state, sequence, timestamp);
+    }
+
+    static TaskDelta removed(String taskId, long sequence, long timestamp) {
+        return new TaskDelta(Type.REMOVED, taskId, null, null, sequence, timestamp);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public String getParentTaskId() {
+        return parentTaskId;
+    }
+
+    public String getTitle() {
+        return state == null ? null : state.getTitle();
+    }
+
+    public String getDescription() {
+        return state == null ? null : state.getDescription();
+    }
+
+    public Date getDeadline() {
+        return state == null ? null : state.getDeadline();
+    }
+
+    public TaskStatus getStatus() {
+        return state == null ? null : state.getStatus();
+    }
+
+    public TaskPriority getPriority() {
+        return state == null ? null : state.getPriority();
+    }
+
+    public String getAssignedUserId() {
+        return state == null ? null : state.getAssignedUserId();
+    }
+
+    // Event bus sequence of the change; -1 for the snapshot sent on subscribing
+    public long getSequence() {
+        return sequence;
+    }
+
+    // When the change happened, in epoch millis
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskDelta{" + type + " taskId='" + taskId + "', status=" + getStatus() + '}';
+    }
+}
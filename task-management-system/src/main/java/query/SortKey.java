@@ -0,0 +1,55 @@
+package query;
+
+import model.Task;
+import model.TaskPriority;
+
+import java.util.Date;
+
+// Position of a task in one sort order: a primary value, then the id
+final class SortKey implements Comparable<SortKey> {
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    final long primary;
+    final String id;
+
+    SortKey(long primary, String id) {
+        this.primary = primary;
+        this.id = id;
+    }
+
+    static SortKey of(TaskSort sort, String id, Task.State state) {
+        switch (sort) {
+            case DEADLINE:
+                return deadline(id, state.getDeadline());
+            case PRIORITY:
+                TaskPriority priority = state.getPriority();
+                return new SortKey(priority == null ? 1 : -priority.ordinal(), id);
+            default:
+                return new SortKey(0, id);
+        }
+    }
+
+    static SortKey deadline(String id, Date deadline) {
+        return new SortKey(deadline == null ? NO_DEADLINE : deadline.getTime(), id);
+    }
+
+    @Override
+    public int compareTo(SortKey other) {
+        int result = Long.compare(primary, other.primary);
+        return result != 0 ? result : id.compareTo(other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SortKey)) {
+            return false;
+        }
+        SortKey other = (SortKey) o;
+        return primary == other.primary && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(primary) * 31 + id.hashCode();
+    }
+}
@@ -0,0 +1,33 @@
+package query;
+
+import model.Task;
+import repository.TaskIndex;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Tasks kept in creation and deadline order, so a page can start at a cursor
+// and read forward without looking at anything before it
+class TaskOrderIndex implements TaskIndex {
+    final ConcurrentNavigableMap<String, Task> byId = new ConcurrentSkipListMap<>();
+    final ConcurrentNavigableMap<SortKey, Task> byDeadline = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void onSave(Task task) {
+        byId.put(task.getId(), task);
+        byDeadline.put(SortKey.deadline(task.getId(), task.getDeadline()), task);
+    }
+
+    @Override
+    public void onDelete(Task task) {
+        byId.remove(task.getId(), task);
+        byDeadline.remove(SortKey.deadline(task.getId(), task.getDeadline()), task);
+    }
+
+    @Override
+    public void onDeadlineChanged(Task task, Date oldDeadline, Date newDeadline) {
+        byDeadline.remove(SortKey.deadline(task.getId(), oldDeadline), task);
+        byDeadline.put(SortKey.deadline(task.getId(), newDeadline), task);
+    }
+}
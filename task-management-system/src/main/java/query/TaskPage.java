@@ -0,0 +1,31 @@
+package query;
+
+import model.Task;
+
+import java.util.List;
+
+public class TaskPage {
+    private final List<Task> tasks;
+    private final String nextCursor;
+    private final String plan;
+
+    public TaskPage(List<Task> tasks, String nextCursor, String plan) {
+        this.tasks = tasks;
+        this.nextCursor = nextCursor;
+        this.plan = plan;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    // Pass to TaskQuery.setCursor for the next page; null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    // How the page was produced, e.g. "assignee" or "ordered(DEADLINE)"
+    public String getPlan() {
+        return plan;
+    }
+}
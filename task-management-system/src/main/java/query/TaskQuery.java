@@ -0,0 +1,155 @@
+package query;
+
+import model.Task;
+import model.TaskPriority;
+import model.TaskStatus;
+
+import java.util.*;
+
+// Filters, order and page of a task search. Every filter left unset matches
+// all tasks; the set ones are combined with AND. Deadlines match [from, to).
+public class TaskQuery {
+    private String assigneeId;
+    private Set<TaskStatus> statuses = EnumSet.noneOf(TaskStatus.class);
+    private Set<TaskPriority> priorities = EnumSet.noneOf(TaskPriority.class);
+    private Date deadlineFrom;
+    private Date deadlineTo;
+    private String parentTaskId;
+    private String storyId;
+    private String text;
+    private TaskSort sort = TaskSort.CREATED;
+    private int limit = 50;
+    private String cursor;
+
+    public String getAssigneeId() {
+        return assigneeId;
+    }
+
+    public void setAssigneeId(String assigneeId) {
+        this.assigneeId = assigneeId;
+    }
+
+    public Set<TaskStatus> getStatuses() {
+        return statuses;
+    }
+
+    public void setStatuses(Collection<TaskStatus> statuses) {
+        this.statuses = statuses == null || statuses.isEmpty()
+                ? EnumSet.noneOf(TaskStatus.class) : EnumSet.copyOf(statuses);
+    }
+
+    public Set<TaskPriority> getPriorities() {
+        return priorities;
+    }
+
+    public void setPriorities(Collection<TaskPriority> priorities) {
+        this.priorities = priorities == null || priorities.isEmpty()
+                ? EnumSet.noneOf(TaskPriority.class) : EnumSet.copyOf(priorities);
+    }
+
+    public Date getDeadlineFrom() {
+        return deadlineFrom;
+    }
+
+    public void setDeadlineFrom(Date deadlineFrom) {
+        this.deadlineFrom = deadlineFrom;
+    }
+
+    public Date getDeadlineTo() {
+        return deadlineTo;
+    }
+
+    public void setDeadlineTo(Date deadlineTo) {
+        this.deadlineTo = deadlineTo;
+    }
+
+    public String getParentTaskId() {
+        return parentTaskId;
+    }
+
+    public void setParentTaskId(String parentTaskId) {
+        this.parentTaskId = parentTaskId;
+    }
+
+    public String getStoryId() {
+        return storyId;
+    }
+
+    public void setStoryId(String storyId) {
+        this.storyId = storyId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    // Case-insensitive substring of the title or description
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public TaskSort getSort() {
+        return sort;
+    }
+
+    public void setSort(TaskSort sort) {
+        this.sort = sort;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    // Every filter except story membership, which needs the story repository
+    boolean matches(Task task, Task.State state) {
+        if (assigneeId != null && !assigneeId.equals(state.getAssignedUserId())) {
+            return false;
+        }
+        if (!statuses.isEmpty() && !statuses.contains(state.getStatus())) {
+            return false;
+        }
+        if (!priorities.isEmpty() && !priorities.contains(state.getPriority())) {
+            return false;
+        }
+        if (deadlineFrom != null || deadlineTo != null) {
+            Date deadline = state.getDeadline();
+            if (deadline == null
+                    || (deadlineFrom != null && deadline.before(deadlineFrom))
+                    || (deadlineTo != null && !deadline.before(deadlineTo))) {
+                return false;
+            }
+        }
+        if (parentTaskId != null && !parentTaskId.equals(task.getParentTaskId())) {
+            return false;
+        }
+        if (text != null && !containsIgnoreCase(state.getTitle(), text)
+                && !containsIgnoreCase(state.getDescription(), text)) {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean containsIgnoreCase(String value, String part) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i + part.length() <= value.length(); i++) {
+            if (value.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
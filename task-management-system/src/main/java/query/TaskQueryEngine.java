@@ -0,0 +1,214 @@
+package query;
+
+import exception.StoryNotFoundException;
+import model.Story;
+import model.Task;
+import repository.ColumnarTaskStore;
+import repository.StoryRepository;
+import repository.TaskRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Answers TaskQuery pages without scanning every task. The planner estimates
+// how many tasks each available access path yields and picks the cheapest:
+//
+//   assignee / parent / story  the task list of that one entity
+//   bitmap                     status and priority posting bitmaps ANDed, then
+//                              narrowed by the deadline column
+//   ordered                    walk the creation or deadline index forward
+//                              from the cursor, stopping once the page is full
+//
+// Candidate plans filter their tasks and keep the page with a bounded heap of
+// keys after the cursor; the ordered plan reads only up to the page it returns.
+// Either way a page costs the same however deep it is.
+public class TaskQueryEngine {
+    static final int MAX_LIMIT = 1000;
+
+    private final TaskRepository taskRepo;
+    private final StoryRepository storyRepo;
+    private final ColumnarTaskStore columns;
+    private final TaskOrderIndex order = new TaskOrderIndex();
+
+    public TaskQueryEngine(TaskRepository taskRepo, StoryRepository storyRepo) {
+        this.taskRepo = taskRepo;
+        this.storyRepo = storyRepo;
+        this.columns = taskRepo.getColumns();
+        taskRepo.addIndex(order);
+    }
+
+    public TaskPage find(TaskQuery query) {
+        if (query.getLimit() < 1 || query.getLimit() > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        TaskSort sort = query.getSort() != null ? query.getSort() : TaskSort.CREATED;
+        SortKey after = decodeCursor(sort, query.getCursor());
+        Set<String> members = null;
+        if (query.getStoryId() != null) {
+            Story story = storyRepo.findById(query.getStoryId());
+            if (story == null) {
+                throw new StoryNotFoundException("Story not found with id: " + query.getStoryId());
+            }
+            members = new HashSet<>(story.getTasks());
+        }
+
+        // Cheapest candidate source
+        String plan = "bitmap";
+        long candidates = columns.estimate(query.getStatuses(), query.getPriorities());
+        if (query.getAssigneeId() != null && taskRepo.countByUserId(query.getAssigneeId()) < candidates) {
+            plan = "assignee";
+            candidates = taskRepo.countByUserId(query.getAssigneeId());
+        }
+        Task parent = query.getParentTaskId() != null ? taskRepo.findById(query.getParentTaskId()) : null;
+        if (query.getParentTaskId() != null && (parent == null ? 0 : parent.getChildren().size()) < candidates) {
+            plan = "parent";
+            candidates = parent == null ? 0 : parent.getChildren().size();
+        }
+        if (members != null && members.size() < candidates) {
+            plan = "story";
+            candidates = members.size();
+        }
+
+        // An ordered walk expects to read total / matches tasks per result; the
+        // candidate plans read all their candidates
+        int total = Math.max(1, taskRepo.count());
+        if (sort != TaskSort.PRIORITY && candidates > 0) {
+            double orderedCost = (query.getLimit() + 1.0) * total / candidates;
+            if (orderedCost < candidates) {
+                return ordered(query, sort, after, members);
+            }
+        }
+
+        Collection<Task> source;
+        switch (plan) {
+            case "assignee":
+                source = taskRepo.findAllByUserId(query.getAssigneeId());
+                break;
+            case "parent":
+                source = parent == null ? Collections.emptyList() : parent.getChildren();
+                break;
+            case "story":
+                source = new ArrayList<>();
+                for (String taskId : members) {
+                    Task task = taskRepo.findById(taskId);
+                    if (task != null) {
+                        source.add(task);
+                    }
+                }
+                break;
+            default:
+                source = columns.tasksAt(columns.slots(query.getStatuses(), query.getPriorities(),
+                        query.getDeadlineFrom(), query.getDeadlineTo()));
+        }
+        return topK(query, sort, after, members, source, plan);
+    }
+
+    // Keeps the limit + 1 smallest keys after the cursor; the extra one tells whether there is a next page
+    private TaskPage topK(TaskQuery query, TaskSort sort, SortKey after, Set<String> members,
+                          Collection<Task> source, String plan) {
+        int keep = query.getLimit() + 1;
+        PriorityQueue<Map.Entry<SortKey, Task>> heap =
+                new PriorityQueue<>(keep, (a, b) -> b.getKey().compareTo(a.getKey()));
+        for (Task task : source) {
+            Task.State state = task.getState();
+            if (!accept(query, members, task, state)) {
+                continue;
+            }
+            SortKey key = SortKey.of(sort, task.getId(), state);
+            if (after != null && key.compareTo(after) <= 0) {
+                continue;
+            }
+            if (heap.size() < keep) {
+                heap.add(new AbstractMap.SimpleImmutableEntry<>(key, task));
+            } else if (key.compareTo(heap.peek().getKey()) < 0) {
+                heap.poll();
+                heap.add(new AbstractMap.SimpleImmutableEntry<>(key, task));
+            }
+        }
+        List<Map.Entry<SortKey, Task>> sorted = new ArrayList<>(heap);
+        sorted.sort(Map.Entry.comparingByKey());
+        return page(query, sort, sorted, plan);
+    }
+
+    private TaskPage ordered(TaskQuery query, TaskSort sort, SortKey after, Set<String> members) {
+        Iterator<Map.Entry<SortKey, Task>> walk;
+        if (sort == TaskSort.DEADLINE) {
+            SortKey start = after;
+            if (query.getDeadlineFrom() != null) {
+                SortKey from = new SortKey(query.getDeadlineFrom().getTime(), "");
+                start = start == null || start.compareTo(from) < 0 ? from : start;
+            }
+            walk = (start == null ? order.byDeadline : order.byDeadline.tailMap(start, false)).entrySet().iterator();
+        } else {
+            Iterator<Map.Entry<String, Task>> ids = (after == null ? order.byId : order.byId.tailMap(after.id, false))
+                    .entrySet().iterator();
+            walk = new Iterator<Map.Entry<SortKey, Task>>() {
+                @Override
+                public boolean hasNext() {
+                    return ids.hasNext();
+                }
+
+                @Override
+                public Map.Entry<SortKey, Task> next() {
+                    Map.Entry<String, Task> entry = ids.next();
+                    return new AbstractMap.SimpleImmutableEntry<>(new SortKey(0, entry.getKey()), entry.getValue());
+                }
+            };
+        }
+
+        int keep = query.getLimit() + 1;
+        long deadlineTo = query.getDeadlineTo() != null ? query.getDeadlineTo().getTime() : Long.MAX_VALUE;
+        List<Map.Entry<SortKey, Task>> results = new ArrayList<>(keep);
+        while (walk.hasNext() && results.size() < keep) {
+            Map.Entry<SortKey, Task> entry = walk.next();
+            if (sort == TaskSort.DEADLINE && entry.getKey().primary >= deadlineTo) {
+                break;
+            }
+            Task task = entry.getValue();
+            Task.State state = task.getState();
+            // Entries may trail a concurrent change; only emit tasks whose current key matches
+            if (accept(query, members, task, state) && SortKey.of(sort, task.getId(), state).equals(entry.getKey())) {
+                results.add(entry);
+            }
+        }
+        return page(query, sort, results, "ordered(" + sort + ")");
+    }
+
+    // Every source only yields saved tasks, so there is no need to look each one up again
+    private boolean accept(TaskQuery query, Set<String> members, Task task, Task.State state) {
+        return query.matches(task, state) && (members == null || members.contains(task.getId()));
+    }
+
+    private TaskPage page(TaskQuery query, TaskSort sort, List<Map.Entry<SortKey, Task>> results, String plan) {
+        boolean more = results.size() > query.getLimit();
+        List<Map.Entry<SortKey, Task>> page = more ? results.subList(0, query.getLimit()) : results;
+        List<Task> tasks = new ArrayList<>(page.size());
+        for (Map.Entry<SortKey, Task> entry : page) {
+            tasks.add(entry.getValue());
+        }
+        String nextCursor = more ? encodeCursor(sort, page.get(page.size() - 1).getKey()) : null;
+        return new TaskPage(tasks, nextCursor, plan);
+    }
+
+    // A cursor is the key of the last task on the previous page, tagged with its sort
+    private static String encodeCursor(TaskSort sort, SortKey key) {
+        String raw = sort.name() + ":" + key.primary + ":" + key.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SortKey decodeCursor(TaskSort sort, String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length == 3 && parts[0].equals(sort.name())) {
+                return new SortKey(Long.parseLong(parts[1]), parts[2]);
+            }
+        } catch (IllegalArgumentException e) {
+            // Falls through to the error below
+        }
+        throw new IllegalArgumentException("Invalid cursor for sort " + sort);
+    }
+}
@@ -0,0 +1,9 @@
+package query;
+
+// Result orders. Ties are broken by task id, which for generated ids is creation order.
+public enum TaskSort {
+    CREATED,
+    DEADLINE,
+    // Highest priority first
+    PRIORITY
+}
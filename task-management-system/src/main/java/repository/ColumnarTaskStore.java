@@ -0,0 +1,585 @@
+package repository;
+
+import model.Task;
+import model.TaskPriority;
+import model.TaskStatus;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Column-oriented copy of the fields analytics queries read, kept in parallel
+// primitive arrays so aggregations are plain loops over contiguous memory
+// instead of pointer chasing through Task objects.
+//
+// Every task gets a slot; slots of deleted tasks are marked dead and reused.
+// Status and priority are stored as ordinal + 1 so that 0 means dead/none and
+// loops can index counter arrays without branching. Assignees and parents are
+// stored as int ids: parents as their slot, assignees through a dictionary.
+// Per-status and per-priority bitmaps over slots serve as posting lists for
+// queries; slots resolve back to tasks through the task column.
+//
+// Writes don't serialize on the store. Every callback arrives holding the
+// task's stripe lock, so each slot has one writer at a time; columns are
+// written in place and bitmap words updated with CAS. The lock below is held
+// exclusively only to grow the arrays (and for the rare fix-up of other tasks'
+// parent pointers); writers and aggregations share it. An aggregation may
+// therefore see a task half way through a change, as with any unlocked read.
+public class ColumnarTaskStore implements TaskIndex {
+    private static final byte NONE = 0;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+    // Indexed by stored status; true for statuses that can still become overdue
+    private static final boolean[] OPEN = new boolean[STATUSES.length + 1];
+
+    static {
+        for (TaskStatus status : STATUSES) {
+            OPEN[status.ordinal() + 1] = status != TaskStatus.COMPLETED && status != TaskStatus.CANCELLED;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> slotByTaskId = new ConcurrentHashMap<>();
+    private final Map<String, Integer> assigneeIds = new ConcurrentHashMap<>();
+    // Appended under its own monitor, before the id is published in assigneeIds
+    private final List<String> assignees = new CopyOnWriteArrayList<>();
+    // Guards the free list and the slot count
+    private final Object slotLock = new Object();
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private volatile int size;
+    private int capacity = INITIAL_CAPACITY;
+
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private byte[] priorities = new byte[INITIAL_CAPACITY];
+    private long[] deadlines = new long[INITIAL_CAPACITY];
+    private int[] assigneeOf = new int[INITIAL_CAPACITY];
+    private int[] parentOf = new int[INITIAL_CAPACITY];
+    private Task[] taskAt = new Task[INITIAL_CAPACITY];
+
+    private final SlotBits live = new SlotBits(INITIAL_CAPACITY);
+    private final SlotBits[] statusBits = newBitSets(STATUSES.length);
+    private final SlotBits[] priorityBits = newBitSets(PRIORITIES.length);
+
+    @Override
+    public void onSave(Task task) {
+        // Called with the task's lock held, so its state can't change while it
+        // is copied in
+        List<Task> children = task.getChildren();
+        Task.State state = task.getState();
+        int slot = allocate();
+        int assignee = assigneeId(state.getAssignedUserId());
+        lock.readLock().lock();
+        try {
+            statuses[slot] = status(state.getStatus());
+            priorities[slot] = priority(state.getPriority());
+            deadlines[slot] = deadline(state.getDeadline());
+            assigneeOf[slot] = assignee;
+            parentOf[slot] = slotOf(task.getParentTaskId());
+            taskAt[slot] = task;
+            statusBits[state.getStatus().ordinal()].set(slot);
+            if (state.getPriority() != null) {
+                priorityBits[state.getPriority().ordinal()].set(slot);
+            }
+            live.set(slot);
+            slotByTaskId.put(task.getId(), slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (children.isEmpty()) {
+            return;
+        }
+        // Children saved before their parent (e.g. on recovery) point at it now.
+        // Their slots are written under their own task locks, so exclude those writers.
+        lock.writeLock().lock();
+        try {
+            for (Task child : children) {
+                Integer childSlot = slotByTaskId.get(child.getId());
+                if (childSlot != null) {
+                    parentOf[childSlot] = slot;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDelete(Task task) {
+        List<Task> children = task.getChildren();
+        Integer slot = slotByTaskId.remove(task.getId());
+        if (slot == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            live.clear(slot);
+            clearBit(statusBits, statuses[slot], slot);
+            clearBit(priorityBits, priorities[slot], slot);
+            taskAt[slot] = null;
+            statuses[slot] = NONE;
+            priorities[slot] = NONE;
+            deadlines[slot] = NO_DEADLINE;
+            assigneeOf[slot] = -1;
+            parentOf[slot] = -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!children.isEmpty()) {
+            // The slot will be reused, so surviving children must not keep pointing at it
+            lock.writeLock().lock();
+            try {
+                for (Task child : children) {
+                    Integer childSlot = slotByTaskId.get(child.getId());
+                    if (childSlot != null && parentOf[childSlot] == slot) {
+                        parentOf[childSlot] = -1;
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        free(slot);
+    }
+
+    @Override
+    public void onAssigneeChanged(Task task, String oldUserId, String newUserId) {
+        int assignee = assigneeId(newUserId);
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByTaskId.get(task.getId());
+            if (slot != null) {
+                assigneeOf[slot] = assignee;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onStatusChanged(Task task, TaskStatus oldStatus, TaskStatus newStatus) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByTaskId.get(task.getId());
+            if (slot != null) {
+                clearBit(statusBits, statuses[slot], slot);
+                statuses[slot] = status(newStatus);
+                statusBits[newStatus.ordinal()].set(slot);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onPriorityChanged(Task task, TaskPriority oldPriority, TaskPriority newPriority) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByTaskId.get(task.getId());
+            if (slot != null) {
+                clearBit(priorityBits, priorities[slot], slot);
+                priorities[slot] = priority(newPriority);
+                if (newPriority != null) {
+                    priorityBits[newPriority.ordinal()].set(slot);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onParentChanged(Task task, String oldParentTaskId, String newParentTaskId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByTaskId.get(task.getId());
+            if (slot != null) {
+                parentOf[slot] = slotOf(newParentTaskId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeadlineChanged(Task task, Date oldDeadline, Date newDeadline) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByTaskId.get(task.getId());
+            if (slot != null) {
+                deadlines[slot] = deadline(newDeadline);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int count() {
+        return slotByTaskId.size();
+    }
+
+    public Map<TaskStatus, Integer> countByStatus() {
+        int[] counts = new int[STATUSES.length + 1];
+        lock.readLock().lock();
+        try {
+            byte[] column = statuses;
+            for (int i = 0, n = size; i < n; i++) {
+                counts[column[i]]++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toStatusMap(counts);
+    }
+
+    public Map<TaskStatus, Integer> countByStatus(String userId) {
+        int[] counts = new int[STATUSES.length + 1];
+        lock.readLock().lock();
+        try {
+            Integer assignee = assigneeIds.get(userId);
+            if (assignee != null) {
+                int id = assignee;
+                byte[] column = statuses;
+                int[] owners = assigneeOf;
+                for (int i = 0, n = size; i < n; i++) {
+                    counts[column[i]] += owners[i] == id ? 1 : 0;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toStatusMap(counts);
+    }
+
+    public Map<TaskPriority, Integer> countByPriority() {
+        int[] counts = new int[PRIORITIES.length + 1];
+        lock.readLock().lock();
+        try {
+            byte[] column = priorities;
+            for (int i = 0, n = size; i < n; i++) {
+                counts[column[i]]++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<TaskPriority, Integer> result = new EnumMap<>(TaskPriority.class);
+        for (TaskPriority priority : PRIORITIES) {
+            result.put(priority, counts[priority.ordinal() + 1]);
+        }
+        return result;
+    }
+
+    // Live tasks per assignee; unassigned tasks are not counted
+    public Map<String, Integer> countByAssignee() {
+        Map<String, Integer> result = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            // Assignees first seen during the loop are left for the next call
+            int known = assignees.size();
+            int[] counts = new int[known + 1];
+            byte[] column = statuses;
+            int[] owners = assigneeOf;
+            for (int i = 0, n = size; i < n; i++) {
+                // Dead slots and unassigned tasks land in counts[0]
+                int owner = column[i] == NONE ? -1 : owners[i];
+                counts[owner < known ? owner + 1 : 0]++;
+            }
+            for (int id = 0; id < known; id++) {
+                if (counts[id + 1] > 0) {
+                    result.put(assignees.get(id), counts[id + 1]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Tasks past their deadline that are not completed or cancelled
+    public int countOverdue(long nowMillis) {
+        int count = 0;
+        lock.readLock().lock();
+        try {
+            byte[] column = statuses;
+            long[] due = deadlines;
+            for (int i = 0, n = size; i < n; i++) {
+                count += due[i] < nowMillis & OPEN[column[i]] ? 1 : 0;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return count;
+    }
+
+    public int countOverdue(String userId, long nowMillis) {
+        int count = 0;
+        lock.readLock().lock();
+        try {
+            Integer assignee = assigneeIds.get(userId);
+            if (assignee == null) {
+                return 0;
+            }
+            int id = assignee;
+            byte[] column = statuses;
+            long[] due = deadlines;
+            int[] owners = assigneeOf;
+            for (int i = 0, n = size; i < n; i++) {
+                count += due[i] < nowMillis & OPEN[column[i]] & owners[i] == id ? 1 : 0;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return count;
+    }
+
+    public int countSubtasks() {
+        int count = 0;
+        lock.readLock().lock();
+        try {
+            byte[] column = statuses;
+            int[] parents = parentOf;
+            for (int i = 0, n = size; i < n; i++) {
+                count += parents[i] >= 0 & column[i] != NONE ? 1 : 0;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return count;
+    }
+
+    // Slots of live tasks matching every given constraint; an empty set or a
+    // null bound leaves that field unconstrained. Deadlines are [from, to).
+    public BitSet slots(Set<TaskStatus> statusFilter, Set<TaskPriority> priorityFilter, Date from, Date to) {
+        lock.readLock().lock();
+        try {
+            BitSet result = union(statusBits, statusFilter);
+            if (priorityFilter != null && !priorityFilter.isEmpty()) {
+                result.and(union(priorityBits, priorityFilter));
+            }
+            if (from != null || to != null) {
+                long low = from != null ? from.getTime() : Long.MIN_VALUE;
+                long high = to != null ? to.getTime() : NO_DEADLINE;
+                long[] due = deadlines;
+                for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+                    if (due[i] < low || due[i] >= high) {
+                        result.clear(i);
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Upper bound on the tasks slots() would return for these filters, without materializing them
+    public int estimate(Set<TaskStatus> statusFilter, Set<TaskPriority> priorityFilter) {
+        lock.readLock().lock();
+        try {
+            int statusCount = statusFilter == null || statusFilter.isEmpty()
+                    ? live.cardinality() : cardinality(statusBits, statusFilter);
+            if (priorityFilter == null || priorityFilter.isEmpty()) {
+                return statusCount;
+            }
+            return Math.min(statusCount, cardinality(priorityBits, priorityFilter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The tasks currently in the given slots. A slot freed and reused since the
+    // bitmap was taken resolves to its new task, so callers recheck their filters.
+    public List<Task> tasksAt(BitSet slots) {
+        List<Task> result = new ArrayList<>(slots.cardinality());
+        lock.readLock().lock();
+        try {
+            for (int i = slots.nextSetBit(0), n = size; i >= 0 && i < n; i = slots.nextSetBit(i + 1)) {
+                Task task = taskAt[i];
+                if (task != null) {
+                    result.add(task);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private <E extends Enum<E>> BitSet union(SlotBits[] bits, Set<E> filter) {
+        if (filter == null || filter.isEmpty()) {
+            return live.toBitSet();
+        }
+        BitSet result = new BitSet();
+        for (E value : filter) {
+            result.or(bits[value.ordinal()].toBitSet());
+        }
+        return result;
+    }
+
+    private static <E extends Enum<E>> int cardinality(SlotBits[] bits, Set<E> filter) {
+        int count = 0;
+        for (E value : filter) {
+            count += bits[value.ordinal()].cardinality();
+        }
+        return count;
+    }
+
+    private static SlotBits[] newBitSets(int count) {
+        SlotBits[] bits = new SlotBits[count];
+        for (int i = 0; i < count; i++) {
+            bits[i] = new SlotBits(INITIAL_CAPACITY);
+        }
+        return bits;
+    }
+
+    // Stored values are ordinal + 1, with NONE for no value
+    private static void clearBit(SlotBits[] bits, byte stored, int slot) {
+        if (stored != NONE) {
+            bits[stored - 1].clear(slot);
+        }
+    }
+
+    private Map<TaskStatus, Integer> toStatusMap(int[] counts) {
+        Map<TaskStatus, Integer> result = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : STATUSES) {
+            result.put(status, counts[status.ordinal() + 1]);
+        }
+        return result;
+    }
+
+    private int allocate() {
+        synchronized (slotLock) {
+            if (freeCount > 0) {
+                return freeSlots[--freeCount];
+            }
+            if (size == capacity) {
+                grow(capacity * 2);
+            }
+            return size++;
+        }
+    }
+
+    private void free(int slot) {
+        synchronized (slotLock) {
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    // The only time writers wait for each other: the arrays are replaced, so
+    // nobody may be writing into the old ones
+    private void grow(int newCapacity) {
+        lock.writeLock().lock();
+        try {
+            statuses = Arrays.copyOf(statuses, newCapacity);
+            priorities = Arrays.copyOf(priorities, newCapacity);
+            deadlines = Arrays.copyOf(deadlines, newCapacity);
+            assigneeOf = Arrays.copyOf(assigneeOf, newCapacity);
+            parentOf = Arrays.copyOf(parentOf, newCapacity);
+            taskAt = Arrays.copyOf(taskAt, newCapacity);
+            live.grow(newCapacity);
+            for (SlotBits bits : statusBits) {
+                bits.grow(newCapacity);
+            }
+            for (SlotBits bits : priorityBits) {
+                bits.grow(newCapacity);
+            }
+            capacity = newCapacity;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int slotOf(String taskId) {
+        Integer slot = taskId != null ? slotByTaskId.get(taskId) : null;
+        return slot != null ? slot : -1;
+    }
+
+    private int assigneeId(String userId) {
+        if (userId == null) {
+            return -1;
+        }
+        Integer id = assigneeIds.get(userId);
+        if (id != null) {
+            return id;
+        }
+        synchronized (assignees) {
+            id = assigneeIds.get(userId);
+            if (id == null) {
+                id = assignees.size();
+                assignees.add(userId);
+                assigneeIds.put(userId, id);
+            }
+            return id;
+        }
+    }
+
+    private static byte status(TaskStatus status) {
+        return (byte) (status.ordinal() + 1);
+    }
+
+    private static byte priority(TaskPriority priority) {
+        return priority != null ? (byte) (priority.ordinal() + 1) : NONE;
+    }
+
+    private static long deadline(Date deadline) {
+        return deadline != null ? deadline.getTime() : NO_DEADLINE;
+    }
+
+    // A posting list over slots. Bits are set and cleared with CAS, so writers
+    // of different slots that share a word don't lose each other's changes.
+    // Grows with the columns, under the store's write lock.
+    private static final class SlotBits {
+        private AtomicLongArray words;
+
+        SlotBits(int capacity) {
+            words = new AtomicLongArray(wordsFor(capacity));
+        }
+
+        void set(int slot) {
+            words.getAndAccumulate(slot >>> 6, 1L << slot, (word, bit) -> word | bit);
+        }
+
+        void clear(int slot) {
+            words.getAndAccumulate(slot >>> 6, ~(1L << slot), (word, mask) -> word & mask);
+        }
+
+        int cardinality() {
+            AtomicLongArray current = words;
+            int count = 0;
+            for (int i = 0; i < current.length(); i++) {
+                count += Long.bitCount(current.get(i));
+            }
+            return count;
+        }
+
+        BitSet toBitSet() {
+            AtomicLongArray current = words;
+            long[] copy = new long[current.length()];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = current.get(i);
+            }
+            return BitSet.valueOf(copy);
+        }
+
+        void grow(int capacity) {
+            AtomicLongArray grown = new AtomicLongArray(wordsFor(capacity));
+            for (int i = 0; i < words.length(); i++) {
+                grown.set(i, words.get(i));
+            }
+            words = grown;
+        }
+
+        private static int wordsFor(int capacity) {
+            return (capacity + 63) >>> 6;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package repository;
+
+import model.Task;
+import model.TaskStatus;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Open tasks (not completed or cancelled) that have a deadline, ordered by
+// deadline then id, both across the system and per assignee. Overdue and
+// due-soon lookups read a range of the skip list instead of every task.
+public class DeadlineIndex implements TaskIndex {
+    private final ConcurrentNavigableMap<Key, Task> byDeadline = new ConcurrentSkipListMap<>();
+    private final Map<String, ConcurrentNavigableMap<Key, Task>> byUser = new ConcurrentHashMap<>();
+
+    public static boolean isOpen(TaskStatus status) {
+        return status != TaskStatus.COMPLETED && status != TaskStatus.CANCELLED;
+    }
+
+    // Open tasks due before asOf, earliest first
+    public List<Task> findOverdue(Date asOf, int limit) {
+        return first(byDeadline.headMap(new Key(asOf.getTime(), ""), false), limit);
+    }
+
+    // Open tasks due in [from, to), earliest first
+    public List<Task> findDueBetween(Date from, Date to, int limit) {
+        return first(byDeadline.subMap(new Key(from.getTime(), ""), true, new Key(to.getTime(), ""), false), limit);
+    }
+
+    // The user's next open tasks due at or after the given time
+    public List<Task> findNextByUser(String userId, Date after, int limit) {
+        ConcurrentNavigableMap<Key, Task> tasks = byUser.get(userId);
+        if (tasks == null) {
+            return new ArrayList<>();
+        }
+        return first(tasks.tailMap(new Key(after.getTime(), ""), true), limit);
+    }
+
+    private static List<Task> first(Map<Key, Task> range, int limit) {
+        List<Task> result = new ArrayList<>(Math.min(limit, 64));
+        for (Task task : range.values()) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(task);
+        }
+        return result;
+    }
+
+    @Override
+    public void onSave(Task task) {
+        Task.State state = task.getState();
+        if (isOpen(state.getStatus())) {
+            add(task, state.getDeadline(), state.getAssignedUserId());
+        }
+    }
+
+    @Override
+    public void onDelete(Task task) {
+        Task.State state = task.getState();
+        remove(task, state.getDeadline(), state.getAssignedUserId());
+    }
+
+    @Override
+    public void onStatusChanged(Task task, TaskStatus oldStatus, TaskStatus newStatus) {
+        if (isOpen(oldStatus) == isOpen(newStatus)) {
+            return;
+        }
+        Task.State state = task.getState();
+        if (isOpen(newStatus)) {
+            add(task, state.getDeadline(), state.getAssignedUserId());
+        } else {
+            remove(task, state.getDeadline(), state.getAssignedUserId());
+        }
+    }
+
+    // The state already holds the new status when a write changes both, and
+    // onStatusChanged only sees the new deadline, so the old key goes here
+    // whatever the status is
+    @Override
+    public void onDeadlineChanged(Task task, Date oldDeadline, Date newDeadline) {
+        Task.State state = task.getState();
+        remove(task, oldDeadline, state.getAssignedUserId());
+        if (isOpen(state.getStatus())) {
+            add(task, newDeadline, state.getAssignedUserId());
+        }
+    }
+
+    @Override
+    public void onAssigneeChanged(Task task, String oldUserId, String newUserId) {
+        Task.State state = task.getState();
+        if (isOpen(state.getStatus()) && state.getDeadline() != null) {
+            Key key = new Key(state.getDeadline().getTime(), task.getId());
+            removeForUser(oldUserId, key, task);
+            addForUser(newUserId, key, task);
+        }
+    }
+
+    private void add(Task task, Date deadline, String userId) {
+        if (deadline != null) {
+            Key key = new Key(deadline.getTime(), task.getId());
+            byDeadline.put(key, task);
+            addForUser(userId, key, task);
+        }
+    }
+
+    private void remove(Task task, Date deadline, String userId) {
+        if (deadline != null) {
+            Key key = new Key(deadline.getTime(), task.getId());
+            byDeadline.remove(key, task);
+            removeForUser(userId, key, task);
+        }
+    }
+
+    private void addForUser(String userId, Key key, Task task) {
+        if (userId != null) {
+            byUser.compute(userId, (k, tasks) -> {
+                ConcurrentNavigableMap<Key, Task> bucket = tasks != null ? tasks : new ConcurrentSkipListMap<>();
+                bucket.put(key, task);
+                return bucket;
+            });
+        }
+    }
+
+    private void removeForUser(String userId, Key key, Task task) {
+        if (userId != null) {
+            byUser.computeIfPresent(userId, (k, tasks) -> {
+                tasks.remove(key, task);
+                return tasks.isEmpty() ? null : tasks;
+            });
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        final long deadline;
+        final String taskId;
+
+        Key(long deadline, String taskId) {
+            this.deadline = deadline;
+            this.taskId = taskId;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int result = Long.compare(deadline, other.deadline);
+            return result != 0 ? result : taskId.compareTo(other.taskId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && compareTo((Key) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(deadline) * 31 + taskId.hashCode();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package repository;
+
+import model.Story;
+
+// A derived view over StoryRepository, kept up to date as stories are saved and their tasks change
+public interface StoryIndex {
+    void onSave(Story story);
+
+    void onTaskAdded(Story story, String taskId);
+
+    void onTaskRemoved(Story story, String taskId);
+}
@@ -0,0 +1,157 @@
+package repository;
+
+import model.Story;
+import model.StoryProgress;
+import model.Task;
+import model.TaskStatus;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-story status counters, updated as member tasks are added, change status
+// or are deleted, so progress reads don't touch the tasks. A deleted task is
+// also taken out of every story that contained it.
+//
+// Each rollup remembers the status it counted for every member and recounts a
+// member from its current status on every event, so events arriving out of
+// order (a status change racing the task being added) still converge.
+public class StoryProgressIndex implements TaskIndex, StoryIndex {
+    private final TaskRepository taskRepo;
+    private final StoryRepository storyRepo;
+    private final Map<String, Rollup> rollups = new ConcurrentHashMap<>();
+
+    public StoryProgressIndex(TaskRepository taskRepo, StoryRepository storyRepo) {
+        this.taskRepo = taskRepo;
+        this.storyRepo = storyRepo;
+    }
+
+    public StoryProgress getProgress(String storyId) {
+        Rollup rollup = rollups.get(storyId);
+        return rollup == null ? null : rollup.progress(storyId);
+    }
+
+    // Remaining tasks at the end of each day on which the number changed
+    public SortedMap<LocalDate, Integer> getBurndown(String storyId) {
+        Rollup rollup = rollups.get(storyId);
+        return rollup == null ? null : rollup.burndown();
+    }
+
+    @Override
+    public void onSave(Story story) {
+        Rollup rollup = rollups.computeIfAbsent(story.getId(), id -> new Rollup());
+        for (String taskId : story.getTasks()) {
+            Task task = taskRepo.findById(taskId);
+            if (task != null) {
+                rollup.count(task, true);
+            }
+        }
+    }
+
+    @Override
+    public void onTaskAdded(Story story, String taskId) {
+        Rollup rollup = rollups.get(story.getId());
+        Task task = taskRepo.findById(taskId);
+        if (rollup != null && task != null) {
+            rollup.count(task, true);
+        }
+    }
+
+    @Override
+    public void onTaskRemoved(Story story, String taskId) {
+        Rollup rollup = rollups.get(story.getId());
+        if (rollup != null) {
+            rollup.uncount(taskId);
+        }
+    }
+
+    @Override
+    public void onSave(Task task) {
+        // Tasks added to a story before they were saved
+        for (Rollup rollup : rollupsOf(task.getId())) {
+            rollup.count(task, true);
+        }
+    }
+
+    @Override
+    public void onDelete(Task task) {
+        if (taskRepo.findById(task.getId()) != null) {
+            // Replaced by a task with the same id; its onSave recounts it
+            return;
+        }
+        for (String storyId : new ArrayList<>(storyRepo.findStoryIdsByTaskId(task.getId()))) {
+            Story story = storyRepo.findById(storyId);
+            if (story != null) {
+                story.removeTask(task.getId());
+            }
+        }
+    }
+
+    @Override
+    public void onStatusChanged(Task task, TaskStatus oldStatus, TaskStatus newStatus) {
+        for (Rollup rollup : rollupsOf(task.getId())) {
+            rollup.count(task, false);
+        }
+    }
+
+    private List<Rollup> rollupsOf(String taskId) {
+        Set<String> storyIds = storyRepo.findStoryIdsByTaskId(taskId);
+        if (storyIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Rollup> result = new ArrayList<>(storyIds.size());
+        for (String storyId : storyIds) {
+            Rollup rollup = rollups.get(storyId);
+            if (rollup != null) {
+                result.add(rollup);
+            }
+        }
+        return result;
+    }
+
+    private static final class Rollup {
+        private final Map<String, TaskStatus> counted = new HashMap<>();
+        private final int[] counts = new int[TaskStatus.values().length];
+        private final TreeMap<LocalDate, Integer> remainingByDay = new TreeMap<>();
+
+        // Adding a member is only done by membership events; a status event
+        // for a task this story no longer counts is ignored
+        synchronized void count(Task task, boolean add) {
+            if (!add && !counted.containsKey(task.getId())) {
+                return;
+            }
+            TaskStatus status = task.getStatus();
+            TaskStatus previous = counted.put(task.getId(), status);
+            if (previous == status) {
+                return;
+            }
+            if (previous != null) {
+                counts[previous.ordinal()]--;
+            }
+            counts[status.ordinal()]++;
+            sample();
+        }
+
+        synchronized void uncount(String taskId) {
+            TaskStatus previous = counted.remove(taskId);
+            if (previous != null) {
+                counts[previous.ordinal()]--;
+                sample();
+            }
+        }
+
+        private void sample() {
+            int remaining = counted.size() - counts[TaskStatus.COMPLETED.ordinal()]
+                    - counts[TaskStatus.CANCELLED.ordinal()];
+            remainingByDay.put(LocalDate.now(), remaining);
+        }
+
+        synchronized StoryProgress progress(String storyId) {
+            return new StoryProgress(storyId, counts);
+        }
+
+        synchronized SortedMap<LocalDate, Integer> burndown() {
+            return new TreeMap<>(remainingByDay);
+        }
+    }
+}
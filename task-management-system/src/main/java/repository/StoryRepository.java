@@ -1,14 +1,37 @@
 package repository;
 
 import model.Story;
+import model.StoryListener;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-public class StoryRepository {
-    private final Map<String, Story> stories = new HashMap<>();
+public class StoryRepository implements StoryListener {
+    private final Map<String, Story> stories = new ConcurrentHashMap<>();
+    // task id -> ids of the stories containing it
+    private final Map<String, Set<String>> storyIdsByTaskId = new ConcurrentHashMap<>();
+    private final List<StoryIndex> indexes = new CopyOnWriteArrayList<>();
+
+    public void addIndex(StoryIndex index) {
+        indexes.add(index);
+        for (Story story : stories.values()) {
+            index.onSave(story);
+        }
+    }
 
     public void save(Story story) {
-        stories.put(story.getId(), story);
+        Story previous = stories.put(story.getId(), story);
+        if (previous == story) {
+            return;
+        }
+        story.setListener(this);
+        for (String taskId : story.getTasks()) {
+            indexTask(story.getId(), taskId);
+        }
+        for (StoryIndex index : indexes) {
+            index.onSave(story);
+        }
     }
 
     public Story findById(String id) {
@@ -16,6 +39,61 @@ public class StoryRepository {
     }
 
     public Collection<Story> findAll() {
-        return stories.values();
+        return Collections.unmodifiableCollection(stories.values());
+    }
+
+    public Set<String> findStoryIdsByTaskId(String taskId) {
+        Set<String> storyIds = storyIdsByTaskId.get(taskId);
+        return storyIds != null ? Collections.unmodifiableSet(storyIds) : Collections.emptySet();
+    }
+
+    // Union of the stories containing any of the given tasks, in first-seen order
+    public List<Story> findAllByTaskIds(Collection<String> taskIds) {
+        Set<String> storyIds = new LinkedHashSet<>();
+        for (String taskId : taskIds) {
+            Set<String> ids = storyIdsByTaskId.get(taskId);
+            if (ids != null) {
+                storyIds.addAll(ids);
+            }
+        }
+        List<Story> result = new ArrayList<>(storyIds.size());
+        for (String storyId : storyIds) {
+            Story story = stories.get(storyId);
+            if (story != null) {
+                result.add(story);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void onTaskAdded(Story story, String taskId) {
+        indexTask(story.getId(), taskId);
+        for (StoryIndex index : indexes) {
+            index.onTaskAdded(story, taskId);
+        }
+    }
+
+    @Override
+    public void onTaskRemoved(Story story, String taskId) {
+        unindexTask(story.getId(), taskId);
+        for (StoryIndex index : indexes) {
+            index.onTaskRemoved(story, taskId);
+        }
+    }
+
+    private void indexTask(String storyId, String taskId) {
+        storyIdsByTaskId.compute(taskId, (k, ids) -> {
+            Set<String> bucket = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            bucket.add(storyId);
+            return bucket;
+        });
+    }
+
+    private void unindexTask(String storyId, String taskId) {
+        storyIdsByTaskId.computeIfPresent(taskId, (k, ids) -> {
+            ids.remove(storyId);
+            return ids.isEmpty() ? null : ids;
+        });
     }
 }
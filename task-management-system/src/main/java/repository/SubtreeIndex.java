@@ -0,0 +1,299 @@
+package repository;
+
+import model.SubtreeSummary;
+import model.Task;
+import model.TaskPriority;
+import model.TaskStatus;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Aggregates over the descendants of every task: counts per status and
+// priority and the earliest deadline. A change to one task touches only its
+// ancestors, so reading a summary never walks the subtree.
+//
+// The index keeps its own copy of the hierarchy. Status, priority and deadline
+// changes run under the read lock and lock one node at a time on the way up,
+// so updates in sibling subtrees proceed in parallel and meet only at shared
+// ancestors. Moves, deletes and adopting children saved before their parent
+// take the write lock, so a subtree never moves while a change is climbing
+// through it.
+public class SubtreeIndex implements TaskIndex {
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    private static final int STATUSES = TaskStatus.values().length;
+    private static final int PRIORITIES = TaskPriority.values().length;
+
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SubtreeSummary getSummary(String taskId) {
+        Node node = nodes.get(taskId);
+        if (node == null) {
+            return null;
+        }
+        synchronized (node) {
+            long earliest = node.earliest;
+            return new SubtreeSummary(taskId, node.statusCounts, node.priorityCounts,
+                    earliest == NO_DEADLINE ? null : new Date(earliest));
+        }
+    }
+
+    @Override
+    public void onSave(Task task) {
+        Node node = new Node(task);
+        lock.readLock().lock();
+        try {
+            nodes.put(task.getId(), node);
+            Node parent = task.getParentTaskId() != null ? nodes.get(task.getParentTaskId()) : null;
+            if (parent != null) {
+                attach(node, parent);
+            }
+            // Changes made between building the node and publishing it weren't seen
+            sync(node);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Children saved before their parent, as when recovering or importing
+        List<Task> children = task.getChildren();
+        if (!children.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                for (Task child : children) {
+                    Node childNode = nodes.get(child.getId());
+                    if (childNode != null && childNode.parent == null && nodes.get(task.getId()) == node) {
+                        attach(childNode, node);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void onDelete(Task task) {
+        lock.writeLock().lock();
+        try {
+            Node node = nodes.get(task.getId());
+            if (node == null || node.task != task) {
+                return;
+            }
+            nodes.remove(task.getId());
+            if (node.parent != null) {
+                detach(node);
+            }
+            // Children left behind become roots of their own trees
+            List<Node> orphans;
+            synchronized (node) {
+                orphans = new ArrayList<>(node.children);
+                node.children.clear();
+            }
+            for (Node child : orphans) {
+                synchronized (child) {
+                    child.parent = null;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onParentChanged(Task task, String oldParentTaskId, String newParentTaskId) {
+        lock.writeLock().lock();
+        try {
+            Node node = nodes.get(task.getId());
+            if (node == null || node.task != task) {
+                return;
+            }
+            if (node.parent != null) {
+                detach(node);
+            }
+            Node parent = newParentTaskId != null ? nodes.get(newParentTaskId) : null;
+            if (parent != null) {
+                attach(node, parent);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onStatusChanged(Task task, TaskStatus oldStatus, TaskStatus newStatus) {
+        sync(task);
+    }
+
+    @Override
+    public void onPriorityChanged(Task task, TaskPriority oldPriority, TaskPriority newPriority) {
+        sync(task);
+    }
+
+    @Override
+    public void onDeadlineChanged(Task task, Date oldDeadline, Date newDeadline) {
+        sync(task);
+    }
+
+    private void sync(Task task) {
+        lock.readLock().lock();
+        try {
+            Node node = nodes.get(task.getId());
+            if (node != null && node.task == task) {
+                sync(node);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Copies the task's current fields into its node and passes the difference
+    // up. Reading the state under the node's monitor keeps concurrent syncs of
+    // one task from applying an older state last.
+    private static void sync(Node node) {
+        Task.State state;
+        TaskStatus previousStatus;
+        TaskPriority previousPriority;
+        long previousMin;
+        long currentMin;
+        Node parent;
+        synchronized (node) {
+            state = node.task.getState();
+            previousStatus = node.status;
+            previousPriority = node.priority;
+            previousMin = node.subtreeMin();
+            node.status = state.getStatus();
+            node.priority = state.getPriority();
+            node.deadline = millis(state.getDeadline());
+            currentMin = node.subtreeMin();
+            parent = node.parent;
+        }
+        if (previousStatus != state.getStatus() || previousPriority != state.getPriority()) {
+            int[] statuses = new int[STATUSES];
+            int[] priorities = new int[PRIORITIES];
+            statuses[previousStatus.ordinal()]--;
+            statuses[state.getStatus().ordinal()]++;
+            priorities[previousPriority.ordinal()]--;
+            priorities[state.getPriority().ordinal()]++;
+            addToAncestors(parent, statuses, priorities, 1);
+        }
+        propagateDeadline(parent, previousMin, currentMin);
+    }
+
+    // Each step reads the next parent under the monitor it updates, so a node
+    // being attached concurrently either already counts the change or passes it on
+    private static void addToAncestors(Node ancestor, int[] statuses, int[] priorities, int sign) {
+        while (ancestor != null) {
+            synchronized (ancestor) {
+                add(ancestor.statusCounts, statuses, sign);
+                add(ancestor.priorityCounts, priorities, sign);
+                ancestor = ancestor.parent;
+            }
+        }
+    }
+
+    // Walks up from the given ancestor while the earliest deadline below it
+    // keeps changing. An ancestor only rescans its children when the child that
+    // held its minimum moved later.
+    private static void propagateDeadline(Node ancestor, long previous, long current) {
+        while (ancestor != null && previous != current) {
+            synchronized (ancestor) {
+                long before = ancestor.subtreeMin();
+                if (current < ancestor.earliest) {
+                    ancestor.earliest = current;
+                } else if (previous == ancestor.earliest) {
+                    ancestor.earliest = ancestor.earliestOfChildren();
+                }
+                previous = before;
+                current = ancestor.subtreeMin();
+                ancestor = ancestor.parent;
+            }
+        }
+    }
+
+    // Holds the node's monitor throughout, so a sync of the node can't pass
+    // a change up before the node's totals have reached its new ancestors.
+    // Monitors are only ever nested from a node to its ancestors.
+    private static void attach(Node node, Node parent) {
+        synchronized (node) {
+            node.parent = parent;
+            int[] statuses = node.statusCounts.clone();
+            int[] priorities = node.priorityCounts.clone();
+            statuses[node.status.ordinal()]++;
+            priorities[node.priority.ordinal()]++;
+            synchronized (parent) {
+                parent.children.add(node);
+            }
+            addToAncestors(parent, statuses, priorities, 1);
+            propagateDeadline(parent, NO_DEADLINE, node.subtreeMin());
+        }
+    }
+
+    // Only called under the write lock, so nothing else is climbing the tree
+    private static void detach(Node node) {
+        Node parent = node.parent;
+        int[] statuses;
+        int[] priorities;
+        synchronized (node) {
+            node.parent = null;
+            statuses = node.statusCounts.clone();
+            priorities = node.priorityCounts.clone();
+            statuses[node.status.ordinal()]++;
+            priorities[node.priority.ordinal()]++;
+        }
+        synchronized (parent) {
+            parent.children.remove(node);
+        }
+        addToAncestors(parent, statuses, priorities, -1);
+        propagateDeadline(parent, node.subtreeMin(), NO_DEADLINE);
+    }
+
+    private static void add(int[] target, int[] counts, int sign) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += sign * counts[i];
+        }
+    }
+
+    private static long millis(Date date) {
+        return date == null ? NO_DEADLINE : date.getTime();
+    }
+
+    private static final class Node {
+        final Task task;
+        // The index's view of the hierarchy; see the class comment for when these change
+        volatile Node parent;
+        final List<Node> children = new ArrayList<>(0);
+        // The task's own fields, guarded by this node's monitor
+        TaskStatus status;
+        TaskPriority priority;
+        volatile long deadline;
+        // Aggregates over the descendants, not counting the task itself
+        final int[] statusCounts = new int[STATUSES];
+        final int[] priorityCounts = new int[PRIORITIES];
+        volatile long earliest = NO_DEADLINE;
+
+        Node(Task task) {
+            Task.State state = task.getState();
+            this.task = task;
+            this.status = state.getStatus();
+            this.priority = state.getPriority();
+            this.deadline = millis(state.getDeadline());
+        }
+
+        long subtreeMin() {
+            return Math.min(deadline, earliest);
+        }
+
+        // Callers hold this node's monitor or the write lock
+        long earliestOfChildren() {
+            long min = NO_DEADLINE;
+            for (Node child : children) {
+                min = Math.min(min, child.subtreeMin());
+            }
+            return min;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package repository;
+
+import model.Task;
+import model.TaskListener;
+
+// A derived view over TaskRepository that is kept up to date as tasks are
+// saved, deleted and mutated.
+public interface TaskIndex extends TaskListener {
+    void onSave(Task task);
+
+    void onDelete(Task task);
+
+    // Fired once per move by TaskService, after the task has been detached and
+    // reattached, where onParentChanged may fire for each step
+    default void onMoved(Task task, Task oldParent) {
+    }
+}
@@ -1,14 +1,70 @@
 package repository;
 
 import model.Task;
+import model.TaskListener;
+import model.TaskPriority;
+import model.TaskStatus;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-public class TaskRepository {
-    private final Map<String, Task> tasks = new HashMap<>();
+public class TaskRepository implements TaskListener {
+    // ConcurrentHashMap locks per bin on writes and never locks on reads, so
+    // parallel creators/deleters don't lose updates and findAll() iterators are
+    // weakly consistent instead of throwing ConcurrentModificationException.
+    private final Map<String, Task> tasks = new ConcurrentHashMap<>();
+    // assignee -> ids of the tasks assigned to them
+    private final Map<String, Set<String>> taskIdsByUser = new ConcurrentHashMap<>();
+    private final List<TaskIndex> indexes = new CopyOnWriteArrayList<>();
+    // Shared by aggregations and queries
+    private final ColumnarTaskStore columns = new ColumnarTaskStore();
 
+    public TaskRepository() {
+        indexes.add(columns);
+    }
+
+    public ColumnarTaskStore getColumns() {
+        return columns;
+    }
+
+    // Registers a derived index and backfills it with the tasks saved so far
+    public void addIndex(TaskIndex index) {
+        indexes.add(index);
+        Task.forEachLocked(tasks.values(), index::onSave);
+    }
+
+    // The map change, the listener swap and the index callbacks all happen
+    // under the task's lock, like the notifications of its own changes, so no
+    // index hears of a change to a task before its onSave or after its onDelete
     public void save(Task task) {
-        tasks.put(task.getId(), task);
+        Task.runLocked(task.getId(), () -> saveLocked(task));
+    }
+
+    private void saveLocked(Task task) {
+        Task previous = tasks.put(task.getId(), task);
+        if (previous == task) {
+            return;
+        }
+        if (previous != null) {
+            previous.setListener(null);
+            unindexAssignee(previous.getId(), previous.getAssignedUserId());
+            for (TaskIndex index : indexes) {
+                index.onDelete(previous);
+            }
+        }
+        task.setListener(this);
+        indexAssignee(task.getId(), task.getAssignedUserId());
+        for (TaskIndex index : indexes) {
+            index.onSave(task);
+        }
+    }
+
+    // In batch order, so a parent is indexed and published before its subtasks
+    public void saveAll(Collection<Task> batch) {
+        for (Task task : batch) {
+            save(task);
+        }
     }
 
     public Task findById(String id) {
@@ -16,20 +72,127 @@ public class TaskRepository {
     }
 
     public void delete(String id) {
-        tasks.remove(id);
+        Task.runLocked(id, () -> {
+            Task removed = tasks.remove(id);
+            if (removed != null) {
+                removed.setListener(null);
+                unindexAssignee(id, removed.getAssignedUserId());
+                for (TaskIndex index : indexes) {
+                    index.onDelete(removed);
+                }
+            }
+        });
+    }
+
+    public void deleteAll(Collection<String> ids) {
+        for (String id : ids) {
+            delete(id);
+        }
     }
 
     public List<Task> findAllByUserId(String userId) {
-        List<Task> result = new ArrayList<>();
-        for (Task task : tasks.values()) {
-            if (userId.equals(task.getAssignedUserId())) {
+        Set<String> taskIds = taskIdsByUser.get(userId);
+        if (taskIds == null) {
+            return new ArrayList<>();
+        }
+        List<Task> result = new ArrayList<>(taskIds.size());
+        for (String taskId : taskIds) {
+            Task task = tasks.get(taskId);
+            if (task != null) {
                 result.add(task);
             }
         }
         return result;
     }
 
+    public int countByUserId(String userId) {
+        Set<String> taskIds = taskIdsByUser.get(userId);
+        return taskIds == null ? 0 : taskIds.size();
+    }
+
     public Collection<Task> findAll() {
-        return tasks.values();
+        return Collections.unmodifiableCollection(tasks.values());
+    }
+
+    public int count() {
+        return tasks.size();
+    }
+
+    @Override
+    public void onAssigneeChanged(Task task, String oldUserId, String newUserId) {
+        unindexAssignee(task.getId(), oldUserId);
+        indexAssignee(task.getId(), newUserId);
+        for (TaskIndex index : indexes) {
+            index.onAssigneeChanged(task, oldUserId, newUserId);
+        }
+    }
+
+    @Override
+    public void onStatusChanged(Task task, TaskStatus oldStatus, TaskStatus newStatus) {
+        for (TaskIndex index : indexes) {
+            index.onStatusChanged(task, oldStatus, newStatus);
+        }
+    }
+
+    @Override
+    public void onPriorityChanged(Task task, TaskPriority oldPriority, TaskPriority newPriority) {
+        for (TaskIndex index : indexes) {
+            index.onPriorityChanged(task, oldPriority, newPriority);
+        }
+    }
+
+    @Override
+    public void onParentChanged(Task task, String oldParentTaskId, String newParentTaskId) {
+        for (TaskIndex index : indexes) {
+            index.onParentChanged(task, oldParentTaskId, newParentTaskId);
+        }
+    }
+
+    @Override
+    public void onDetailsChanged(Task task) {
+        for (TaskIndex index : indexes) {
+            index.onDetailsChanged(task);
+        }
+    }
+
+    @Override
+    public void onDeadlineChanged(Task task, Date oldDeadline, Date newDeadline) {
+        for (TaskIndex index : indexes) {
+            index.onDeadlineChanged(task, oldDeadline, newDeadline);
+        }
+    }
+
+    @Override
+    public void onUpdated(Task task) {
+        for (TaskIndex index : indexes) {
+            index.onUpdated(task);
+        }
+    }
+
+    public void moved(Task task, Task oldParent) {
+        for (TaskIndex index : indexes) {
+            index.onMoved(task, oldParent);
+        }
+    }
+
+    private void indexAssignee(String taskId, String userId) {
+        if (userId != null) {
+            taskIdsByUser.compute(userId, (k, ids) -> {
+                Set<String> bucket = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                bucket.add(taskId);
+                return bucket;
+            });
+        }
+    }
+
+    private void unindexAssignee(String taskId, String userId) {
+        if (userId == null) {
+            return;
+        }
+        // Drop the bucket atomically once its last task goes so the map doesn't grow unbounded
+        taskIdsByUser.computeIfPresent(userId, (k, ids) -> {
+            ids.remove(taskId);
+            return ids.isEmpty() ? null : ids;
+        });
     }
 }
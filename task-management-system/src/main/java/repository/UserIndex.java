@@ -0,0 +1,7 @@
+package repository;
+
+import model.User;
+
+public interface UserIndex {
+    void onSave(User user);
+}
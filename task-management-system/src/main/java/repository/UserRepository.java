@@ -2,21 +2,64 @@ package repository;
 
 import model.User;
 
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class UserRepository {
-    private final Map<String, User> users = new HashMap<>();
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    // normalized email -> user, so login and duplicate checks are O(1)
+    private final Map<String, User> usersByEmail = new ConcurrentHashMap<>();
+    private final List<UserIndex> indexes = new CopyOnWriteArrayList<>();
+
+    public void addIndex(UserIndex index) {
+        indexes.add(index);
+        for (User user : users.values()) {
+            index.onSave(user);
+        }
+    }
 
     public void save(User user) {
+        usersByEmail.put(normalizeEmail(user.getEmail()), user);
+        users.put(user.getId(), user);
+        for (UserIndex index : indexes) {
+            index.onSave(user);
+        }
+    }
+
+    // Like Map.putIfAbsent: returns the user already holding this email, or null if saved
+    public User saveIfAbsent(User user) {
+        User existing = usersByEmail.putIfAbsent(normalizeEmail(user.getEmail()), user);
+        if (existing != null) {
+            return existing;
+        }
         users.put(user.getId(), user);
+        for (UserIndex index : indexes) {
+            index.onSave(user);
+        }
+        return null;
     }
 
     public User findByEmail(String email) {
-        return users.values().stream().filter(u -> u.getEmail().equals(email)).findFirst().orElse(null);
+        if (email == null) {
+            return null;
+        }
+        return usersByEmail.get(normalizeEmail(email));
     }
 
     public User findById(String id) {
         return users.get(id);
     }
-}
\ No newline at end of file
+
+    public Collection<User> findAll() {
+        return Collections.unmodifiableCollection(users.values());
+    }
+
+    private static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,381 @@
+package search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over tasks and stories with BM25 ranking.
+//
+// Every indexed version of a document gets the next int doc id, so postings
+// are appended in doc id order and stay sorted without inserts. Updating or
+// removing a document only tombstones its old doc id; once tombstones
+// outnumber live documents the postings are compacted and doc ids renumbered.
+// The term dictionary is sorted, which makes prefix lookups a range scan.
+//
+// Writers take the write lock for the duration of one document; searches
+// share the read lock.
+public class InvertedIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Prefix expansions per query token, most frequent terms first
+    private static final int MAX_PREFIX_TERMS = 64;
+    private static final int MIN_COMPACTION = 1024;
+    private static final SearchHit.Type[] TYPES = SearchHit.Type.values();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final List<Map<String, Integer>> docByKey = new ArrayList<>();
+    private byte[] docTypes = new byte[1024];
+    private String[] docIds = new String[1024];
+    private int[] docLengths = new int[1024];
+    private Postings[][] docTerms = new Postings[1024][];
+    private final BitSet live = new BitSet();
+    private int nextDoc;
+    private int liveDocs;
+    private long liveLength;
+
+    public InvertedIndex() {
+        for (int i = 0; i < TYPES.length; i++) {
+            docByKey.add(new HashMap<>());
+        }
+    }
+
+    // Indexes the text of a document, replacing what was indexed for it before
+    public void put(SearchHit.Type type, String id, String... texts) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        int length = 0;
+        for (String text : texts) {
+            for (String token : Tokenizer.tokenize(text)) {
+                frequencies.merge(token, 1, Integer::sum);
+                length++;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(type, id);
+            int doc = allocate();
+            docByKey.get(type.ordinal()).put(id, doc);
+            docTypes[doc] = (byte) type.ordinal();
+            docIds[doc] = id;
+            docLengths[doc] = length;
+            Postings[] postings = new Postings[frequencies.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Postings termPostings = terms.computeIfAbsent(entry.getKey(), k -> new Postings());
+                termPostings.add(doc, entry.getValue());
+                postings[i++] = termPostings;
+            }
+            docTerms[doc] = postings;
+            live.set(doc);
+            liveDocs++;
+            liveLength += length;
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(SearchHit.Type type, String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(type, id);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Documents containing every query token, best BM25 score first. With
+    // prefix set, the last token also matches terms it is a prefix of.
+    public List<SearchHit> search(String query, boolean prefix, int limit) {
+        List<String> tokens = Tokenizer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            List<Postings[]> groups = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                Postings[] group = prefix && i == tokens.size() - 1 ? expand(tokens.get(i)) : exact(tokens.get(i));
+                if (group.length == 0) {
+                    return new ArrayList<>();
+                }
+                groups.add(group);
+            }
+            // Drive from the rarest token and probe the others
+            groups.sort(Comparator.comparingLong(InvertedIndex::documentFrequency));
+            return rank(groups, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<SearchHit> rank(List<Postings[]> groups, int limit) {
+        double averageLength = liveDocs == 0 ? 1 : Math.max(1.0, (double) liveLength / liveDocs);
+        double[][] idfs = new double[groups.size()][];
+        for (int g = 0; g < groups.size(); g++) {
+            idfs[g] = new double[groups.get(g).length];
+            for (int p = 0; p < groups.get(g).length; p++) {
+                int df = groups.get(g)[p].df;
+                idfs[g][p] = Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+            }
+        }
+
+        // Candidates come in ascending doc id order, so each posting list is
+        // read through a cursor that only ever moves forward
+        Cursor[][] cursors = new Cursor[groups.size()][];
+        for (int g = 0; g < groups.size(); g++) {
+            cursors[g] = new Cursor[groups.get(g).length];
+            for (int p = 0; p < cursors[g].length; p++) {
+                cursors[g][p] = new Cursor(groups.get(g)[p]);
+            }
+        }
+        PriorityQueue<Candidate> top = new PriorityQueue<>(limit + 1);
+        Postings[] driver = groups.get(0);
+        int[] docs = driver.length == 1 ? driver[0].docs : candidates(driver);
+        int count = driver.length == 1 ? driver[0].size : docs.length;
+        for (int i = 0; i < count; i++) {
+            int doc = docs[i];
+            if (!live.get(doc)) {
+                continue;
+            }
+            double norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+            double score = 0;
+            boolean matchesAll = true;
+            for (int g = 0; g < cursors.length && matchesAll; g++) {
+                boolean matched = false;
+                for (int p = 0; p < cursors[g].length; p++) {
+                    int tf = cursors[g][p].frequency(doc);
+                    if (tf > 0) {
+                        score += idfs[g][p] * tf * (K1 + 1) / (tf + norm);
+                        matched = true;
+                    }
+                }
+                matchesAll = matched;
+            }
+            if (!matchesAll) {
+                continue;
+            }
+            if (top.size() < limit) {
+                top.add(new Candidate(doc, score));
+            } else if (score > top.peek().score) {
+                top.poll();
+                top.add(new Candidate(doc, score));
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Candidate candidate = top.poll();
+            hits.add(new SearchHit(TYPES[docTypes[candidate.doc]], docIds[candidate.doc], candidate.score));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    // Doc ids in any of the group's postings, ascending and without duplicates
+    private static int[] candidates(Postings[] group) {
+        int total = 0;
+        for (Postings postings : group) {
+            total += postings.size;
+        }
+        int[] docs = new int[total];
+        int at = 0;
+        for (Postings postings : group) {
+            System.arraycopy(postings.docs, 0, docs, at, postings.size);
+            at += postings.size;
+        }
+        Arrays.sort(docs);
+        int unique = 0;
+        for (int i = 0; i < docs.length; i++) {
+            if (unique == 0 || docs[i] != docs[unique - 1]) {
+                docs[unique++] = docs[i];
+            }
+        }
+        return Arrays.copyOf(docs, unique);
+    }
+
+    private Postings[] exact(String token) {
+        Postings postings = terms.get(token);
+        return postings == null || postings.df == 0 ? new Postings[0] : new Postings[]{postings};
+    }
+
+    private Postings[] expand(String prefix) {
+        List<Postings> matches = new ArrayList<>();
+        for (Postings postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (postings.df > 0) {
+                matches.add(postings);
+            }
+        }
+        if (matches.size() > MAX_PREFIX_TERMS) {
+            matches.sort((a, b) -> Integer.compare(b.df, a.df));
+            matches = matches.subList(0, MAX_PREFIX_TERMS);
+        }
+        return matches.toArray(new Postings[0]);
+    }
+
+    private static long documentFrequency(Postings[] group) {
+        long df = 0;
+        for (Postings postings : group) {
+            df += postings.df;
+        }
+        return df;
+    }
+
+    private void removeLocked(SearchHit.Type type, String id) {
+        Integer doc = docByKey.get(type.ordinal()).remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (Postings postings : docTerms[doc]) {
+            postings.df--;
+        }
+        live.clear(doc);
+        liveDocs--;
+        liveLength -= docLengths[doc];
+        docTerms[doc] = null;
+        docIds[doc] = null;
+    }
+
+    private int allocate() {
+        if (nextDoc == docIds.length) {
+            int capacity = nextDoc * 2;
+            docTypes = Arrays.copyOf(docTypes, capacity);
+            docIds = Arrays.copyOf(docIds, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+        return nextDoc++;
+    }
+
+    private void compactIfSparse() {
+        if (nextDoc - liveDocs > Math.max(MIN_COMPACTION, liveDocs)) {
+            compact();
+        }
+    }
+
+    // Drops tombstoned doc ids from every posting list and renumbers the live
+    // ones densely. The mapping is monotonic, so postings stay sorted.
+    private void compact() {
+        int[] remap = new int[nextDoc];
+        int count = 0;
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (live.get(doc)) {
+                remap[doc] = count;
+                docTypes[count] = docTypes[doc];
+                docIds[count] = docIds[doc];
+                docLengths[count] = docLengths[doc];
+                docTerms[count] = docTerms[doc];
+                count++;
+            } else {
+                remap[doc] = -1;
+            }
+        }
+        Arrays.fill(docIds, count, nextDoc, null);
+        Arrays.fill(docTerms, count, nextDoc, null);
+        for (Iterator<Postings> it = terms.values().iterator(); it.hasNext(); ) {
+            Postings postings = it.next();
+            postings.remap(remap);
+            if (postings.size == 0) {
+                it.remove();
+            }
+        }
+        for (Map<String, Integer> docs : docByKey) {
+            docs.replaceAll((id, doc) -> remap[doc]);
+        }
+        live.clear();
+        live.set(0, count);
+        nextDoc = count;
+    }
+
+    // Doc ids ascending with their term frequencies. df counts live docs only.
+    private static final class Postings {
+        int[] docs = new int[2];
+        int[] frequencies = new int[2];
+        int size;
+        int df;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            df++;
+        }
+
+        void remap(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = remap[docs[i]];
+                if (doc >= 0) {
+                    docs[kept] = doc;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            if (docs.length > 2 * Math.max(kept, 1)) {
+                docs = Arrays.copyOf(docs, Math.max(kept, 2));
+                frequencies = Arrays.copyOf(frequencies, Math.max(kept, 2));
+            }
+        }
+    }
+
+    // Forward-only lookup in one posting list. Gallops from the last position,
+    // so probing every doc of a long list costs about one step each.
+    private static final class Cursor {
+        private final Postings postings;
+        private int position;
+
+        Cursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        // Term frequency in doc, or 0; docs must be asked for in ascending order
+        int frequency(int doc) {
+            int[] docs = postings.docs;
+            int size = postings.size;
+            if (position >= size || docs[position] > doc) {
+                return 0;
+            }
+            int step = 1;
+            int low = position;
+            while (low + step < size && docs[low + step] < doc) {
+                low += step;
+                step <<= 1;
+            }
+            int at = Arrays.binarySearch(docs, low, Math.min(low + step + 1, size), doc);
+            position = at >= 0 ? at : -at - 1;
+            return at >= 0 ? postings.frequencies[at] : 0;
+        }
+    }
+
+    // Min-heap order, so the weakest of the current top hits is evicted first
+    private static final class Candidate implements Comparable<Candidate> {
+        final int doc;
+        final double score;
+
+        Candidate(int doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int result = Double.compare(score, other.score);
+            return result != 0 ? result : Integer.compare(other.doc, doc);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package search;
+
+public class SearchHit {
+    public enum Type {
+        TASK,
+        STORY
+    }
+
+    private final Type type;
+    private final String id;
+    private final double score;
+
+    public SearchHit(Type type, String id, double score) {
+        this.type = type;
+        this.id = id;
+        this.score = score;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return type + ":" + id + " (" + score + ")";
+    }
+}
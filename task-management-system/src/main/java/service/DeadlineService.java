@@ -0,0 +1,124 @@
+package service;
+
+import model.DeadlineListener;
+import model.Task;
+import model.TaskStatus;
+import repository.DeadlineIndex;
+import repository.TaskIndex;
+import repository.TaskRepository;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Deadline lookups over the open tasks of a repository, and deadline events:
+// every open task with a future deadline has a timeout on a timing wheel that
+// tells the listeners once the deadline passes. Timeouts follow deadline,
+// status and deletion changes. Deadlines already past when a task is saved
+// raise no event; getOverdueTasks covers those.
+public class DeadlineService implements Closeable {
+    private final DeadlineIndex index = new DeadlineIndex();
+    private final UserService userService;
+    private final TimingWheel wheel;
+    private final Map<String, TimingWheel.Timeout> timeouts = new ConcurrentHashMap<>();
+    private final List<DeadlineListener> listeners = new CopyOnWriteArrayList<>();
+
+    public DeadlineService(TaskRepository taskRepo, UserService userService) {
+        this(taskRepo, userService, 1, TimeUnit.SECONDS);
+    }
+
+    // The tick bounds how late after its deadline an event fires
+    public DeadlineService(TaskRepository taskRepo, UserService userService, long tick, TimeUnit unit) {
+        this.userService = userService;
+        this.wheel = new TimingWheel("deadline-wheel", Math.max(1, unit.toMillis(tick)), 512);
+        taskRepo.addIndex(index);
+        taskRepo.addIndex(new Scheduler());
+    }
+
+    public void addListener(DeadlineListener listener) {
+        listeners.add(listener);
+    }
+
+    public List<Task> getOverdueTasks(Date asOf, int limit) {
+        return index.findOverdue(asOf, limit);
+    }
+
+    public List<Task> getTasksDueBetween(Date from, Date to, int limit) {
+        return index.findDueBetween(from, to, limit);
+    }
+
+    public List<Task> getTasksDueWithin(long window, TimeUnit unit, int limit) {
+        long now = System.currentTimeMillis();
+        return index.findDueBetween(new Date(now), new Date(now + unit.toMillis(window)), limit);
+    }
+
+    public List<Task> getNextDeadlines(String userId, int limit) {
+        // Verify user exists
+        userService.getUserById(userId);
+        return index.findNextByUser(userId, new Date(), limit);
+    }
+
+    @Override
+    public void close() {
+        wheel.stop();
+    }
+
+    private void fire(Task task, long deadline) {
+        Task.State state = task.getState();
+        // The task may have changed since; a timeout whose cancel came too late is ignored
+        if (state.getDeadline() == null || state.getDeadline().getTime() != deadline
+                || !DeadlineIndex.isOpen(state.getStatus())) {
+            return;
+        }
+        timeouts.remove(task.getId());
+        for (DeadlineListener listener : listeners) {
+            listener.onDeadlinePassed(task);
+        }
+    }
+
+    // Keeps one timeout per open task with a future deadline
+    private class Scheduler implements TaskIndex {
+        private void reschedule(Task task) {
+            Task.State state = task.getState();
+            Date deadline = state.getDeadline();
+            TimingWheel.Timeout timeout = null;
+            if (deadline != null && DeadlineIndex.isOpen(state.getStatus())
+                    && deadline.getTime() > System.currentTimeMillis()) {
+                long millis = deadline.getTime();
+                timeout = wheel.schedule(millis, () -> fire(task, millis));
+            }
+            TimingWheel.Timeout previous = timeout != null
+                    ? timeouts.put(task.getId(), timeout) : timeouts.remove(task.getId());
+            if (previous != null) {
+                previous.cancel();
+            }
+        }
+
+        @Override
+        public void onSave(Task task) {
+            reschedule(task);
+        }
+
+        @Override
+        public void onDelete(Task task) {
+            TimingWheel.Timeout previous = timeouts.remove(task.getId());
+            if (previous != null) {
+                previous.cancel();
+            }
+        }
+
+        @Override
+        public void onStatusChanged(Task task, TaskStatus oldStatus, TaskStatus newStatus) {
+            if (DeadlineIndex.isOpen(oldStatus) != DeadlineIndex.isOpen(newStatus)) {
+                reschedule(task);
+            }
+        }
+
+        @Override
+        public void onDeadlineChanged(Task task, Date oldDeadline, Date newDeadline) {
+            reschedule(task);
+        }
+    }
+}
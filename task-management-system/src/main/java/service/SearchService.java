@@ -0,0 +1,67 @@
+package service;
+
+import model.Story;
+import model.Task;
+import repository.StoryIndex;
+import repository.StoryRepository;
+import repository.TaskIndex;
+import repository.TaskRepository;
+import search.InvertedIndex;
+import search.SearchHit;
+
+import java.util.List;
+
+// Full-text search over task and story titles and descriptions. The index is
+// fed by repository events, so tasks are searchable as soon as they are
+// created and reflect Task.update right away.
+public class SearchService {
+    private final InvertedIndex index = new InvertedIndex();
+
+    public SearchService(TaskRepository taskRepo, StoryRepository storyRepo) {
+        taskRepo.addIndex(new TaskTextIndex());
+        storyRepo.addIndex(new StoryTextIndex());
+    }
+
+    // Tasks and stories containing every word of the query, best match first
+    public List<SearchHit> search(String query, int limit) {
+        return index.search(query, false, limit);
+    }
+
+    // Like search, but the last word may be incomplete, as while the user is typing
+    public List<SearchHit> typeahead(String query, int limit) {
+        return index.search(query, true, limit);
+    }
+
+    private class TaskTextIndex implements TaskIndex {
+        @Override
+        public void onSave(Task task) {
+            Task.State state = task.getState();
+            index.put(SearchHit.Type.TASK, task.getId(), state.getTitle(), state.getDescription());
+        }
+
+        @Override
+        public void onDelete(Task task) {
+            index.remove(SearchHit.Type.TASK, task.getId());
+        }
+
+        @Override
+        public void onDetailsChanged(Task task) {
+            onSave(task);
+        }
+    }
+
+    private class StoryTextIndex implements StoryIndex {
+        @Override
+        public void onSave(Story story) {
+            index.put(SearchHit.Type.STORY, story.getId(), story.getTitle(), story.getDescription());
+        }
+
+        @Override
+        public void onTaskAdded(Story story, String taskId) {
+        }
+
+        @Override
+        public void onTaskRemoved(Story story, String taskId) {
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package service;
 
+import exception.StoryNotFoundException;
 import factory.TaskFactory;
 import model.Story;
+import model.StoryProgress;
 import model.Task;
+import repository.StoryProgressIndex;
 import repository.StoryRepository;
+import repository.TaskRepository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.SortedMap;
 
 public class StoryService {
     private final StoryRepository storyRepo = new StoryRepository();
+    private final StoryProgressIndex progress;
+
+    public StoryService(TaskRepository taskRepo) {
+        progress = new StoryProgressIndex(taskRepo, storyRepo);
+        taskRepo.addIndex(progress);
+        storyRepo.addIndex(progress);
+    }
 
     public Story createStory(String title, String description, List<Task> tasks) {
         Story story = TaskFactory.createStory(title, description);
@@ -19,6 +32,32 @@ public class StoryService {
         return story;
     }
 
+    public Story getStoryById(String storyId) {
+        Story story = storyRepo.findById(storyId);
+        if (story == null) {
+            throw new StoryNotFoundException("Story not found with id: " + storyId);
+        }
+        return story;
+    }
+
+    // Status counts of the story's tasks, kept up to date as they change
+    public StoryProgress getProgress(String storyId) {
+        StoryProgress result = progress.getProgress(storyId);
+        if (result == null) {
+            throw new StoryNotFoundException("Story not found with id: " + storyId);
+        }
+        return result;
+    }
+
+    // Tasks left to do at the end of each day on which the number changed
+    public SortedMap<LocalDate, Integer> getBurndown(String storyId) {
+        SortedMap<LocalDate, Integer> result = progress.getBurndown(storyId);
+        if (result == null) {
+            throw new StoryNotFoundException("Story not found with id: " + storyId);
+        }
+        return result;
+    }
+
     public StoryRepository getStoryRepo() {
         return storyRepo;
     }
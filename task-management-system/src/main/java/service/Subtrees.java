@@ -0,0 +1,69 @@
+package service;
+
+import model.Task;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+// Iterative walks over a task hierarchy, so deep trees can't overflow the stack
+final class Subtrees {
+    // Below this many tasks, fork/join overhead outweighs the parallel speed-up
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    private Subtrees() {
+    }
+
+    // The task and all of its descendants, parents before children
+    static List<Task> collect(Task root) {
+        List<Task> result = new ArrayList<>();
+        Deque<Task> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Task task = pending.pop();
+            result.add(task);
+            for (Task child : task.getChildren()) {
+                pending.push(child);
+            }
+        }
+        return result;
+    }
+
+    static void forEach(List<Task> tasks, Consumer<Task> action) {
+        if (tasks.size() < PARALLEL_THRESHOLD) {
+            tasks.forEach(action);
+        } else {
+            ForkJoinPool.commonPool().invoke(new ApplyAction(tasks, 0, tasks.size(), action));
+        }
+    }
+
+    private static class ApplyAction extends RecursiveAction {
+        private final List<Task> tasks;
+        private final int from;
+        private final int to;
+        private final Consumer<Task> action;
+
+        ApplyAction(List<Task> tasks, int from, int to, Consumer<Task> action) {
+            this.tasks = tasks;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    action.accept(tasks.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ApplyAction(tasks, from, mid, action), new ApplyAction(tasks, mid, to, action));
+        }
+    }
+}
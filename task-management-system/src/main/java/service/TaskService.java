@@ -1,18 +1,33 @@
 package service;
 
 import factory.TaskFactory;
+import model.BatchResult;
+import model.BulkImportResult;
+import model.SubtreeSummary;
 import model.Task;
+import model.TaskOperation;
+import model.TaskPatch;
+import model.TaskSpec;
 import model.TaskStatus;
+import repository.SubtreeIndex;
 import repository.TaskRepository;
 import exception.TaskNotFoundException;
 import exception.TaskManagementException;
+import exception.VersionConflictException;
 
-import java.util.Date;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class TaskService {
     private final TaskRepository taskRepo = new TaskRepository();
+    // Serializes structural changes (linking, moving, deleting) so the cycle
+    // check and the relink happen as one step
+    private final ReentrantLock hierarchyLock = new ReentrantLock();
+    private final SubtreeIndex subtrees = new SubtreeIndex();
+
+    public TaskService() {
+        taskRepo.addIndex(subtrees);
+    }
 
     public Task createTask(String title, String description, Date deadline, String userId) {
         if (title == null || title.trim().isEmpty()) {
@@ -27,6 +42,72 @@ public class TaskService {
         return task;
     }
 
+    // Creates a batch of tasks and subtasks. A spec's parent may be the ref of an
+    // earlier spec in the batch or the id of an existing task. Invalid specs are
+    // reported per item and don't stop the rest of the batch.
+    //
+    // Runs under the hierarchy lock, so an existing parent can't be deleted
+    // between being found and being attached to. Every task is linked before it
+    // is saved, so it is indexed and published with its parent in place.
+    public BulkImportResult importTasks(List<TaskSpec> specs) {
+        List<BulkImportResult.Item> items = new ArrayList<>(specs.size());
+        Map<String, Task> tasksByRef = new HashMap<>();
+        List<Task> created = new ArrayList<>(specs.size());
+
+        hierarchyLock.lock();
+        try {
+            for (int i = 0; i < specs.size(); i++) {
+                TaskSpec spec = specs.get(i);
+                String error = validate(spec, tasksByRef);
+                if (error != null) {
+                    items.add(BulkImportResult.Item.failed(i, spec.getRef(), error));
+                    continue;
+                }
+                Task parent = null;
+                if (spec.getParent() != null) {
+                    parent = tasksByRef.get(spec.getParent());
+                    if (parent == null) {
+                        parent = taskRepo.findById(spec.getParent());
+                    }
+                }
+                Task task = TaskFactory.createTask(spec.getTitle(), spec.getDescription(), spec.getDeadline());
+                task.setAssignedUserId(spec.getAssignedUserId());
+                if (spec.getPriority() != null) {
+                    task.setPriority(spec.getPriority());
+                }
+                if (parent != null) {
+                    parent.addSubtask(task);
+                }
+                if (spec.getRef() != null) {
+                    tasksByRef.put(spec.getRef(), task);
+                }
+                created.add(task);
+                items.add(BulkImportResult.Item.created(i, spec.getRef(), task));
+            }
+            taskRepo.saveAll(created);
+        } finally {
+            hierarchyLock.unlock();
+        }
+        return new BulkImportResult(items);
+    }
+
+    private String validate(TaskSpec spec, Map<String, Task> tasksByRef) {
+        if (spec.getTitle() == null || spec.getTitle().trim().isEmpty()) {
+            return "Task title cannot be empty";
+        }
+        if (spec.getDeadline() == null) {
+            return "Task deadline cannot be null";
+        }
+        if (spec.getRef() != null && tasksByRef.containsKey(spec.getRef())) {
+            return "Duplicate ref in batch: " + spec.getRef();
+        }
+        String parent = spec.getParent();
+        if (parent != null && !tasksByRef.containsKey(parent) && taskRepo.findById(parent) == null) {
+            return "Parent task not found: " + parent;
+        }
+        return null;
+    }
+
     public Task createSubtask(String parentTaskId, String title, String description, Date deadline, String userId) {
         Task parent = taskRepo.findById(parentTaskId);
         if (parent == null) {
@@ -34,78 +115,160 @@ public class TaskService {
         }
         Task subtask = TaskFactory.createTask(title, description, deadline);
         subtask.setAssignedUserId(userId);
-        parent.addSubtask(subtask);
-        taskRepo.save(subtask);
+        hierarchyLock.lock();
+        try {
+            // The parent may have been deleted while we waited for the lock
+            if (taskRepo.findById(parentTaskId) != parent) {
+                throw new TaskNotFoundException("Parent task not found with id: " + parentTaskId);
+            }
+            parent.addSubtask(subtask);
+            taskRepo.save(subtask);
+        } finally {
+            hierarchyLock.unlock();
+        }
         return subtask;
     }
 
     public void updateTask(String taskId, String title, String description, Date deadline, TaskStatus status) {
-        Task task = taskRepo.findById(taskId);
-        if (task == null) {
-            throw new TaskNotFoundException("Task not found with id: " + taskId);
+        updateTask(taskId, title, description, deadline, status, Task.ANY_VERSION);
+    }
+
+    // Replaces the task's fields only if it is still at expectedVersion
+    public Task updateTask(String taskId, String title, String description, Date deadline, TaskStatus status,
+                           long expectedVersion) {
+        if (title == null || title.trim().isEmpty()) {
+            throw new IllegalArgumentException("Task title cannot be empty");
         }
-        task.update(title, description, deadline, status);
+        if (status == null) {
+            throw new IllegalArgumentException("Task status cannot be null");
+        }
+        Task task = getTaskById(taskId);
+        if (!task.compareAndUpdate(expectedVersion, title, description, deadline, status)) {
+            throw conflict(task, expectedVersion);
+        }
+        return task;
+    }
+
+    // Changes only the fields the patch sets, so concurrent edits of other
+    // fields aren't overwritten
+    public Task patchTask(String taskId, TaskPatch patch, long expectedVersion) {
+        if (patch.getTitle() != null && patch.getTitle().trim().isEmpty()) {
+            throw new IllegalArgumentException("Task title cannot be empty");
+        }
+        Task task = getTaskById(taskId);
+        if (!task.patch(expectedVersion, patch)) {
+            throw conflict(task, expectedVersion);
+        }
+        return task;
     }
 
+    private static VersionConflictException conflict(Task task, long expectedVersion) {
+        long currentVersion = task.getVersion();
+        return new VersionConflictException("Task " + task.getId() + " is at version " + currentVersion
+                + ", not " + expectedVersion, expectedVersion, currentVersion);
+    }
+
+    // Deletes the task together with all of its subtasks
     public void deleteTask(String taskId) {
         Task task = taskRepo.findById(taskId);
         if (task == null) {
             throw new TaskNotFoundException("Task not found with id: " + taskId);
         }
-        // Remove from parent if exists
-        String parentTaskId = task.getParentTaskId();
-        if (parentTaskId != null) {
-            Task parent = taskRepo.findById(parentTaskId);
+        hierarchyLock.lock();
+        try {
+            List<Task> subtree = Subtrees.collect(task);
+            List<String> ids = new ArrayList<>(subtree.size());
+            for (Task member : subtree) {
+                ids.add(member.getId());
+            }
+            taskRepo.deleteAll(ids);
+            // Detached only once deleted, so the deletions are seen with the
+            // tasks still in place and the detach itself notifies nobody
+            Task parent = task.getParent();
             if (parent != null) {
                 parent.removeSubtask(task);
             }
+        } finally {
+            hierarchyLock.unlock();
+        }
+    }
+
+    public void updateSubtreeStatus(String taskId, TaskStatus status) {
+        Task task = getTaskById(taskId);
+        Subtrees.forEach(collectSubtree(task), member -> member.setStatus(status));
+    }
+
+    public void reassignSubtree(String taskId, String userId) {
+        Task task = getTaskById(taskId);
+        Subtrees.forEach(collectSubtree(task), member -> member.setAssignedUserId(userId));
+    }
+
+    // Number of tasks in the subtree, including the task itself
+    public int getSubtreeSize(String taskId) {
+        return collectSubtree(getTaskById(taskId)).size();
+    }
+
+    // Status counts, highest priority and earliest deadline of the task's
+    // descendants, maintained as they change instead of walking the subtree
+    public SubtreeSummary getSubtreeSummary(String taskId) {
+        SubtreeSummary summary = subtrees.getSummary(taskId);
+        if (summary == null) {
+            throw new TaskNotFoundException("Task not found with id: " + taskId);
+        }
+        return summary;
+    }
+
+    private List<Task> collectSubtree(Task task) {
+        // Hold the hierarchy steady while walking so a concurrent move can't split the snapshot
+        hierarchyLock.lock();
+        try {
+            return Subtrees.collect(task);
+        } finally {
+            hierarchyLock.unlock();
         }
-        taskRepo.delete(taskId);
     }
 
     public void moveTask(String taskId, String newParentTaskId) {
         Task task = getTaskById(taskId);
-        
-        // Check for circular dependency
-        if (newParentTaskId != null) {
-            Task newParent = getTaskById(newParentTaskId);
-            if (taskId.equals(newParentTaskId)) {
-                throw new TaskManagementException("Cannot move task to itself");
+        Task newParent = newParentTaskId != null ? getTaskById(newParentTaskId) : null;
+
+        hierarchyLock.lock();
+        try {
+            // Either task may have been deleted while we waited for the lock
+            if (taskRepo.findById(taskId) != task) {
+                throw new TaskNotFoundException("Task not found with id: " + taskId);
             }
-            // Check if new parent is a descendant of the task
-            String currentParentId = newParent.getParentTaskId();
-            while (currentParentId != null) {
-                if (currentParentId.equals(taskId)) {
+            if (newParent != null) {
+                if (taskRepo.findById(newParentTaskId) != newParent) {
+                    throw new TaskNotFoundException("Task not found with id: " + newParentTaskId);
+                }
+                if (task == newParent) {
+                    throw new TaskManagementException("Cannot move task to itself");
+                }
+                // Check if new parent is a descendant of the task
+                if (task.isAncestorOf(newParent)) {
                     throw new TaskManagementException("Circular dependency detected");
                 }
-                Task currentParent = getTaskById(currentParentId);
-                currentParentId = currentParent.getParentTaskId();
             }
-        }
 
-        // Remove from current parent if exists
-        String currentParentId = task.getParentTaskId();
-        if (currentParentId != null) {
-            Task currentParent = getTaskById(currentParentId);
-            currentParent.removeSubtask(task);
-        }
-
-        // Add to new parent if specified
-        if (newParentTaskId != null) {
-            Task newParent = getTaskById(newParentTaskId);
-            newParent.addSubtask(task);
+            Task currentParent = task.getParent();
+            if (currentParent == newParent) {
+                return;
+            }
+            if (currentParent != null) {
+                currentParent.removeSubtask(task);
+            }
+            if (newParent != null) {
+                newParent.addSubtask(task);
+            }
+            taskRepo.moved(task, currentParent);
+        } finally {
+            hierarchyLock.unlock();
         }
     }
 
     public List<Task> getTasksByUser(String userId) {
-        List<Task> allTasks = new ArrayList<>(taskRepo.findAll());
-        List<Task> userTasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            if (userId.equals(task.getAssignedUserId())) {
-                userTasks.add(task);
-            }
-        }
-        return userTasks;
+        return taskRepo.findAllByUserId(userId);
     }
 
     public Task getTaskById(String taskId) {
@@ -118,9 +281,139 @@ public class TaskService {
 
     public void updateTaskStatus(String taskId, TaskStatus newStatus) {
         Task task = taskRepo.findById(taskId);
-        if (task == null) throw new RuntimeException("Task not found!");
-        task.update(task.getTitle(), task.getDescription(), task.getDeadline(), newStatus);
-        taskRepo.save(task);
+        if (task == null) {
+            throw new TaskNotFoundException("Task not found with id: " + taskId);
+        }
+        if (newStatus == null) {
+            throw new IllegalArgumentException("Task status cannot be null");
+        }
+        // Writes the status alone; reading the other fields and writing them
+        // back would undo a concurrent edit of them
+        task.setStatus(newStatus);
+    }
+
+    // Applies a batch of mutations in two passes. Moves and deletes go first, in
+    // batch order, under a single hierarchy lock acquisition. Field updates are
+    // then merged per task, later ones over earlier ones, and applied one lock
+    // stripe at a time, so a task changed several times in the batch is written,
+    // indexed and published once. Structural events are therefore published
+    // before any update in the batch, and an update to a task deleted anywhere in
+    // the batch, or concurrently, is not applied and is reported as failed. A
+    // failed operation is reported per item and doesn't stop the rest of the batch.
+    public BatchResult applyBatch(List<TaskOperation> operations) {
+        List<BatchResult.Item> items = new ArrayList<>(operations.size());
+        Map<Task, PendingUpdate> updates = new LinkedHashMap<>();
+        boolean structural = false;
+        for (TaskOperation operation : operations) {
+            if (operation.getType() == TaskOperation.Type.MOVE || operation.getType() == TaskOperation.Type.DELETE) {
+                structural = true;
+                break;
+            }
+        }
+
+        if (structural) {
+            hierarchyLock.lock();
+        }
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                TaskOperation operation = operations.get(i);
+                String error = apply(i, operation, updates);
+                items.add(error == null
+                        ? BatchResult.Item.applied(i, operation.getTaskId())
+                        : BatchResult.Item.failed(i, operation.getTaskId(), error));
+            }
+        } finally {
+            if (structural) {
+                hierarchyLock.unlock();
+            }
+        }
+
+        List<Task> deleted = new ArrayList<>();
+        Task.forEachLocked(updates.keySet(), task -> {
+            if (taskRepo.findById(task.getId()) == task) {
+                updates.get(task).applyTo(task);
+            } else {
+                deleted.add(task);
+            }
+        });
+        // Deleted later in the batch or concurrently, so nothing was written
+        for (Task task : deleted) {
+            for (int index : updates.get(task).operations) {
+                items.set(index, BatchResult.Item.failed(index, task.getId(),
+                        "Task not found with id: " + task.getId()));
+            }
+        }
+        return new BatchResult(items);
+    }
+
+    private String apply(int index, TaskOperation operation, Map<Task, PendingUpdate> updates) {
+        String taskId = operation.getTaskId();
+        Task task = taskId == null ? null : taskRepo.findById(taskId);
+        switch (operation.getType()) {
+            case UPDATE_STATUS:
+                if (operation.getStatus() == null) {
+                    return "Task status cannot be null";
+                }
+                if (task == null) {
+                    return "Task not found with id: " + taskId;
+                }
+                PendingUpdate pending = updates.computeIfAbsent(task, t -> new PendingUpdate());
+                pending.status = operation.getStatus();
+                pending.operations.add(index);
+                return null;
+            case UPDATE:
+                if (operation.getTitle() == null || operation.getTitle().trim().isEmpty()) {
+                    return "Task title cannot be empty";
+                }
+                if (operation.getStatus() == null) {
+                    return "Task status cannot be null";
+                }
+                if (task == null) {
+                    return "Task not found with id: " + taskId;
+                }
+                // Replaces the fields queued earlier for the task
+                PendingUpdate update = updates.computeIfAbsent(task, t -> new PendingUpdate());
+                update.details = true;
+                update.title = operation.getTitle();
+                update.description = operation.getDescription();
+                update.deadline = operation.getDeadline();
+                update.status = operation.getStatus();
+                update.operations.add(index);
+                return null;
+            default:
+                if (task == null) {
+                    return "Task not found with id: " + taskId;
+                }
+                try {
+                    if (operation.getType() == TaskOperation.Type.MOVE) {
+                        moveTask(taskId, operation.getParentTaskId());
+                    } else {
+                        deleteTask(taskId);
+                    }
+                    return null;
+                } catch (TaskNotFoundException | TaskManagementException e) {
+                    return e.getMessage();
+                }
+        }
+    }
+
+    // The merged field changes of one task within a batch
+    private static class PendingUpdate {
+        // Batch positions of the operations merged into this one
+        final List<Integer> operations = new ArrayList<>(1);
+        boolean details;
+        String title;
+        String description;
+        Date deadline;
+        TaskStatus status;
+
+        void applyTo(Task task) {
+            if (details) {
+                task.update(title, description, deadline, status);
+            } else {
+                task.setStatus(status);
+            }
+        }
     }
 
     public TaskRepository getTaskRepo() {
@@ -0,0 +1,117 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Hashed timing wheel: a ring of buckets, one per tick. A timeout lands in the
+// bucket of its deadline tick with the number of full turns still to wait, so
+// scheduling and cancelling are O(1) and the worker only looks at one bucket
+// per tick instead of polling every pending deadline.
+//
+// Buckets belong to the worker thread; other threads hand new timeouts over
+// through a queue and cancel by flagging them.
+class TimingWheel {
+    private final long tickMillis;
+    private final List<List<Timeout>> wheel;
+    private final int mask;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final long startMillis;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    TimingWheel(String name, long tickMillis, int ticksPerWheel) {
+        if (Integer.bitCount(ticksPerWheel) != 1) {
+            throw new IllegalArgumentException("Ticks per wheel must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = ticksPerWheel - 1;
+        this.wheel = new ArrayList<>(ticksPerWheel);
+        for (int i = 0; i < ticksPerWheel; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.startMillis = System.currentTimeMillis();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Runs the action on the worker thread at the first tick at or after the deadline
+    Timeout schedule(long deadlineMillis, Runnable action) {
+        Timeout timeout = new Timeout(deadlineMillis, action);
+        added.add(timeout);
+        return timeout;
+    }
+
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long tickEnd = startMillis + (tick + 1) * tickMillis;
+            long sleep = tickEnd - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            transferAdded();
+            expire(wheel.get((int) (tick & mask)), tickEnd);
+            tick++;
+        }
+    }
+
+    private void transferAdded() {
+        for (Timeout timeout = added.poll(); timeout != null; timeout = added.poll()) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            // Deadlines already passed go into the current bucket
+            long ticks = Math.max((timeout.deadline - startMillis) / tickMillis, tick);
+            timeout.remainingRounds = (ticks - tick) >> Integer.numberOfTrailingZeros(mask + 1);
+            wheel.get((int) (ticks & mask)).add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket, long tickEnd) {
+        for (Iterator<Timeout> it = bucket.iterator(); it.hasNext(); ) {
+            Timeout timeout = it.next();
+            if (timeout.cancelled) {
+                it.remove();
+            } else if (timeout.remainingRounds <= 0 && timeout.deadline < tickEnd) {
+                it.remove();
+                try {
+                    timeout.action.run();
+                } catch (RuntimeException e) {
+                    // One failing action must not stop the wheel
+                    worker.getUncaughtExceptionHandler().uncaughtException(worker, e);
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    static final class Timeout {
+        final long deadline;
+        final Runnable action;
+        long remainingRounds;
+        volatile boolean cancelled;
+
+        Timeout(long deadline, Runnable action) {
+            this.deadline = deadline;
+            this.action = action;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package service;
 
+import factory.IdGenerators;
+import model.Passwords;
 import model.User;
 import repository.UserRepository;
 import exception.UserNotFoundException;
@@ -18,13 +20,11 @@ public class UserService {
             throw new IllegalArgumentException("Password cannot be empty");
         }
         
-        User existingUser = userRepo.findByEmail(email);
-        if (existingUser != null) {
+        User user = new User(IdGenerators.nextId(), name, email, Passwords.hash(password));
+        // Check-and-insert is a single atomic step so concurrent registrations can't both win
+        if (userRepo.saveIfAbsent(user) != null) {
             throw new IllegalArgumentException("User with this email already exists");
         }
-        
-        User user = new User(name, email, password);
-        userRepo.save(user);
         return user;
     }
 
@@ -46,4 +46,8 @@ public class UserService {
         }
         return user;
     }
+
+    public UserRepository getUserRepo() {
+        return userRepo;
+    }
 }
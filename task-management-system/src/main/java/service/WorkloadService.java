@@ -0,0 +1,264 @@
+package service;
+
+import model.Task;
+import model.TaskStatus;
+import model.TaskPriority;
+import model.Story;
+import repository.ColumnarTaskStore;
+import repository.TaskIndex;
+import repository.TaskRepository;
+import repository.StoryRepository;
+import exception.UserNotFoundException;
+import exception.StoryNotFoundException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+public class WorkloadService {
+    private final TaskRepository taskRepo;
+    private final StoryRepository storyRepo;
+    private final UserService userService;
+    // userId -> counters maintained incrementally from task change events
+    private final Map<String, UserWorkload> workloads = new ConcurrentHashMap<>();
+    // Primitive columns for aggregations across all tasks
+    private final ColumnarTaskStore columns;
+
+    public WorkloadService(TaskRepository taskRepo, StoryRepository storyRepo, UserService userService) {
+        this.taskRepo = taskRepo;
+        this.storyRepo = storyRepo;
+        this.userService = userService;
+        this.columns = taskRepo.getColumns();
+        taskRepo.addIndex(new WorkloadIndex());
+    }
+
+    public Map<TaskStatus, Integer> getStatusCounts() {
+        return columns.countByStatus();
+    }
+
+    public Map<TaskPriority, Integer> getPriorityCounts() {
+        return columns.countByPriority();
+    }
+
+    public Map<String, Integer> getTaskCountsByUser() {
+        return columns.countByAssignee();
+    }
+
+    public int getOverdueCount(Date now) {
+        return columns.countOverdue(now.getTime());
+    }
+
+    public int getOverdueCount(String userId, Date now) {
+        // Verify user exists
+        userService.getUserById(userId);
+        return columns.countOverdue(userId, now.getTime());
+    }
+
+    public Map<TaskStatus, Integer> getUserWorkload(String userId) {
+        // Verify user exists
+        userService.getUserById(userId);
+
+        int[] statusCounts = workloadOf(userId).statusCounts();
+        Map<TaskStatus, Integer> workload = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            workload.put(status, statusCounts[status.ordinal()]);
+        }
+        return workload;
+    }
+
+    public Map<String, Object> getDetailedWorkload(String userId) {
+        UserWorkload.Snapshot snapshot = workloadOf(userId).snapshot();
+        Map<String, Object> detailedWorkload = new HashMap<>();
+
+        Map<TaskStatus, Integer> statusCount = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            statusCount.put(status, snapshot.statusCounts[status.ordinal()]);
+        }
+
+        Map<TaskPriority, Integer> priorityCount = new EnumMap<>(TaskPriority.class);
+        for (TaskPriority priority : TaskPriority.values()) {
+            priorityCount.put(priority, snapshot.priorityCounts[priority.ordinal()]);
+        }
+
+        detailedWorkload.put("statusCount", statusCount);
+        detailedWorkload.put("priorityCount", priorityCount);
+        detailedWorkload.put("totalTasks", snapshot.rootTasks);
+        detailedWorkload.put("totalSubtasks", snapshot.subtasks);
+
+        return detailedWorkload;
+    }
+
+    public Map<String, Object> getUserWorkloadDetails(String userId) {
+        // Verify user exists
+        userService.getUserById(userId);
+        
+        List<Task> allTasks = taskRepo.findAllByUserId(userId);
+        Map<String, Object> workloadDetails = new HashMap<>();
+        
+        // Separate tasks, subtasks, and stories
+        List<Task> rootTasks = new ArrayList<>();
+        List<Task> subtasks = new ArrayList<>();
+        
+        // Group tasks by their parent task
+        Map<String, List<Task>> tasksByParent = new HashMap<>();
+        
+        for (Task task : allTasks) {
+            String parentTaskId = task.getParentTaskId();
+            if (parentTaskId == null) {
+                rootTasks.add(task);
+            } else {
+                subtasks.add(task);
+                tasksByParent.computeIfAbsent(parentTaskId, k -> new ArrayList<>()).add(task);
+            }
+        }
+        
+        // Stories touching any of the user's tasks, via the task -> story index
+        List<Story> stories = storyRepo.findAllByTaskIds(
+                allTasks.stream().map(Task::getId).collect(Collectors.toList()));
+        
+        // Add all components to the result
+        workloadDetails.put("rootTasks", rootTasks);
+        workloadDetails.put("subtasks", subtasks);
+        workloadDetails.put("stories", stories);
+        workloadDetails.put("tasksByParent", tasksByParent);
+        
+        // Add summary counts
+        Map<String, Integer> summary = new HashMap<>();
+        summary.put("totalRootTasks", rootTasks.size());
+        summary.put("totalSubtasks", subtasks.size());
+        summary.put("totalStories", stories.size());
+        workloadDetails.put("summary", summary);
+        
+        return workloadDetails;
+    }
+
+    private UserWorkload workloadOf(String userId) {
+        UserWorkload workload = workloads.get(userId);
+        return workload != null ? workload : UserWorkload.EMPTY;
+    }
+
+    private UserWorkload workloadFor(String userId) {
+        return workloads.computeIfAbsent(userId, k -> new UserWorkload());
+    }
+
+    private class WorkloadIndex implements TaskIndex {
+        @Override
+        public void onSave(Task task) {
+            String userId = task.getAssignedUserId();
+            if (userId != null) {
+                workloadFor(userId).add(task.getStatus(), task.getPriority(), task.getParentTaskId() == null, 1);
+            }
+        }
+
+        @Override
+        public void onDelete(Task task) {
+            String userId = task.getAssignedUserId();
+            if (userId != null) {
+                workloadFor(userId).add(task.getStatus(), task.getPriority(), task.getParentTaskId() == null, -1);
+            }
+        }
+
+        @Override
+        public void onAssigneeChanged(Task task, String oldUserId, String newUserId) {
+            boolean root = task.getParentTaskId() == null;
+            if (oldUserId != null) {
+                workloadFor(oldUserId).add(task.getStatus(), task.getPriority(), root, -1);
+            }
+            if (newUserId != null) {
+                workloadFor(newUserId).add(task.getStatus(), task.getPriority(), root, 1);
+            }
+        }
+
+        @Override
+        public void onStatusChanged(Task task, TaskStatus oldStatus, TaskStatus newStatus) {
+            String userId = task.getAssignedUserId();
+            if (userId != null) {
+                workloadFor(userId).moveStatus(oldStatus, newStatus);
+            }
+        }
+
+        @Override
+        public void onPriorityChanged(Task task, TaskPriority oldPriority, TaskPriority newPriority) {
+            String userId = task.getAssignedUserId();
+            if (userId != null) {
+                workloadFor(userId).movePriority(oldPriority, newPriority);
+            }
+        }
+
+        @Override
+        public void onParentChanged(Task task, String oldParentTaskId, String newParentTaskId) {
+            String userId = task.getAssignedUserId();
+            if (userId != null && (oldParentTaskId == null) != (newParentTaskId == null)) {
+                workloadFor(userId).moveRoot(newParentTaskId == null);
+            }
+        }
+    }
+
+    // Per-user counters indexed by enum ordinal; all access is synchronized on the instance
+    private static class UserWorkload {
+        static final UserWorkload EMPTY = new UserWorkload();
+
+        private final int[] statusCounts = new int[TaskStatus.values().length];
+        private final int[] priorityCounts = new int[TaskPriority.values().length];
+        private int rootTasks;
+        private int subtasks;
+
+        synchronized void add(TaskStatus status, TaskPriority priority, boolean root, int delta) {
+            statusCounts[status.ordinal()] += delta;
+            if (priority != null) {
+                priorityCounts[priority.ordinal()] += delta;
+            }
+            if (root) {
+                rootTasks += delta;
+            } else {
+                subtasks += delta;
+            }
+        }
+
+        synchronized void moveStatus(TaskStatus oldStatus, TaskStatus newStatus) {
+            statusCounts[oldStatus.ordinal()]--;
+            statusCounts[newStatus.ordinal()]++;
+        }
+
+        synchronized void movePriority(TaskPriority oldPriority, TaskPriority newPriority) {
+            if (oldPriority != null) {
+                priorityCounts[oldPriority.ordinal()]--;
+            }
+            if (newPriority != null) {
+                priorityCounts[newPriority.ordinal()]++;
+            }
+        }
+
+        synchronized void moveRoot(boolean nowRoot) {
+            if (nowRoot) {
+                rootTasks++;
+                subtasks--;
+            } else {
+                rootTasks--;
+                subtasks++;
+            }
+        }
+
+        synchronized int[] statusCounts() {
+            return statusCounts.clone();
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(statusCounts.clone(), priorityCounts.clone(), rootTasks, subtasks);
+        }
+
+        static class Snapshot {
+            final int[] statusCounts;
+            final int[] priorityCounts;
+            final int rootTasks;
+            final int subtasks;
+
+            Snapshot(int[] statusCounts, int[] priorityCounts, int rootTasks, int subtasks) {
+                this.statusCounts = statusCounts;
+                this.priorityCounts = priorityCounts;
+                this.rootTasks = rootTasks;
+                this.subtasks = subtasks;
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import app.TaskManagementApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = TaskManagementApplication.class,
+        properties = {"spring.security.user.name=test", "spring.security.user.password=secret",
+                "task-management.data-dir=target/api-test-${random.uuid}"})
+@AutoConfigureMockMvc
+public class ApiTest {
+    private static final String AUTHORIZATION = "Basic "
+            + Base64.getEncoder().encodeToString("test:secret".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper json;
+
+    private JsonNode call(MockHttpServletRequestBuilder request, ResultMatcher expected) throws Exception {
+        String body = mvc.perform(request.header("Authorization", AUTHORIZATION))
+                .andExpect(expected)
+                .andReturn().getResponse().getContentAsString();
+        return body.isEmpty() ? null : json.readTree(body);
+    }
+
+    private JsonNode call(MockHttpServletRequestBuilder request, String body, ResultMatcher expected) throws Exception {
+        return call(request.contentType(MediaType.APPLICATION_JSON).content(body), expected);
+    }
+
+    private String registerUser() throws Exception {
+        return call(post("/api/users"), "{\"name\":\"Alice\",\"email\":\"" + UUID.randomUUID() + "@example.com\","
+                + "\"password\":\"password\"}", status().isCreated()).get("id").asText();
+    }
+
+    private static String task(String title, String userId, String parentTaskId) {
+        return "{\"title\":\"" + title + "\",\"description\":\"Description\",\"deadline\":"
+                + System.currentTimeMillis() + ",\"userId\":\"" + userId + "\""
+                + (parentTaskId == null ? "" : ",\"parentTaskId\":\"" + parentTaskId + "\"") + "}";
+    }
+
+    @Test
+    void testTaskLifecycle() throws Exception {
+        String userId = registerUser();
+        JsonNode parent = call(post("/api/tasks"), task("Parent", userId, null), status().isCreated());
+        String parentId = parent.get("id").asText();
+        JsonNode child = call(post("/api/tasks"), task("Child", userId, parentId), status().isCreated());
+        String childId = child.get("id").asText();
+        assertEquals(parentId, child.get("parentTaskId").asText());
+        assertEquals(childId, call(get("/api/tasks/" + parentId), status().isOk()).get("subtaskIds").get(0).asText());
+        assertEquals(2, call(get("/api/tasks").param("userId", userId), status().isOk()).size());
+
+        JsonNode updated = call(put("/api/tasks/" + childId), "{\"title\":\"Renamed\",\"description\":\"Done\","
+                + "\"deadline\":0,\"status\":\"COMPLETED\"}", status().isOk());
+        assertEquals("Renamed", updated.get("title").asText());
+        assertEquals("COMPLETED", updated.get("status").asText());
+        assertEquals(1, call(get("/api/tasks/" + parentId + "/summary"), status().isOk())
+                .get("descendantCount").asInt());
+
+        JsonNode moved = call(put("/api/tasks/" + childId + "/parent"), "{\"parentTaskId\":null}", status().isOk());
+        assertTrue(moved.get("parentTaskId").isNull());
+
+        call(delete("/api/tasks/" + parentId), status().isNoContent());
+        JsonNode error = call(get("/api/tasks/" + parentId), status().isNotFound());
+        assertEquals("Task not found with id: " + parentId, error.get("message").asText());
+        call(get("/api/tasks/" + childId), status().isOk());
+    }
+
+    @Test
+    void testBatchReportsEachOperation() throws Exception {
+        String userId = registerUser();
+        String first = call(post("/api/tasks"), task("First", userId, null), status().isCreated()).get("id").asText();
+        String second = call(post("/api/tasks"), task("Second", userId, null), status().isCreated()).get("id").asText();
+        JsonNode items = call(post("/api/tasks/batch"), "{\"operations\":["
+                + "{\"type\":\"UPDATE_STATUS\",\"taskId\":\"" + first + "\",\"status\":\"COMPLETED\"},"
+                + "{\"type\":\"MOVE\",\"taskId\":\"" + second + "\",\"parentTaskId\":\"" + first + "\"},"
+                + "{\"type\":\"DELETE\",\"taskId\":\"missing\"}]}", status().isOk());
+        assertEquals(3, items.size());
+        assertTrue(items.get(0).get("success").asBoolean());
+        assertTrue(items.get(1).get("success").asBoolean());
+        assertEquals("Task not found with id: missing", items.get(2).get("error").asText());
+        assertEquals("COMPLETED", call(get("/api/tasks/" + first), status().isOk()).get("status").asText());
+        assertEquals(first, call(get("/api/tasks/" + second), status().isOk()).get("parentTaskId").asText());
+        call(post("/api/tasks/batch"), "{\"operations\":[{\"taskId\":\"" + first + "\"}]}", status().isBadRequest());
+    }
+
+    @Test
+    void testConditionalWritesUseETags() throws Exception {
+        String userId = registerUser();
+        String taskId = call(post("/api/tasks"), task("Task", userId, null), status().isCreated()).get("id").asText();
+        String etag = mvc.perform(get("/api/tasks/" + taskId).header("Authorization", AUTHORIZATION))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        String update = "{\"title\":\"Renamed\",\"description\":\"Done\",\"deadline\":0,\"status\":\"IN_PROGRESS\"}";
+
+        JsonNode updated = call(put("/api/tasks/" + taskId).header("If-Match", etag), update, status().isOk());
+        assertEquals(etag, "\"" + (updated.get("version").asLong() - 1) + "\"");
+        JsonNode stale = call(put("/api/tasks/" + taskId).header("If-Match", etag), update,
+                status().isPreconditionFailed());
+        assertEquals(412, stale.get("status").asInt());
+        call(patch("/api/tasks/" + taskId).header("If-Match", etag), "{\"status\":\"COMPLETED\"}",
+                status().isPreconditionFailed());
+
+        JsonNode patched = call(patch("/api/tasks/" + taskId), "{\"status\":\"COMPLETED\"}", status().isOk());
+        assertEquals("Renamed", patched.get("title").asText());
+        assertEquals("COMPLETED", patched.get("status").asText());
+        call(put("/api/tasks/" + taskId).header("If-Match", "not-a-tag"), update, status().isBadRequest());
+
+        // Even a weak tag naming the current version fails the strong comparison
+        String current = "W/\"" + patched.get("version").asLong() + "\"";
+        call(put("/api/tasks/" + taskId).header("If-Match", current), update, status().isPreconditionFailed());
+        call(patch("/api/tasks/" + taskId).header("If-Match", current), "{\"status\":\"IN_PROGRESS\"}",
+                status().isPreconditionFailed());
+        assertEquals("COMPLETED", call(get("/api/tasks/" + taskId), status().isOk()).get("status").asText());
+    }
+
+    @Test
+    void testStoryEndpoints() throws Exception {
+        String userId = registerUser();
+        String taskId = call(post("/api/tasks"), task("Task", userId, null), status().isCreated()).get("id").asText();
+        JsonNode story = call(post("/api/stories"), "{\"title\":\"Story\",\"description\":\"Description\","
+                + "\"taskIds\":[\"" + taskId + "\"]}", status().isCreated());
+        String storyId = story.get("id").asText();
+        assertEquals(taskId, call(get("/api/stories/" + storyId), status().isOk()).get("taskIds").get(0).asText());
+        assertEquals(1, call(get("/api/stories/" + storyId + "/progress"), status().isOk()).get("total").asInt());
+        call(get("/api/stories/missing"), status().isNotFound());
+        call(post("/api/stories"), "{\"title\":\"Story\",\"taskIds\":[\"missing\"]}", status().isNotFound());
+    }
+
+    @Test
+    void testErrorsAreMappedToStatuses() throws Exception {
+        mvc.perform(get("/api/tasks/anything")).andExpect(status().isUnauthorized());
+
+        String userId = registerUser();
+        JsonNode error = call(post("/api/tasks"), task(" ", userId, null), status().isBadRequest());
+        assertEquals(400, error.get("status").asInt());
+        assertEquals("Task title cannot be empty", error.get("message").asText());
+
+        String taskId = call(post("/api/tasks"), task("Task", userId, null), status().isCreated()).get("id").asText();
+        call(put("/api/tasks/" + taskId + "/parent"), "{\"parentTaskId\":\"" + taskId + "\"}", status().isConflict());
+        call(put("/api/tasks/" + taskId), "{\"title\":\"Task\"}", status().isBadRequest());
+
+        String email = UUID.randomUUID() + "@example.com";
+        String user = "{\"name\":\"Bob\",\"email\":\"" + email + "\",\"password\":\"password\"}";
+        call(post("/api/users"), user, status().isCreated());
+        call(post("/api/users"), user, status().isBadRequest());
+        call(post("/api/users/login"), "{\"email\":\"" + email + "\",\"password\":\"password\"}", status().isOk());
+        call(post("/api/users/login"), "{\"email\":\"" + email + "\",\"password\":\"wrong\"}",
+                status().isUnauthorized());
+        call(get("/api/users/missing"), status().isNotFound());
+    }
+
+    @Test
+    void testRegistrationAndLoginNeedNoCredentials() throws Exception {
+        String email = UUID.randomUUID() + "@example.com";
+        mvc.perform(post("/api/users").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Carol\",\"email\":\"" + email + "\",\"password\":\"password\"}"))
+                .andExpect(status().isCreated());
+        mvc.perform(post("/api/users/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + email + "\",\"password\":\"password\"}"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/users/missing")).andExpect(status().isUnauthorized());
+    }
+}
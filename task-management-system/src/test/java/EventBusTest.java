@@ -0,0 +1,249 @@
+import event.DomainEvent;
+import event.EventBus;
+import event.EventHandler;
+import event.Subscription;
+import model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventBusTest {
+    private UserService userService;
+    private TaskService taskService;
+    private StoryService storyService;
+    private EventBus bus;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService();
+        taskService = new TaskService();
+        storyService = new StoryService(taskService.getTaskRepo());
+        bus = new EventBus(64, userService, taskService, storyService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bus.close();
+    }
+
+    // Records events with their sequence numbers
+    private static class Recorder {
+        final List<DomainEvent> events = new CopyOnWriteArrayList<>();
+        final List<Long> sequences = new CopyOnWriteArrayList<>();
+        final List<Boolean> batchEnds = new CopyOnWriteArrayList<>();
+
+        void onEvent(DomainEvent event, long sequence, boolean endOfBatch) {
+            events.add(event);
+            sequences.add(sequence);
+            batchEnds.add(endOfBatch);
+        }
+    }
+
+    @Test
+    void testPublishesTypedEventForEveryMutation() throws Exception {
+        Task existing = taskService.createTask("Existing", "Description", new Date(), null);
+        Recorder recorder = new Recorder();
+        Subscription subscription = bus.subscribe(recorder::onEvent);
+
+        User user = userService.register("Alice", "alice@example.com", "password");
+        Task parent = taskService.createTask("Parent", "Description", new Date(), user.getId());
+        Task child = taskService.createSubtask(parent.getId(), "Child", "Description", new Date(), user.getId());
+        taskService.updateTask(child.getId(), "Renamed", "Changed", new Date(0), TaskStatus.IN_PROGRESS);
+        child.setAssignedUserId("someone-else");
+        taskService.moveTask(child.getId(), existing.getId());
+        storyService.createStory("Story", "Description", List.of(parent));
+        taskService.deleteTask(existing.getId());
+        subscription.awaitCaughtUp();
+
+        List<String> types = new ArrayList<>();
+        for (DomainEvent event : recorder.events) {
+            types.add(event.getClass().getSimpleName());
+        }
+        assertEquals(List.of("UserRegistered", "TaskCreated", "TaskCreated", "TaskUpdated", "TaskAssigned",
+                "TaskMoved", "StoryCreated", "TaskDeleted", "TaskDeleted"), types);
+
+        DomainEvent.TaskCreated created = (DomainEvent.TaskCreated) recorder.events.get(2);
+        assertEquals(child.getId(), created.getTaskId());
+        assertEquals(parent.getId(), created.getParentTaskId());
+        assertEquals(TaskStatus.IN_PROGRESS, ((DomainEvent.TaskUpdated) recorder.events.get(3)).getState().getStatus());
+        DomainEvent.TaskMoved moved = (DomainEvent.TaskMoved) recorder.events.get(5);
+        assertEquals(List.of(parent.getId()), moved.getOldAncestorIds());
+        assertEquals(List.of(existing.getId()), moved.getNewAncestorIds());
+        assertEquals(List.of(parent.getId()), ((DomainEvent.StoryCreated) recorder.events.get(6)).getTaskIds());
+        // Creating the existing task was event 0, before the subscription
+        for (int i = 0; i < recorder.sequences.size(); i++) {
+            assertEquals(Long.valueOf(i + 1), recorder.sequences.get(i));
+        }
+        assertTrue(recorder.batchEnds.get(recorder.batchEnds.size() - 1));
+    }
+
+    @Test
+    void testResumesFromSequenceAndRejectsOverwrittenOnes() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            taskService.createTask("Task " + i, "Description", new Date(), null);
+        }
+        Recorder recorder = new Recorder();
+        Subscription resumed = bus.subscribe(recorder::onEvent, 4);
+        resumed.awaitCaughtUp();
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L), recorder.sequences);
+        assertEquals(9, resumed.getSequence());
+        bus.unsubscribe(resumed);
+
+        // The ring holds 64 events, so the first ones are gone after 100 more
+        for (int i = 0; i < 100; i++) {
+            taskService.createTask("More " + i, "Description", new Date(), null);
+        }
+        assertEquals(109, bus.getSequence());
+        assertEquals(46, bus.getOldestSequence());
+        assertThrows(IllegalArgumentException.class, () -> bus.subscribe(recorder::onEvent, 45));
+        assertThrows(IllegalArgumentException.class, () -> bus.subscribe(recorder::onEvent, 111));
+        bus.subscribe(recorder::onEvent, 46).awaitCaughtUp();
+    }
+
+    @Test
+    void testConcurrentProducersPublishEveryEventInOrder() throws Exception {
+        bus.close();
+        bus = new EventBus(1 << 14, userService, taskService, storyService);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        Set<String> created = ConcurrentHashMap.newKeySet();
+        Subscription subscription = bus.subscribe((event, sequence, endOfBatch) -> {
+            seen.add(sequence);
+            created.add(((DomainEvent.TaskCreated) event).getTaskId());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2500; i++) {
+                    ids.add(taskService.createTask("Task", "Description", new Date(), null).getId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        subscription.awaitCaughtUp();
+
+        assertEquals(10000, seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(Long.valueOf(i), seen.get(i));
+        }
+        assertEquals(ids, created);
+    }
+
+    @Test
+    void testSlowSubscriberHoldsProducersBackInsteadOfLosingEvents() throws Exception {
+        bus.close();
+        // A wait no scheduler hiccup outlasts, so only a stuck subscriber would be cut off
+        bus = new EventBus(64, 10_000, userService, taskService, storyService);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        Subscription slow = bus.subscribe((event, sequence, endOfBatch) -> {
+            seen.add(sequence);
+            Thread.sleep(1);
+        });
+        // Three rings' worth, each event read well within the publish wait
+        for (int i = 0; i < 200; i++) {
+            taskService.createTask("Task " + i, "Description", new Date(), null);
+        }
+        slow.awaitCaughtUp();
+        assertTrue(slow.isRunning());
+        assertEquals(200, seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(Long.valueOf(i), seen.get(i));
+        }
+    }
+
+    @Test
+    void testProducersWrappingATinyRingNeverHideANewerEvent() throws Exception {
+        bus.close();
+        // No publish wait, so producers lap each other and stalled ones find their slot reused
+        bus = new EventBus(4, 0, userService, taskService, storyService);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            for (int round = 0; round < 300; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 16; t++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < 20; i++) {
+                            taskService.createTask("Task", "Description", new Date(), null);
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+
+                // Once publishing stops the ring holds the last four events, and a new subscriber gets all of them
+                long end = bus.getSequence();
+                Recorder recorder = new Recorder();
+                Subscription last = bus.subscribe(recorder::onEvent, bus.getOldestSequence());
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        last.awaitCaughtUp();
+                    } catch (InterruptedException e) {
+                        throw new CompletionException(e);
+                    }
+                }).get(10, TimeUnit.SECONDS);
+                assertTrue(last.isRunning());
+                assertEquals(List.of(end - 3, end - 2, end - 1, end), recorder.sequences);
+                bus.unsubscribe(last);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testStuckSubscriberIsCutOffAfterHoldingProducersBackBriefly() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        CompletableFuture<Long> overrun = new CompletableFuture<>();
+        Subscription stuck = bus.subscribe(new EventHandler() {
+            @Override
+            public void onEvent(DomainEvent event, long sequence, boolean endOfBatch) throws Exception {
+                seen.add(sequence);
+                release.await();
+            }
+
+            @Override
+            public void onOverrun(long missedSequence) {
+                overrun.complete(missedSequence);
+            }
+        });
+        // The ring holds 64 events; the 65th waits 100ms for the stuck subscriber, then cuts it off
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> {
+            for (int i = 0; i < 200; i++) {
+                taskService.createTask("Task " + i, "Description", new Date(), null);
+            }
+        }).get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        release.countDown();
+
+        long missed = overrun.get(10, TimeUnit.SECONDS);
+        assertFalse(stuck.isRunning());
+        assertTrue(missed < 200 - 64);
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(Long.valueOf(i), seen.get(i));
+        }
+        assertEquals(missed, seen.size());
+
+        // It can start over from whatever the ring still holds
+        Recorder recorder = new Recorder();
+        bus.subscribe(recorder::onEvent, bus.getOldestSequence()).awaitCaughtUp();
+        assertEquals(64, recorder.sequences.size());
+    }
+}
@@ -0,0 +1,270 @@
+import event.EventBus;
+import model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import push.PushSink;
+import push.PushSubscription;
+import push.SubscriptionHub;
+import push.TaskDelta;
+import service.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PushTest {
+    private UserService userService;
+    private TaskService taskService;
+    private StoryService storyService;
+    private EventBus bus;
+    private SubscriptionHub hub;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService();
+        taskService = new TaskService();
+        storyService = new StoryService(taskService.getTaskRepo());
+        bus = new EventBus(1024, userService, taskService, storyService);
+        hub = new SubscriptionHub(bus, taskService.getTaskRepo(), storyService.getStoryRepo(), 16, 5, 1000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.close();
+        bus.close();
+    }
+
+    // Applies every batch to a view of the topic, as a client would
+    private static class ViewSink implements PushSink {
+        final Map<String, TaskDelta> view = new ConcurrentHashMap<>();
+        final List<List<TaskDelta>> batches = new CopyOnWriteArrayList<>();
+        volatile String closeReason;
+
+        @Override
+        public void send(List<TaskDelta> batch) {
+            batches.add(batch);
+            for (TaskDelta delta : batch) {
+                if (delta.getType() == TaskDelta.Type.REMOVED) {
+                    view.remove(delta.getTaskId());
+                } else {
+                    view.put(delta.getTaskId(), delta);
+                }
+            }
+        }
+
+        @Override
+        public void close(String reason) {
+            closeReason = reason;
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for push");
+            Thread.sleep(2);
+        }
+    }
+
+    @Test
+    void testUserTopicGetsSnapshotThenChanges() throws Exception {
+        User alice = userService.register("Alice", "alice@example.com", "password");
+        User bob = userService.register("Bob", "bob@example.com", "password");
+        Task first = taskService.createTask("First", "Description", new Date(), alice.getId());
+        ViewSink sink = new ViewSink();
+        hub.subscribeToUser(alice.getId(), sink);
+        await(() -> sink.view.containsKey(first.getId()));
+        assertEquals("First", sink.view.get(first.getId()).getTitle());
+
+        Task second = taskService.createTask("Second", "Description", new Date(), alice.getId());
+        taskService.updateTaskStatus(first.getId(), TaskStatus.IN_PROGRESS);
+        await(() -> sink.view.containsKey(second.getId())
+                && sink.view.get(first.getId()).getStatus() == TaskStatus.IN_PROGRESS);
+
+        taskService.reassignSubtree(second.getId(), bob.getId());
+        await(() -> !sink.view.containsKey(second.getId()));
+        assertEquals(Set.of(first.getId()), sink.view.keySet());
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    @Test
+    void testSnapshotLargerThanTheQueueIsDeliveredInBatches() throws Exception {
+        User alice = userService.register("Alice", "alice@example.com", "password");
+        for (int i = 0; i < 40; i++) {
+            taskService.createTask("Task " + i, "Description", new Date(), alice.getId());
+        }
+        // A hub that follows the bus from here on, so the 40 creations reach it only through the snapshot
+        SubscriptionHub fresh = new SubscriptionHub(bus, taskService.getTaskRepo(), storyService.getStoryRepo(),
+                16, 5, 1000, 2);
+        ViewSink sink = new ViewSink();
+        PushSubscription subscription = fresh.subscribeToUser(alice.getId(), sink);
+        await(() -> sink.view.size() == 40);
+        for (List<TaskDelta> batch : sink.batches) {
+            assertTrue(batch.size() <= 16, "Batch of " + batch.size() + " exceeds the queue size");
+        }
+
+        Task later = taskService.createTask("Later", "Description", new Date(), alice.getId());
+        await(() -> sink.view.containsKey(later.getId()));
+        assertFalse(subscription.isClosed());
+        assertNull(sink.closeReason);
+        assertEquals(0, fresh.getDroppedCount());
+        fresh.close();
+    }
+
+    @Test
+    void testUnassignedTasksReachNoUserTopic() throws Exception {
+        User alice = userService.register("Alice", "alice@example.com", "password");
+        ViewSink nobody = new ViewSink();
+        ViewSink aliceSink = new ViewSink();
+        hub.subscribeToUser("null", nobody);
+        hub.subscribeToUser(alice.getId(), aliceSink);
+
+        Task unassigned = taskService.createTask("Unassigned", "Description", new Date(), null);
+        taskService.updateTaskStatus(unassigned.getId(), TaskStatus.IN_PROGRESS);
+        taskService.deleteTask(unassigned.getId());
+        // Events reach the hub in order, so once Alice's task arrives the others were routed
+        Task assigned = taskService.createTask("Assigned", "Description", new Date(), alice.getId());
+        await(() -> aliceSink.view.containsKey(assigned.getId()));
+        Thread.sleep(20);
+        assertTrue(nobody.batches.isEmpty());
+    }
+
+    @Test
+    void testBurstToOneTaskIsCoalesced() throws Exception {
+        User alice = userService.register("Alice", "alice@example.com", "password");
+        Task task = taskService.createTask("Task", "Description", new Date(), alice.getId());
+        ViewSink sink = new ViewSink();
+        hub.subscribeToUser(alice.getId(), sink);
+        await(() -> !sink.batches.isEmpty());
+
+        for (int i = 0; i < 200; i++) {
+            taskService.updateTask(task.getId(), "Title " + i, "Description", new Date(), TaskStatus.PENDING);
+        }
+        await(() -> "Title 199".equals(sink.view.get(task.getId()).getTitle()));
+        int deltas = 0;
+        for (List<TaskDelta> batch : sink.batches) {
+            deltas += batch.size();
+        }
+        assertTrue(deltas < 200, "Expected the burst to be coalesced, got " + deltas + " deltas");
+    }
+
+    @Test
+    void testSubtreeTopicFollowsMovesAndDeletes() throws Exception {
+        Task root = taskService.createTask("Root", "Description", new Date(), null);
+        Task child = taskService.createSubtask(root.getId(), "Child", "Description", new Date(), null);
+        Task other = taskService.createTask("Other", "Description", new Date(), null);
+        Task leaf = taskService.createSubtask(other.getId(), "Leaf", "Description", new Date(), null);
+        ViewSink sink = new ViewSink();
+        hub.subscribeToSubtree(root.getId(), sink);
+        await(() -> sink.view.keySet().equals(Set.of(root.getId(), child.getId())));
+
+        taskService.moveTask(other.getId(), child.getId());
+        await(() -> sink.view.keySet().equals(Set.of(root.getId(), child.getId(), other.getId(), leaf.getId())));
+        assertEquals(child.getId(), sink.view.get(other.getId()).getParentTaskId());
+
+        taskService.updateTaskStatus(leaf.getId(), TaskStatus.IN_PROGRESS);
+        await(() -> sink.view.get(leaf.getId()).getStatus() == TaskStatus.IN_PROGRESS);
+
+        taskService.moveTask(other.getId(), null);
+        await(() -> sink.view.keySet().equals(Set.of(root.getId(), child.getId())));
+
+        taskService.deleteTask(child.getId());
+        await(() -> sink.view.keySet().equals(Set.of(root.getId())));
+        assertThrows(exception.TaskNotFoundException.class, () -> hub.subscribeToSubtree("missing", new ViewSink()));
+    }
+
+    @Test
+    void testStoryTopicFollowsMembership() throws Exception {
+        Task task = taskService.createTask("Task", "Description", new Date(), null);
+        Story story = storyService.createStory("Story", "Description", List.of(task));
+        ViewSink sink = new ViewSink();
+        hub.subscribeToStory(story.getId(), sink);
+        await(() -> sink.view.containsKey(task.getId()));
+
+        taskService.updateTaskStatus(task.getId(), TaskStatus.IN_PROGRESS);
+        await(() -> sink.view.get(task.getId()).getStatus() == TaskStatus.IN_PROGRESS);
+        taskService.deleteTask(task.getId());
+        await(sink.view::isEmpty);
+    }
+
+    @Test
+    void testSlowSubscriberIsDroppedWithoutHoldingOthersBack() throws Exception {
+        User alice = userService.register("Alice", "alice@example.com", "password");
+        CountDownLatch release = new CountDownLatch(1);
+        ViewSink stuck = new ViewSink() {
+            @Override
+            public void send(List<TaskDelta> batch) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        ViewSink healthy = new ViewSink();
+        PushSubscription slow = hub.subscribeToUser(alice.getId(), stuck);
+        hub.subscribeToUser(alice.getId(), healthy);
+
+        // The first task is picked up by the stuck flush, the next 16 fill its
+        // queue; the healthy subscriber keeps up with batches of 8
+        Task first = taskService.createTask("Task", "Description", new Date(), alice.getId());
+        await(() -> healthy.view.size() == 1);
+        for (int i = 0; i < 40; i++) {
+            taskService.createTask("Task " + i, "Description", new Date(), alice.getId());
+            if (i % 8 == 7) {
+                int expected = i + 2;
+                await(() -> healthy.view.size() == expected);
+            }
+        }
+        await(() -> stuck.closeReason != null);
+        assertTrue(slow.isClosed());
+        assertEquals(1, hub.getDroppedCount());
+        assertEquals(1, hub.getSubscriberCount());
+        assertTrue(healthy.view.containsKey(first.getId()));
+        release.countDown();
+    }
+
+    @Test
+    void testHubThatMissedEventsClosesEveryStreamAndFollowsTheBusAgain() throws Exception {
+        User alice = userService.register("Alice", "alice@example.com", "password");
+        ViewSink before = new ViewSink();
+        hub.subscribeToUser(alice.getId(), before);
+
+        // What the bus reports when the hub fell a full ring behind
+        hub.onOverrun(bus.getSequence());
+        await(() -> before.closeReason != null);
+        assertTrue(before.closeReason.contains("reconnect"));
+        assertEquals(0, hub.getSubscriberCount());
+
+        ViewSink after = new ViewSink();
+        hub.subscribeToUser(alice.getId(), after);
+        Task task = taskService.createTask("Task", "Description", new Date(), alice.getId());
+        await(() -> after.view.containsKey(task.getId()));
+    }
+
+    @Test
+    void testSubscriberThatReceivesTooSlowlyIsDropped() throws Exception {
+        User alice = userService.register("Alice", "alice@example.com", "password");
+        SubscriptionHub strict = new SubscriptionHub(bus, taskService.getTaskRepo(), storyService.getStoryRepo(),
+                16, 5, 20, 2);
+        ViewSink slow = new ViewSink() {
+            @Override
+            public void send(List<TaskDelta> batch) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        PushSubscription subscription = strict.subscribeToUser(alice.getId(), slow);
+        taskService.createTask("Task", "Description", new Date(), alice.getId());
+        await(() -> slow.closeReason != null);
+        assertTrue(subscription.isClosed());
+        assertEquals(0, strict.getSubscriberCount());
+        strict.close();
+    }
+}
@@ -0,0 +1,102 @@
+import model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import search.InvertedIndex;
+import search.SearchHit;
+import search.Tokenizer;
+import service.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchTest {
+    private TaskService taskService;
+    private StoryService storyService;
+    private SearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        taskService = new TaskService();
+        storyService = new StoryService(taskService.getTaskRepo());
+        searchService = new SearchService(taskService.getTaskRepo(), storyService.getStoryRepo());
+    }
+
+    private static List<String> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void testTokenizerLowercasesAndSplitsOnPunctuation() {
+        assertEquals(List.of("fix", "login", "bug", "on", "ios", "17", "ünïcode"),
+                Tokenizer.tokenize("Fix LOGIN-bug on iOS 17! Ünïcode"));
+    }
+
+    @Test
+    void testRanksByRelevanceAndRequiresEveryWord() {
+        Task exact = taskService.createTask("Database migration", "Migrate the database schema", new Date(), null);
+        Task mention = taskService.createTask("Release notes", "Mention the database migration and many other things "
+                + "that happened during the release", new Date(), null);
+        taskService.createTask("Database backup", "Nightly backups", new Date(), null);
+        Story story = storyService.createStory("Migration epic", "Everything about the database migration", List.of());
+
+        // The long description that only mentions both words ranks last
+        List<SearchHit> hits = searchService.search("database MIGRATION", 10);
+        assertEquals(Set.of(exact.getId(), story.getId()), new HashSet<>(ids(hits.subList(0, 2))));
+        assertEquals(mention.getId(), hits.get(2).getId());
+        assertEquals(SearchHit.Type.STORY,
+                hits.stream().filter(hit -> hit.getId().equals(story.getId())).findFirst().get().getType());
+        assertTrue(hits.get(1).getScore() > hits.get(2).getScore());
+        assertTrue(searchService.search("database unicorn", 10).isEmpty());
+        assertEquals(1, searchService.search("database", 1).size());
+    }
+
+    @Test
+    void testTypeaheadMatchesPrefixOfLastWord() {
+        Task login = taskService.createTask("Login page", "Build the login form", new Date(), null);
+        Task logout = taskService.createTask("Logout button", "Clear the session", new Date(), null);
+        taskService.createTask("Landing page", "Marketing", new Date(), null);
+
+        assertEquals(Set.of(login.getId(), logout.getId()), new HashSet<>(ids(searchService.typeahead("lo", 10))));
+        assertEquals(List.of(login.getId()), ids(searchService.typeahead("page log", 10)));
+        assertTrue(searchService.search("lo", 10).isEmpty());
+    }
+
+    @Test
+    void testFollowsUpdatesAndDeletes() {
+        Task task = taskService.createTask("Old title", "Old words", new Date(), null);
+        taskService.updateTask(task.getId(), "New title", "Fresh words", new Date(), TaskStatus.IN_PROGRESS);
+        assertTrue(searchService.search("old", 10).isEmpty());
+        assertEquals(List.of(task.getId()), ids(searchService.search("fresh title", 10)));
+
+        taskService.deleteTask(task.getId());
+        assertTrue(searchService.search("fresh", 10).isEmpty());
+    }
+
+    @Test
+    void testCompactionKeepsResultsIntact() {
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < 5000; i++) {
+            index.put(SearchHit.Type.TASK, "task-" + i, "common word" + (i % 10), i % 2 == 0 ? "even" : "odd");
+        }
+        // Rewrite every document several times and remove some, forcing compactions
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5000; i++) {
+                index.put(SearchHit.Type.TASK, "task-" + i, "common word" + (i % 10), i % 2 == 0 ? "even" : "odd");
+            }
+        }
+        for (int i = 0; i < 5000; i += 3) {
+            index.remove(SearchHit.Type.TASK, "task-" + i);
+        }
+        assertEquals(5000 - 1667, index.size());
+        List<SearchHit> hits = index.search("common word7 odd", false, 1000);
+        Set<String> expected = new HashSet<>();
+        for (int i = 7; i < 5000; i += 10) {
+            if (i % 3 != 0) {
+                expected.add("task-" + i);
+            }
+        }
+        assertEquals(expected, new HashSet<>(ids(hits)));
+    }
+}
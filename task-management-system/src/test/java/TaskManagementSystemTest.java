@@ -1,12 +1,20 @@
+import exception.StoryNotFoundException;
+import exception.TaskManagementException;
+import exception.TaskNotFoundException;
+import exception.VersionConflictException;
+import factory.SnowflakeIdGenerator;
 import model.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import service.*;
 import static org.junit.jupiter.api.Assertions.*;
 
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 public class TaskManagementSystemTest {
     private UserService userService;
@@ -19,8 +27,8 @@ public class TaskManagementSystemTest {
     void setUp() {
         userService = new UserService();
         taskService = new TaskService();
-        storyService = new StoryService();
-        workloadService = new WorkloadService(taskService.getTaskRepo());
+        storyService = new StoryService(taskService.getTaskRepo());
+        workloadService = new WorkloadService(taskService.getTaskRepo(), storyService.getStoryRepo(), userService);
         testUser = userService.register("TestUser", "test@example.com", "password123");
     }
 
@@ -35,6 +43,42 @@ public class TaskManagementSystemTest {
         assertEquals("John", loggedInUser.getName());
     }
 
+    @Test
+    void testLoginIgnoresEmailCase() {
+        User loggedInUser = userService.login("  TEST@Example.com ", "password123");
+        assertEquals(testUser.getId(), loggedInUser.getId());
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.register("Copy", "Test@Example.COM", "password"));
+    }
+
+    @Test
+    void testConcurrentRegistrationOfSameEmailHasOneWinner() throws Exception {
+        int numThreads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<User>> attempts = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            String name = "Racer " + i;
+            attempts.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return userService.register(name, "race@example.com", "password");
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        int winners = 0;
+        for (Future<User> attempt : attempts) {
+            if (attempt.get(1, TimeUnit.MINUTES) != null) {
+                winners++;
+            }
+        }
+        executor.shutdown();
+        assertEquals(1, winners);
+    }
+
     @Test
     void testTaskCreationAndRetrieval() {
         Task task = taskService.createTask("Test Task", "Test Description", new Date(), testUser.getId());
@@ -53,6 +97,118 @@ public class TaskManagementSystemTest {
         assertTrue(taskService.getTaskById(parentTask.getId()).getSubtasks().contains(subtask.getId()));
     }
 
+    @Test
+    void testBulkImportLinksParentsAndReportsPerItemErrors() {
+        Task existing = taskService.createTask("Existing", "Description", new Date(), testUser.getId());
+        Date deadline = new Date();
+        List<TaskSpec> specs = List.of(
+                new TaskSpec("epic", null, "Epic", "Description", deadline, testUser.getId()),
+                new TaskSpec("story", "epic", "Story", "Description", deadline, testUser.getId()),
+                new TaskSpec("bad", null, " ", "Description", deadline, testUser.getId()),
+                new TaskSpec("orphan", "bad", "Orphan", "Description", deadline, testUser.getId()),
+                new TaskSpec("attached", existing.getId(), "Attached", "Description", deadline, testUser.getId()));
+
+        BulkImportResult result = taskService.importTasks(specs);
+
+        assertEquals(3, result.getCreated().size());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(2, result.getErrors().get(0).getIndex());
+        assertEquals(3, result.getErrors().get(1).getIndex());
+
+        Task epic = result.getItems().get(0).getTask();
+        Task story = result.getItems().get(1).getTask();
+        Task attached = result.getItems().get(4).getTask();
+        assertEquals(epic.getId(), story.getParentTaskId());
+        assertTrue(epic.getSubtasks().contains(story.getId()));
+        assertTrue(existing.getSubtasks().contains(attached.getId()));
+        assertEquals(4, taskService.getTasksByUser(testUser.getId()).size());
+        assertEquals(2, workloadService.getDetailedWorkload(testUser.getId()).get("totalSubtasks"));
+    }
+
+    @Test
+    void testBulkImportNeverAttachesToDeletedParent() throws Exception {
+        List<Task> parents = new ArrayList<>();
+        List<TaskSpec> specs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Task parent = taskService.createTask("Parent " + i, "Description", new Date(), testUser.getId());
+            parents.add(parent);
+            specs.add(new TaskSpec("child" + i, parent.getId(), "Child " + i, "Description", new Date(), null));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?> deletes = executor.submit(() -> {
+            start.await();
+            for (Task parent : parents) {
+                taskService.deleteTask(parent.getId());
+            }
+            return null;
+        });
+        Future<BulkImportResult> imported = executor.submit(() -> {
+            start.await();
+            return taskService.importTasks(specs);
+        });
+        start.countDown();
+        deletes.get(1, TimeUnit.MINUTES);
+        BulkImportResult result = imported.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        assertEquals(500, result.getCreated().size() + result.getErrors().size());
+        for (BulkImportResult.Item item : result.getErrors()) {
+            assertTrue(item.getError().startsWith("Parent task not found"));
+        }
+        // A child attached before its parent's deletion went with it
+        assertEquals(0, taskService.getTaskRepo().count());
+    }
+
+    @Test
+    void testBatchAppliesStructuralChangesFirstAndReportsPerItemErrors() {
+        Task parent = taskService.createTask("Parent", "Description", new Date(), testUser.getId());
+        Task child = taskService.createSubtask(parent.getId(), "Child", "Description", new Date(), testUser.getId());
+        Task other = taskService.createTask("Other", "Description", new Date(), testUser.getId());
+        Task doomed = taskService.createTask("Doomed", "Description", new Date(), testUser.getId());
+        Story story = storyService.createStory("Story", "Description", List.of(child, other));
+        Date deadline = new Date(0);
+
+        BatchResult result = taskService.applyBatch(List.of(
+                TaskOperation.updateStatus(child.getId(), TaskStatus.IN_PROGRESS),
+                TaskOperation.update(child.getId(), "Renamed", "Done", deadline, TaskStatus.IN_REVIEW),
+                TaskOperation.updateStatus(child.getId(), TaskStatus.COMPLETED),
+                TaskOperation.update(other.getId(), " ", "Description", deadline, TaskStatus.COMPLETED),
+                TaskOperation.move(child.getId(), other.getId()),
+                TaskOperation.move(other.getId(), child.getId()),
+                TaskOperation.updateStatus(doomed.getId(), TaskStatus.COMPLETED),
+                TaskOperation.delete(doomed.getId()),
+                TaskOperation.updateStatus(doomed.getId(), TaskStatus.BLOCKED),
+                TaskOperation.updateStatus("missing", TaskStatus.COMPLETED)));
+
+        assertEquals(10, result.getItems().size());
+        List<BatchResult.Item> errors = result.getErrors();
+        assertEquals(5, errors.size());
+        assertEquals(3, errors.get(0).getIndex());
+        assertEquals("Task title cannot be empty", errors.get(0).getError());
+        assertEquals(5, errors.get(1).getIndex());
+        assertEquals("Circular dependency detected", errors.get(1).getError());
+        // Updates are applied after the deletes, so one queued before the delete never lands
+        assertEquals(6, errors.get(2).getIndex());
+        assertEquals("Task not found with id: " + doomed.getId(), errors.get(2).getError());
+        assertEquals(8, errors.get(3).getIndex());
+        assertEquals("Task not found with id: " + doomed.getId(), errors.get(3).getError());
+        assertEquals(9, errors.get(4).getIndex());
+
+        assertEquals("Renamed", child.getTitle());
+        assertEquals(deadline, child.getDeadline());
+        assertEquals(TaskStatus.COMPLETED, child.getStatus());
+        assertEquals(other.getId(), child.getParentTaskId());
+        assertTrue(parent.getSubtasks().isEmpty());
+        assertThrows(TaskNotFoundException.class, () -> taskService.getTaskById(doomed.getId()));
+
+        assertEquals(1, storyService.getProgress(story.getId()).getCount(TaskStatus.COMPLETED));
+        SubtreeSummary summary = taskService.getSubtreeSummary(other.getId());
+        assertEquals(1, summary.getDescendantCount());
+        assertEquals(1, summary.getCount(TaskStatus.COMPLETED));
+        assertEquals(0, taskService.getSubtreeSummary(parent.getId()).getDescendantCount());
+    }
+
     @Test
     void testStoryManagement() {
         Task task = taskService.createTask("Story Task", "Task Description", new Date(), testUser.getId());
@@ -63,6 +219,90 @@ public class TaskManagementSystemTest {
         assertTrue(story.getTasks().contains(task.getId()));
     }
 
+    @Test
+    void testStoryProgressFollowsTaskChanges() {
+        Task first = taskService.createTask("First", "Description", new Date(), testUser.getId());
+        Task second = taskService.createTask("Second", "Description", new Date(), testUser.getId());
+        Task third = taskService.createTask("Third", "Description", new Date(), testUser.getId());
+        Story story = storyService.createStory("Story", "Description", List.of(first, second));
+
+        StoryProgress progress = storyService.getProgress(story.getId());
+        assertEquals(2, progress.getTotal());
+        assertEquals(2, progress.getCount(TaskStatus.PENDING));
+        assertEquals(0.0, progress.getPercentDone());
+
+        story.addTask(third);
+        taskService.updateTaskStatus(first.getId(), TaskStatus.COMPLETED);
+        taskService.updateTaskStatus(second.getId(), TaskStatus.BLOCKED);
+        progress = storyService.getProgress(story.getId());
+        assertEquals(3, progress.getTotal());
+        assertEquals(1, progress.getBlocked());
+        assertEquals(2, progress.getRemaining());
+        assertEquals(100.0 / 3, progress.getPercentDone(), 1e-9);
+
+        taskService.deleteTask(second.getId());
+        progress = storyService.getProgress(story.getId());
+        assertEquals(2, progress.getTotal());
+        assertEquals(0, progress.getBlocked());
+        assertEquals(50.0, progress.getPercentDone());
+        assertFalse(story.getTasks().contains(second.getId()));
+        assertEquals(Integer.valueOf(1), storyService.getBurndown(story.getId()).get(LocalDate.now()));
+
+        assertThrows(StoryNotFoundException.class, () -> storyService.getProgress("missing"));
+    }
+
+    @Test
+    void testStoryProgressUnderConcurrentStatusChanges() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(taskService.createTask("Task " + i, "Description", new Date(), testUser.getId()));
+        }
+        Story story = storyService.createStory("Story", "Description", tasks.subList(0, 100));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            boolean add = i >= 100;
+            futures.add(executor.submit(() -> {
+                if (add) {
+                    story.addTask(task);
+                }
+                for (TaskStatus status : TaskStatus.values()) {
+                    task.setStatus(status);
+                }
+                task.setStatus(TaskStatus.COMPLETED);
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        StoryProgress progress = storyService.getProgress(story.getId());
+        assertEquals(200, progress.getTotal());
+        assertEquals(200, progress.getCount(TaskStatus.COMPLETED));
+        assertEquals(100.0, progress.getPercentDone());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWorkloadDetailsIncludesStoriesOfUserTasks() {
+        Task task = taskService.createTask("Story Task", "Description", new Date(), testUser.getId());
+        Task unrelated = taskService.createTask("Other Task", "Description", new Date(), "someone-else");
+        Story story = storyService.createStory("Story", "Description", List.of(task));
+        storyService.createStory("Other Story", "Description", List.of(unrelated));
+
+        Map<String, Object> details = workloadService.getUserWorkloadDetails(testUser.getId());
+        assertEquals(List.of(story), details.get("stories"));
+
+        Story later = storyService.createStory("Later Story", "Description", List.of());
+        later.addTask(task);
+        List<Story> stories = (List<Story>) workloadService.getUserWorkloadDetails(testUser.getId()).get("stories");
+        assertEquals(2, stories.size());
+        assertTrue(stories.contains(later));
+    }
+
     @Test
     void testWorkloadCalculation() {
         taskService.createTask("Task 1", "Description 1", new Date(), testUser.getId());
@@ -73,6 +313,243 @@ public class TaskManagementSystemTest {
         assertEquals(2, workload.get(TaskStatus.PENDING));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWorkloadCountersFollowTaskChanges() {
+        User other = userService.register("Other", "other@example.com", "password");
+        Task parent = taskService.createTask("Parent", "Description", new Date(), testUser.getId());
+        Task child = taskService.createTask("Child", "Description", new Date(), testUser.getId());
+
+        child.setPriority(TaskPriority.HIGH);
+        taskService.updateTaskStatus(child.getId(), TaskStatus.IN_PROGRESS);
+        taskService.moveTask(child.getId(), parent.getId());
+
+        Map<String, Object> detailed = workloadService.getDetailedWorkload(testUser.getId());
+        assertEquals(1, ((Map<TaskStatus, Integer>) detailed.get("statusCount")).get(TaskStatus.PENDING));
+        assertEquals(1, ((Map<TaskStatus, Integer>) detailed.get("statusCount")).get(TaskStatus.IN_PROGRESS));
+        assertEquals(1, ((Map<TaskPriority, Integer>) detailed.get("priorityCount")).get(TaskPriority.HIGH));
+        assertEquals(1, detailed.get("totalTasks"));
+        assertEquals(1, detailed.get("totalSubtasks"));
+
+        child.setAssignedUserId(other.getId());
+        assertEquals(0, workloadService.getUserWorkload(testUser.getId()).get(TaskStatus.IN_PROGRESS));
+        assertEquals(1, workloadService.getUserWorkload(other.getId()).get(TaskStatus.IN_PROGRESS));
+
+        taskService.deleteTask(child.getId());
+        assertEquals(0, workloadService.getUserWorkload(other.getId()).get(TaskStatus.IN_PROGRESS));
+        assertEquals(0, workloadService.getDetailedWorkload(other.getId()).get("totalSubtasks"));
+    }
+
+    @Test
+    void testColumnarAggregatesMatchTaskObjects() {
+        User other = userService.register("Other", "other@example.com", "password");
+        Date past = new Date(System.currentTimeMillis() - 60_000);
+        Date future = new Date(System.currentTimeMillis() + 60_000);
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String userId = i % 3 == 0 ? other.getId() : testUser.getId();
+            created.add(taskService.createTask("Task " + i, "Description", i % 2 == 0 ? past : future, userId));
+        }
+        for (int i = 0; i < 2000; i += 7) {
+            taskService.updateTaskStatus(created.get(i).getId(), TaskStatus.COMPLETED);
+            created.get(i + 1).setPriority(TaskPriority.CRITICAL);
+            taskService.updateTask(created.get(i + 2).getId(), "Renamed", "Description", past, TaskStatus.IN_PROGRESS);
+            created.get(i + 3).setAssignedUserId(null);
+            taskService.deleteTask(created.get(i + 4).getId());
+        }
+        // Reuses slots freed by the deletes
+        taskService.createTask("Late", "Description", past, other.getId());
+
+        Date now = new Date();
+        Map<TaskStatus, Integer> statusCounts = new EnumMap<>(TaskStatus.class);
+        Map<String, Integer> userCounts = new HashMap<>();
+        int overdue = 0;
+        int overdueForOther = 0;
+        for (Task task : taskService.getTaskRepo().findAll()) {
+            statusCounts.merge(task.getStatus(), 1, Integer::sum);
+            if (task.getAssignedUserId() != null) {
+                userCounts.merge(task.getAssignedUserId(), 1, Integer::sum);
+            }
+            if (task.getDeadline().before(now) && task.getStatus() != TaskStatus.COMPLETED) {
+                overdue++;
+                if (other.getId().equals(task.getAssignedUserId())) {
+                    overdueForOther++;
+                }
+            }
+        }
+        for (TaskStatus status : TaskStatus.values()) {
+            assertEquals(statusCounts.getOrDefault(status, 0), workloadService.getStatusCounts().get(status));
+        }
+        assertEquals(userCounts, workloadService.getTaskCountsByUser());
+        assertEquals(overdue, workloadService.getOverdueCount(now));
+        assertEquals(overdueForOther, workloadService.getOverdueCount(other.getId(), now));
+        assertEquals(286, workloadService.getPriorityCounts().get(TaskPriority.CRITICAL));
+    }
+
+    @Test
+    void testColumnarAggregatesMatchTaskObjectsAfterConcurrentWriters() throws Exception {
+        int numThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                // Enough tasks that the columns grow while the others write
+                List<Task> mine = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    mine.add(taskService.createTask("Task " + i, "Description", new Date(), testUser.getId()));
+                }
+                for (int round = 0; round < 5; round++) {
+                    for (int i = 0; i < mine.size(); i++) {
+                        Task task = mine.get(i);
+                        task.setStatus(TaskStatus.values()[(i + round + thread) % TaskStatus.values().length]);
+                        task.setPriority(TaskPriority.values()[(i + round) % TaskPriority.values().length]);
+                    }
+                }
+                for (int i = thread; i < mine.size(); i += 5) {
+                    taskService.deleteTask(mine.get(i).getId());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Map<TaskStatus, Integer> statusCounts = new EnumMap<>(TaskStatus.class);
+        Map<TaskPriority, Integer> priorityCounts = new EnumMap<>(TaskPriority.class);
+        for (Task task : taskService.getTaskRepo().findAll()) {
+            statusCounts.merge(task.getStatus(), 1, Integer::sum);
+            priorityCounts.merge(task.getPriority(), 1, Integer::sum);
+        }
+        repository.ColumnarTaskStore columns = taskService.getTaskRepo().getColumns();
+        for (TaskStatus status : TaskStatus.values()) {
+            int expected = statusCounts.getOrDefault(status, 0);
+            assertEquals(expected, workloadService.getStatusCounts().get(status));
+            // The posting lists agree with the columns
+            assertEquals(expected, columns.slots(EnumSet.of(status), null, null, null).cardinality());
+        }
+        for (TaskPriority priority : TaskPriority.values()) {
+            int expected = priorityCounts.getOrDefault(priority, 0);
+            assertEquals(expected, workloadService.getPriorityCounts().get(priority));
+            assertEquals(expected, columns.slots(null, EnumSet.of(priority), null, null).cardinality());
+        }
+        assertEquals(Map.of(testUser.getId(), taskService.getTaskRepo().count()), workloadService.getTaskCountsByUser());
+    }
+
+    @Test
+    void testReadersNeverSeeHalfAppliedUpdates() throws Exception {
+        Task task = taskService.createTask("A", "A", new Date('A'), testUser.getId());
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger torn = new AtomicInteger();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            futures.add(readers.submit(() -> {
+                while (!done.get()) {
+                    Task.State state = task.getState();
+                    String title = state.getTitle();
+                    if (!title.equals(state.getDescription())
+                            || state.getDeadline().getTime() != title.charAt(0)
+                            || (state.getStatus() == TaskStatus.COMPLETED) != title.equals("B")) {
+                        torn.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            if (i % 2 == 0) {
+                task.update("B", "B", new Date('B'), TaskStatus.COMPLETED);
+            } else {
+                task.update("A", "A", new Date('A'), TaskStatus.PENDING);
+            }
+        }
+        done.set(true);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        readers.shutdown();
+        assertEquals(0, torn.get());
+    }
+
+    @Test
+    void testDeadlineLookupsFollowTaskChanges() {
+        User other = userService.register("Other", "other@example.com", "password");
+        try (DeadlineService deadlines = new DeadlineService(taskService.getTaskRepo(), userService)) {
+            long now = System.currentTimeMillis();
+            long hour = TimeUnit.HOURS.toMillis(1);
+            Task late = taskService.createTask("Late", "Description", new Date(now - 2 * hour), testUser.getId());
+            Task done = taskService.createTask("Done", "Description", new Date(now - hour), testUser.getId());
+            Task soon = taskService.createTask("Soon", "Description", new Date(now + hour), testUser.getId());
+            Task later = taskService.createTask("Later", "Description", new Date(now + 3 * hour), other.getId());
+            taskService.updateTaskStatus(done.getId(), TaskStatus.COMPLETED);
+
+            assertEquals(List.of(late), deadlines.getOverdueTasks(new Date(now), 10));
+            assertEquals(List.of(soon), deadlines.getTasksDueWithin(2, TimeUnit.HOURS, 10));
+            assertEquals(List.of(soon, later), deadlines.getTasksDueBetween(new Date(now), new Date(now + 4 * hour), 10));
+
+            taskService.updateTask(late.getId(), "Late", "Description", new Date(now + 2 * hour), TaskStatus.IN_PROGRESS);
+            later.setAssignedUserId(testUser.getId());
+            taskService.updateTaskStatus(done.getId(), TaskStatus.IN_REVIEW);
+            assertEquals(List.of(done), deadlines.getOverdueTasks(new Date(now), 10));
+            assertEquals(List.of(soon, late), deadlines.getNextDeadlines(testUser.getId(), 2));
+            assertEquals(List.of(soon, late, later), deadlines.getNextDeadlines(testUser.getId(), 10));
+            assertTrue(deadlines.getNextDeadlines(other.getId(), 10).isEmpty());
+
+            taskService.deleteTask(done.getId());
+            assertTrue(deadlines.getOverdueTasks(new Date(now), 10).isEmpty());
+        }
+    }
+
+    @Test
+    void testClosingAndMovingDeadlineInOneUpdateLeavesNoStaleEntry() {
+        try (DeadlineService deadlines = new DeadlineService(taskService.getTaskRepo(), userService)) {
+            long now = System.currentTimeMillis();
+            long hour = TimeUnit.HOURS.toMillis(1);
+            Task task = taskService.createTask("Task", "Description", new Date(now - hour), testUser.getId());
+            assertEquals(List.of(task), deadlines.getOverdueTasks(new Date(now), 10));
+
+            taskService.updateTask(task.getId(), "Task", "Description", new Date(now - 2 * hour), TaskStatus.COMPLETED);
+            assertTrue(deadlines.getOverdueTasks(new Date(now), 10).isEmpty());
+            assertTrue(deadlines.getNextDeadlines(testUser.getId(), 10).isEmpty());
+
+            taskService.updateTask(task.getId(), "Task", "Description", new Date(now - hour), TaskStatus.IN_PROGRESS);
+            assertEquals(List.of(task), deadlines.getOverdueTasks(new Date(now), 10));
+            taskService.deleteTask(task.getId());
+            assertTrue(deadlines.getOverdueTasks(new Date(now), 10).isEmpty());
+        }
+    }
+
+    @Test
+    void testDeadlineEventsFireOnceForOpenTasks() throws Exception {
+        try (DeadlineService deadlines = new DeadlineService(taskService.getTaskRepo(), userService, 10, TimeUnit.MILLISECONDS)) {
+            List<String> fired = new CopyOnWriteArrayList<>();
+            CountDownLatch latch = new CountDownLatch(2);
+            deadlines.addListener(task -> {
+                fired.add(task.getTitle());
+                latch.countDown();
+            });
+            long now = System.currentTimeMillis();
+            Task first = taskService.createTask("First", "Description", new Date(now + 50), testUser.getId());
+            Task completed = taskService.createTask("Completed", "Description", new Date(now + 60), testUser.getId());
+            Task moved = taskService.createTask("Moved", "Description", new Date(now + 70), testUser.getId());
+            // Past the wheel's 512 ticks, so it waits a full turn
+            taskService.createTask("Far", "Description", new Date(now + 60_000), testUser.getId());
+            taskService.updateTaskStatus(completed.getId(), TaskStatus.COMPLETED);
+            taskService.updateTask(moved.getId(), "Moved", "Description", new Date(now + 200), TaskStatus.PENDING);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(List.of("First", "Moved"), fired);
+            assertTrue(System.currentTimeMillis() >= now + 200);
+            assertEquals(TaskStatus.PENDING, first.getStatus());
+        }
+    }
+
     @Test
     void testTaskStatusUpdate() {
         Task task = taskService.createTask("Status Test", "Description", new Date(), testUser.getId());
@@ -81,4 +558,447 @@ public class TaskManagementSystemTest {
         Task updatedTask = taskService.getTaskById(task.getId());
         assertEquals(TaskStatus.IN_PROGRESS, updatedTask.getStatus());
     }
+
+    @Test
+    void testConditionalUpdatesAndPatchesCheckTheVersion() {
+        Task task = taskService.createTask("Task", "Description", new Date(0), testUser.getId());
+        long created = task.getVersion();
+
+        taskService.updateTask(task.getId(), "Renamed", "Description", new Date(0), TaskStatus.IN_PROGRESS, created);
+        assertEquals(created + 1, task.getVersion());
+        VersionConflictException conflict = assertThrows(VersionConflictException.class, () -> taskService
+                .updateTask(task.getId(), "Stale", "Description", new Date(0), TaskStatus.PENDING, created));
+        assertEquals(created, conflict.getExpectedVersion());
+        assertEquals(created + 1, conflict.getCurrentVersion());
+        assertEquals("Renamed", task.getTitle());
+
+        taskService.patchTask(task.getId(), new TaskPatch(null, null, null, TaskStatus.COMPLETED, TaskPriority.HIGH),
+                created + 1);
+        assertEquals("Renamed", task.getTitle());
+        assertEquals("Description", task.getDescription());
+        assertEquals(new Date(0), task.getDeadline());
+        assertEquals(TaskStatus.COMPLETED, task.getStatus());
+        assertEquals(TaskPriority.HIGH, task.getPriority());
+        assertEquals(created + 2, task.getVersion());
+        assertThrows(VersionConflictException.class, () -> taskService.patchTask(task.getId(),
+                new TaskPatch("Stale", null, null, null, null), created + 1));
+        assertThrows(IllegalArgumentException.class, () -> taskService.patchTask(task.getId(),
+                new TaskPatch(" ", null, null, null, null), Task.ANY_VERSION));
+
+        taskService.updateTaskStatus(task.getId(), TaskStatus.BLOCKED);
+        assertEquals(created + 3, task.getVersion());
+        assertEquals(1, workloadService.getUserWorkload(testUser.getId()).get(TaskStatus.BLOCKED));
+
+        // Writes that change nothing leave the version alone
+        taskService.updateTaskStatus(task.getId(), TaskStatus.BLOCKED);
+        taskService.patchTask(task.getId(), new TaskPatch("Renamed", null, null, null, TaskPriority.HIGH), created + 3);
+        taskService.updateTask(task.getId(), "Renamed", "Description", new Date(0), TaskStatus.BLOCKED, created + 3);
+        task.setAssignedUserId(testUser.getId());
+        assertEquals(created + 3, task.getVersion());
+    }
+
+    @Test
+    void testConcurrentCompareAndSetLosesNoUpdates() throws Exception {
+        Task task = taskService.createTask("0", "Description", new Date(), testUser.getId());
+        long created = task.getVersion();
+        int numThreads = 8;
+        int incrementsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    while (true) {
+                        Task.State seen = task.getState();
+                        String next = String.valueOf(Integer.parseInt(seen.getTitle()) + 1);
+                        if (task.compareAndUpdate(seen.getVersion(), next, seen.getDescription(),
+                                seen.getDeadline(), seen.getStatus())) {
+                            break;
+                        }
+                    }
+                }
+            }));
+        }
+        // A status writer in parallel must neither be lost nor undo an increment
+        for (int i = 0; i < 200; i++) {
+            taskService.updateTaskStatus(task.getId(), i % 2 == 0 ? TaskStatus.IN_PROGRESS : TaskStatus.COMPLETED);
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        assertEquals(String.valueOf(numThreads * incrementsPerThread), task.getTitle());
+        assertEquals(TaskStatus.COMPLETED, task.getStatus());
+        assertEquals(created + numThreads * incrementsPerThread + 200, task.getVersion());
+    }
+
+    @Test
+    void testTasksByUserFollowsReassignmentAndDeletion() {
+        User other = userService.register("Other", "other@example.com", "password");
+        Task task = taskService.createTask("Task", "Description", new Date(), testUser.getId());
+        Task subtask = taskService.createSubtask(task.getId(), "Subtask", "Description", new Date(), testUser.getId());
+        assertEquals(2, taskService.getTasksByUser(testUser.getId()).size());
+
+        subtask.setAssignedUserId(other.getId());
+        assertEquals(List.of(task), taskService.getTasksByUser(testUser.getId()));
+        assertEquals(List.of(subtask), taskService.getTasksByUser(other.getId()));
+
+        taskService.deleteTask(subtask.getId());
+        assertTrue(taskService.getTasksByUser(other.getId()).isEmpty());
+        assertEquals(1, taskService.getTaskRepo().findAllByUserId(testUser.getId()).size());
+    }
+
+    @Test
+    void testMoveTaskRejectsCyclesInDeepHierarchy() {
+        Task root = taskService.createTask("Root", "Description", new Date(), testUser.getId());
+        Task current = root;
+        for (int i = 0; i < 1000; i++) {
+            current = taskService.createSubtask(current.getId(), "Level " + i, "Description", new Date(), testUser.getId());
+        }
+        Task deepest = current;
+        assertEquals(1000, deepest.getDepth());
+        assertEquals(root.getId(), deepest.getRootTaskId());
+
+        assertThrows(TaskManagementException.class, () -> taskService.moveTask(root.getId(), deepest.getId()));
+
+        Task other = taskService.createTask("Other", "Description", new Date(), testUser.getId());
+        Task middle = taskService.getTaskById(root.getSubtasks().get(0));
+        taskService.moveTask(middle.getId(), other.getId());
+        assertEquals(other.getId(), deepest.getRootTaskId());
+        assertEquals(1000, deepest.getDepth());
+        taskService.moveTask(root.getId(), deepest.getId());
+        assertEquals(1001, root.getDepth());
+    }
+
+    @Test
+    void testConcurrentMovesKeepEveryTaskUnderOneParent() throws Exception {
+        List<Task> parents = new ArrayList<>();
+        List<Task> children = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            parents.add(taskService.createTask("Parent " + i, "Description", new Date(), testUser.getId()));
+        }
+        for (int i = 0; i < 20; i++) {
+            children.add(taskService.createTask("Child " + i, "Description", new Date(), testUser.getId()));
+        }
+        int numThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<?>> movers = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            movers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5000; i++) {
+                    Task child = children.get(random.nextInt(children.size()));
+                    Task parent = random.nextInt(5) == 0 ? null : parents.get(random.nextInt(parents.size()));
+                    taskService.moveTask(child.getId(), parent == null ? null : parent.getId());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> mover : movers) {
+            mover.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        int linked = 0;
+        for (Task parent : parents) {
+            for (String childId : parent.getSubtasks()) {
+                assertEquals(parent.getId(), taskService.getTaskById(childId).getParentTaskId());
+                linked++;
+            }
+        }
+        long withParent = children.stream().filter(c -> c.getParentTaskId() != null).count();
+        assertEquals(withParent, linked);
+    }
+
+    @Test
+    void testSubtreeOperationsCoverLargeAndDeepTrees() {
+        User other = userService.register("Other", "other@example.com", "password");
+        Task root = taskService.createTask("Root", "Description", new Date(), testUser.getId());
+        // A 5,000-deep chain plus 10,000 leaves under the root
+        Task current = root;
+        for (int i = 0; i < 5000; i++) {
+            current = taskService.createSubtask(current.getId(), "Level " + i, "Description", new Date(), testUser.getId());
+        }
+        for (int i = 0; i < 10000; i++) {
+            taskService.createSubtask(root.getId(), "Leaf " + i, "Description", new Date(), testUser.getId());
+        }
+        Task untouched = taskService.createTask("Untouched", "Description", new Date(), testUser.getId());
+        assertEquals(15001, taskService.getSubtreeSize(root.getId()));
+
+        taskService.updateSubtreeStatus(root.getId(), TaskStatus.IN_PROGRESS);
+        assertEquals(TaskStatus.IN_PROGRESS, current.getStatus());
+        assertEquals(15001, workloadService.getUserWorkload(testUser.getId()).get(TaskStatus.IN_PROGRESS));
+
+        taskService.reassignSubtree(root.getId(), other.getId());
+        assertEquals(15001, taskService.getTasksByUser(other.getId()).size());
+        assertEquals(List.of(untouched), taskService.getTasksByUser(testUser.getId()));
+
+        taskService.deleteTask(root.getId());
+        assertEquals(1, taskService.getTaskRepo().count());
+        assertTrue(taskService.getTasksByUser(other.getId()).isEmpty());
+        assertEquals(0, workloadService.getDetailedWorkload(other.getId()).get("totalSubtasks"));
+    }
+
+    @Test
+    void testSubtreeSummaryFollowsUpdatesMovesAndDeletes() {
+        long now = System.currentTimeMillis();
+        Task root = taskService.createTask("Root", "Description", new Date(now + 10_000), testUser.getId());
+        Task left = taskService.createSubtask(root.getId(), "Left", "Description", new Date(now + 5_000), testUser.getId());
+        Task right = taskService.createSubtask(root.getId(), "Right", "Description", new Date(now + 8_000), testUser.getId());
+        Task leaf = taskService.createSubtask(left.getId(), "Leaf", "Description", new Date(now + 1_000), testUser.getId());
+        assertSummaryMatchesWalk(root);
+
+        SubtreeSummary summary = taskService.getSubtreeSummary(root.getId());
+        assertEquals(3, summary.getDescendantCount());
+        assertEquals(new Date(now + 1_000), summary.getEarliestDeadline());
+        assertEquals(TaskPriority.MEDIUM, summary.getHighestPriority());
+
+        leaf.setPriority(TaskPriority.CRITICAL);
+        taskService.updateTaskStatus(right.getId(), TaskStatus.COMPLETED);
+        leaf.update(leaf.getTitle(), leaf.getDescription(), new Date(now + 20_000), TaskStatus.COMPLETED);
+        summary = taskService.getSubtreeSummary(root.getId());
+        assertEquals(2, summary.getCount(TaskStatus.COMPLETED));
+        assertEquals(TaskPriority.CRITICAL, summary.getHighestPriority());
+        assertEquals(new Date(now + 5_000), summary.getEarliestDeadline());
+        assertSummaryMatchesWalk(root);
+
+        taskService.moveTask(left.getId(), right.getId());
+        assertSummaryMatchesWalk(root);
+        assertEquals(2, taskService.getSubtreeSummary(right.getId()).getDescendantCount());
+
+        taskService.deleteTask(left.getId());
+        summary = taskService.getSubtreeSummary(root.getId());
+        assertEquals(1, summary.getDescendantCount());
+        assertEquals(new Date(now + 8_000), summary.getEarliestDeadline());
+        assertSummaryMatchesWalk(root);
+        assertNull(taskService.getSubtreeSummary(right.getId()).getHighestPriority());
+        assertThrows(TaskNotFoundException.class, () -> taskService.getSubtreeSummary(leaf.getId()));
+    }
+
+    @Test
+    void testSubtreeSummariesStayExactUnderConcurrentChanges() throws Exception {
+        Task root = taskService.createTask("Root", "Description", new Date(), testUser.getId());
+        List<Task> branches = new ArrayList<>();
+        List<Task> all = new ArrayList<>();
+        for (int b = 0; b < 8; b++) {
+            Task branch = taskService.createSubtask(root.getId(), "Branch " + b, "Description", new Date(), testUser.getId());
+            branches.add(branch);
+            Task parent = branch;
+            for (int i = 0; i < 50; i++) {
+                parent = taskService.createSubtask(parent.getId(), "Task " + i, "Description", new Date(), testUser.getId());
+                all.add(parent);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 2000; i++) {
+                    Task task = all.get(random.nextInt(all.size()));
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            task.setStatus(TaskStatus.values()[random.nextInt(TaskStatus.values().length)]);
+                            break;
+                        case 1:
+                            task.setPriority(TaskPriority.values()[random.nextInt(TaskPriority.values().length)]);
+                            break;
+                        case 2:
+                            task.update(task.getTitle(), task.getDescription(),
+                                    new Date(random.nextInt(1_000_000)), task.getStatus());
+                            break;
+                        default:
+                            Task target = branches.get(random.nextInt(branches.size()));
+                            try {
+                                taskService.moveTask(task.getId(), target.getId());
+                            } catch (TaskManagementException e) {
+                                // Target is inside the moved subtree
+                            }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        for (Task task : taskService.getTaskRepo().findAll()) {
+            assertSummaryMatchesWalk(task);
+        }
+    }
+
+    private void assertSummaryMatchesWalk(Task task) {
+        Map<TaskStatus, Integer> statuses = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            statuses.put(status, 0);
+        }
+        TaskPriority highest = null;
+        Date earliest = null;
+        Deque<Task> pending = new ArrayDeque<>(task.getChildren());
+        while (!pending.isEmpty()) {
+            Task descendant = pending.pop();
+            statuses.merge(descendant.getStatus(), 1, Integer::sum);
+            if (highest == null || descendant.getPriority().compareTo(highest) > 0) {
+                highest = descendant.getPriority();
+            }
+            if (earliest == null || descendant.getDeadline().before(earliest)) {
+                earliest = descendant.getDeadline();
+            }
+            pending.addAll(descendant.getChildren());
+        }
+        SubtreeSummary summary = taskService.getSubtreeSummary(task.getId());
+        assertEquals(statuses, summary.getCountsByStatus(), task.getTitle());
+        assertEquals(highest, summary.getHighestPriority(), task.getTitle());
+        assertEquals(earliest, summary.getEarliestDeadline(), task.getTitle());
+    }
+
+    @Test
+    void testSnowflakeIdsAreUniqueAndTimeOrdered() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        int numThreads = 8;
+        int idsPerThread = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            results.add(executor.submit(() -> {
+                List<String> ids = new ArrayList<>(idsPerThread);
+                for (int j = 0; j < idsPerThread; j++) {
+                    ids.add(generator.nextId());
+                }
+                return ids;
+            }));
+        }
+        Set<String> all = new HashSet<>();
+        for (Future<List<String>> result : results) {
+            List<String> ids = result.get(1, TimeUnit.MINUTES);
+            for (int j = 1; j < ids.size(); j++) {
+                assertTrue(ids.get(j - 1).compareTo(ids.get(j)) < 0, "ids must increase within a thread");
+            }
+            all.addAll(ids);
+        }
+        executor.shutdown();
+        assertEquals(numThreads * idsPerThread, all.size());
+        assertEquals(13, all.iterator().next().length());
+    }
+
+    @Test
+    void testWorkloadReturnsToZeroWhenStatusChangesRaceSavesAndDeletes() throws Exception {
+        // An index ahead of the workload counters that is slow to take saves and
+        // deletes, so status changes land while those are still being announced
+        TaskService taskService = new TaskService();
+        repository.TaskRepository taskRepo = taskService.getTaskRepo();
+        taskRepo.addIndex(new repository.TaskIndex() {
+            @Override
+            public void onSave(Task task) {
+                LockSupport.parkNanos(20_000);
+            }
+
+            @Override
+            public void onDelete(Task task) {
+                LockSupport.parkNanos(20_000);
+            }
+        });
+        WorkloadService workloadService = new WorkloadService(taskRepo, storyService.getStoryRepo(), userService);
+        TaskStatus[] statuses = TaskStatus.values();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 50; round++) {
+                List<Task> tasks = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    Task task = new Task("Task " + i, "Description", new Date());
+                    task.setAssignedUserId(testUser.getId());
+                    tasks.add(task);
+                }
+                for (boolean saving : new boolean[]{true, false}) {
+                    CountDownLatch start = new CountDownLatch(1);
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (int t = 0; t < 3; t++) {
+                        int offset = t + 1;
+                        futures.add(executor.submit(() -> {
+                            start.await();
+                            for (int i = 0; i < tasks.size(); i++) {
+                                tasks.get(i).setStatus(statuses[(i + offset) % statuses.length]);
+                            }
+                            return null;
+                        }));
+                    }
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (Task task : tasks) {
+                            if (saving) {
+                                taskRepo.save(task);
+                            } else {
+                                taskRepo.delete(task.getId());
+                            }
+                        }
+                        return null;
+                    }));
+                    start.countDown();
+                    for (Future<?> future : futures) {
+                        future.get(10, TimeUnit.SECONDS);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every task was counted once and uncounted once, whatever status it had in between
+        for (int count : workloadService.getUserWorkload(testUser.getId()).values()) {
+            assertEquals(0, count);
+        }
+        assertEquals(0, taskRepo.getColumns().countByStatus().values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void testConcurrentTaskCreationLosesNoTasks() throws Exception {
+        int numThreads = 8;
+        int tasksPerThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> writers = new ArrayList<>();
+
+        for (int i = 0; i < numThreads; i++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                List<String> kept = new ArrayList<>();
+                for (int j = 0; j < tasksPerThread; j++) {
+                    Task task = taskService.createTask("Task " + j, "Description", new Date(), testUser.getId());
+                    // Delete every other task so removals race with inserts
+                    if (j % 2 == 0) {
+                        taskService.deleteTask(task.getId());
+                    } else {
+                        kept.add(task.getId());
+                    }
+                }
+                return kept;
+            }));
+        }
+        Future<?> reader = executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 50; i++) {
+                for (Task task : taskService.getTaskRepo().findAll()) {
+                    assertNotNull(task.getId());
+                }
+            }
+            return null;
+        });
+
+        start.countDown();
+        Set<String> expected = new HashSet<>();
+        for (Future<List<String>> writer : writers) {
+            expected.addAll(writer.get(1, TimeUnit.MINUTES));
+        }
+        reader.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        assertEquals(numThreads * tasksPerThread / 2, expected.size());
+        assertEquals(expected.size(), taskService.getTaskRepo().count());
+        for (String id : expected) {
+            assertNotNull(taskService.getTaskById(id));
+        }
+    }
 }
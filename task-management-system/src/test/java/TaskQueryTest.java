@@ -0,0 +1,166 @@
+import model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import query.*;
+import service.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskQueryTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private UserService userService;
+    private TaskService taskService;
+    private StoryService storyService;
+    private TaskQueryEngine engine;
+    private List<User> users;
+    private List<Task> tasks;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService();
+        taskService = new TaskService();
+        storyService = new StoryService(taskService.getTaskRepo());
+        engine = new TaskQueryEngine(taskService.getTaskRepo(), storyService.getStoryRepo());
+        users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(userService.register("User " + i, "user" + i + "@example.com", "password"));
+        }
+        tasks = new ArrayList<>();
+        TaskStatus[] statuses = TaskStatus.values();
+        TaskPriority[] priorities = TaskPriority.values();
+        for (int i = 0; i < 3000; i++) {
+            Date deadline = new Date((i * 7919L % 1000) * DAY);
+            Task task = i % 5 == 4
+                    ? taskService.createSubtask(tasks.get(i - 1).getId(), "Subtask " + i, "Part of " + (i - 1), deadline,
+                            users.get(i % 20).getId())
+                    : taskService.createTask("Task " + i, i % 100 == 0 ? "Needs a Rollback plan" : "Description",
+                            deadline, users.get(i % 20).getId());
+            taskService.updateTaskStatus(task.getId(), statuses[i % statuses.length]);
+            task.setPriority(priorities[i % priorities.length]);
+            tasks.add(task);
+        }
+    }
+
+    // Walks every page and checks the concatenation against a brute-force scan
+    private void assertMatchesScan(TaskQuery query, Comparator<Task> order, java.util.function.Predicate<Task> filter) {
+        List<Task> expected = tasks.stream().filter(filter).sorted(order).collect(Collectors.toList());
+        List<Task> actual = new ArrayList<>();
+        do {
+            TaskPage page = engine.find(query);
+            assertTrue(page.getTasks().size() <= query.getLimit());
+            actual.addAll(page.getTasks());
+            query.setCursor(page.getNextCursor());
+        } while (query.getCursor() != null);
+        assertEquals(ids(expected), ids(actual));
+    }
+
+    private static List<String> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).collect(Collectors.toList());
+    }
+
+    private static Comparator<Task> byDeadline() {
+        return Comparator.comparing(Task::getDeadline).thenComparing(Task::getId);
+    }
+
+    private static Comparator<Task> byPriority() {
+        return Comparator.comparing((Task task) -> -task.getPriority().ordinal()).thenComparing(Task::getId);
+    }
+
+    @Test
+    void testUnfilteredQueryWalksCreationOrder() {
+        TaskQuery query = new TaskQuery();
+        query.setLimit(128);
+        assertEquals("ordered(CREATED)", engine.find(query).getPlan());
+        assertMatchesScan(query, Comparator.comparing(Task::getId), task -> true);
+    }
+
+    @Test
+    void testPlannerPicksTheSmallestSource() {
+        TaskQuery byAssignee = new TaskQuery();
+        byAssignee.setAssigneeId(users.get(3).getId());
+        byAssignee.setStatuses(EnumSet.of(TaskStatus.PENDING, TaskStatus.BLOCKED));
+        byAssignee.setLimit(10);
+        assertEquals("assignee", engine.find(byAssignee).getPlan());
+        assertMatchesScan(byAssignee, Comparator.comparing(Task::getId),
+                task -> task.getAssignedUserId().equals(users.get(3).getId())
+                        && EnumSet.of(TaskStatus.PENDING, TaskStatus.BLOCKED).contains(task.getStatus()));
+
+        TaskQuery byStatusAndPriority = new TaskQuery();
+        byStatusAndPriority.setStatuses(EnumSet.of(TaskStatus.CANCELLED));
+        byStatusAndPriority.setPriorities(EnumSet.of(TaskPriority.CRITICAL, TaskPriority.HIGH));
+        byStatusAndPriority.setSort(TaskSort.PRIORITY);
+        byStatusAndPriority.setLimit(7);
+        assertEquals("bitmap", engine.find(byStatusAndPriority).getPlan());
+        assertMatchesScan(byStatusAndPriority, byPriority(), task -> task.getStatus() == TaskStatus.CANCELLED
+                && (task.getPriority() == TaskPriority.CRITICAL || task.getPriority() == TaskPriority.HIGH));
+
+        TaskQuery byParent = new TaskQuery();
+        byParent.setParentTaskId(tasks.get(8).getId());
+        assertEquals("parent", engine.find(byParent).getPlan());
+        assertEquals(List.of(tasks.get(9)), engine.find(byParent).getTasks());
+    }
+
+    @Test
+    void testDeadlineRangeSortedByDeadline() {
+        TaskQuery query = new TaskQuery();
+        query.setDeadlineFrom(new Date(100 * DAY));
+        query.setDeadlineTo(new Date(300 * DAY));
+        query.setSort(TaskSort.DEADLINE);
+        query.setLimit(25);
+        assertMatchesScan(query, byDeadline(), task -> task.getDeadline().getTime() >= 100 * DAY
+                && task.getDeadline().getTime() < 300 * DAY);
+    }
+
+    @Test
+    void testStoryAndTextFilters() {
+        Story story = storyService.createStory("Story", "Description",
+                List.of(tasks.get(0), tasks.get(100), tasks.get(101), tasks.get(200)));
+        TaskQuery query = new TaskQuery();
+        query.setStoryId(story.getId());
+        query.setText("rollback");
+        query.setLimit(1);
+        assertMatchesScan(query, Comparator.comparing(Task::getId),
+                task -> task == tasks.get(0) || task == tasks.get(100) || task == tasks.get(200));
+    }
+
+    @Test
+    void testPagesFollowMutationsBetweenRequests() {
+        TaskQuery query = new TaskQuery();
+        query.setStatuses(EnumSet.of(TaskStatus.IN_REVIEW));
+        query.setSort(TaskSort.DEADLINE);
+        query.setLimit(40);
+        TaskPage first = engine.find(query);
+
+        Task moved = tasks.get(2);
+        taskService.updateTask(moved.getId(), moved.getTitle(), moved.getDescription(), new Date(5000 * DAY),
+                TaskStatus.IN_REVIEW);
+        Task deleted = first.getTasks().get(first.getTasks().size() - 1);
+        taskService.deleteTask(deleted.getId());
+        tasks.remove(deleted);
+        tasks.removeIf(task -> taskService.getTaskRepo().findById(task.getId()) == null);
+
+        query.setCursor(first.getNextCursor());
+        List<Task> rest = new ArrayList<>();
+        while (query.getCursor() != null || rest.isEmpty()) {
+            TaskPage page = engine.find(query);
+            rest.addAll(page.getTasks());
+            query.setCursor(page.getNextCursor());
+        }
+        assertEquals(moved, rest.get(rest.size() - 1));
+        assertFalse(rest.contains(deleted));
+        assertTrue(Collections.disjoint(first.getTasks(), rest));
+    }
+
+    @Test
+    void testRejectsCursorOfAnotherSort() {
+        TaskQuery query = new TaskQuery();
+        query.setLimit(5);
+        query.setCursor(engine.find(query).getNextCursor());
+        query.setSort(TaskSort.DEADLINE);
+        assertThrows(IllegalArgumentException.class, () -> engine.find(query));
+    }
+}
@@ -0,0 +1,90 @@
+package benchmark;
+
+import model.BatchResult;
+import model.TaskOperation;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Applies BATCH_SIZE status changes and updates (every fiftieth a move) to
+// hotTasks distinct subtasks, either through applyBatch or one service call at
+// a time. Both variants build the same kind of operation list per invocation.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BatchMutationBenchmark {
+    private static final int BATCH_SIZE = 1000;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    @Param({"100000"})
+    public int taskCount;
+
+    // Fewer tasks than operations means repeated changes to the same task
+    @Param({"1000", "50"})
+    public int hotTasks;
+
+    private Dataset data;
+    private String[] hot;
+    private final Date deadline = new Date();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = Dataset.build(taskCount, 100);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        hot = new String[hotTasks];
+        for (int i = 0; i < hotTasks; i++) {
+            hot[i] = TaskServiceBenchmark.pick(data.subtaskIds, random);
+        }
+    }
+
+    private List<TaskOperation> operations() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<TaskOperation> operations = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String taskId = TaskServiceBenchmark.pick(hot, random);
+            TaskStatus status = STATUSES[random.nextInt(STATUSES.length)];
+            if (i % 50 == 49) {
+                operations.add(TaskOperation.move(taskId, TaskServiceBenchmark.pick(data.rootTaskIds, random)));
+            } else if (i % 2 == 0) {
+                operations.add(TaskOperation.updateStatus(taskId, status));
+            } else {
+                operations.add(TaskOperation.update(taskId, "Task " + i, "Description", deadline, status));
+            }
+        }
+        return operations;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BatchResult applyBatch() {
+        return data.taskService.applyBatch(operations());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void applyOneByOne(Blackhole bh) {
+        for (TaskOperation operation : operations()) {
+            switch (operation.getType()) {
+                case UPDATE_STATUS:
+                    data.taskService.updateTaskStatus(operation.getTaskId(), operation.getStatus());
+                    break;
+                case UPDATE:
+                    data.taskService.updateTask(operation.getTaskId(), operation.getTitle(),
+                            operation.getDescription(), operation.getDeadline(), operation.getStatus());
+                    break;
+                default:
+                    data.taskService.moveTask(operation.getTaskId(), operation.getParentTaskId());
+            }
+            bh.consume(operation);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import model.BulkImportResult;
+import model.TaskSpec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import service.TaskService;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Imports BATCH_SIZE tasks (one subtask per root) into a fresh TaskService,
+// either through importTasks or one createTask/createSubtask call at a time.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkImportBenchmark {
+    private static final int BATCH_SIZE = 10_000;
+
+    private final List<TaskSpec> specs = new ArrayList<>(BATCH_SIZE);
+    private final Date deadline = new Date();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < BATCH_SIZE; i += 2) {
+            specs.add(new TaskSpec("t" + i, null, "Task " + i, "Description", deadline, "user-" + (i % 100)));
+            specs.add(new TaskSpec("t" + (i + 1), "t" + i, "Subtask " + i, "Description", deadline, "user-" + (i % 100)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BulkImportResult importTasks() {
+        return new TaskService().importTasks(specs);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void createOneByOne(Blackhole bh) {
+        TaskService taskService = new TaskService();
+        for (int i = 0; i < BATCH_SIZE; i += 2) {
+            String parentId = taskService.createTask("Task " + i, "Description", deadline, "user-" + (i % 100)).getId();
+            bh.consume(taskService.createSubtask(parentId, "Subtask " + i, "Description", deadline, "user-" + (i % 100)));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package benchmark;
+
+import factory.IdGenerators;
+import model.Passwords;
+import model.Task;
+import model.User;
+import service.StoryService;
+import service.TaskService;
+import service.UserService;
+import service.WorkloadService;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// A populated set of services shared by the benchmarks. One task in four is a
+// subtask of a random root task, and every TASKS_PER_STORY root tasks form a story.
+public class Dataset {
+    static final int TASKS_PER_STORY = 10;
+    // Hashing is deliberately slow, so every user shares one hash of "password"
+    static final String PASSWORD_HASH = Passwords.hash("password");
+
+    final UserService userService = new UserService();
+    final TaskService taskService = new TaskService();
+    final StoryService storyService = new StoryService(taskService.getTaskRepo());
+    final WorkloadService workloadService =
+            new WorkloadService(taskService.getTaskRepo(), storyService.getStoryRepo(), userService);
+
+    final String[] userIds;
+    final String[] userEmails;
+    final String[] rootTaskIds;
+    final String[] subtaskIds;
+
+    private Dataset(int userCount, int rootCount, int subtaskCount) {
+        userIds = new String[userCount];
+        userEmails = new String[userCount];
+        rootTaskIds = new String[rootCount];
+        subtaskIds = new String[subtaskCount];
+    }
+
+    static Dataset build(int taskCount, int userCount) {
+        int subtaskCount = taskCount / 4;
+        Dataset data = new Dataset(userCount, taskCount - subtaskCount, subtaskCount);
+
+        for (int i = 0; i < userCount; i++) {
+            String email = "user" + i + "@example.com";
+            User user = new User(IdGenerators.nextId(), "User " + i, email, PASSWORD_HASH);
+            data.userService.getUserRepo().save(user);
+            data.userIds[i] = user.getId();
+            data.userEmails[i] = email;
+        }
+
+        Date deadline = new Date();
+        List<Task> storyTasks = new ArrayList<>(TASKS_PER_STORY);
+        for (int i = 0; i < data.rootTaskIds.length; i++) {
+            Task task = data.taskService.createTask("Task " + i, "Description " + i, deadline, data.userIds[i % userCount]);
+            data.rootTaskIds[i] = task.getId();
+            storyTasks.add(task);
+            if (storyTasks.size() == TASKS_PER_STORY) {
+                data.storyService.createStory("Story " + i, "Description", storyTasks);
+                storyTasks = new ArrayList<>(TASKS_PER_STORY);
+            }
+        }
+        for (int i = 0; i < subtaskCount; i++) {
+            String parentId = data.rootTaskIds[(int) ((i * 2654435761L) % data.rootTaskIds.length)];
+            Task subtask = data.taskService.createSubtask(parentId, "Subtask " + i, "Description", deadline, data.userIds[i % userCount]);
+            data.subtaskIds[i] = subtask.getId();
+        }
+        return data;
+    }
+}
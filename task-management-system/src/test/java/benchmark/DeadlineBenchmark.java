@@ -0,0 +1,80 @@
+package benchmark;
+
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+import service.DeadlineService;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Deadline lookups from the index against filtering every task. Deadlines are
+// spread over 30 days around now.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class DeadlineBenchmark {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Param({"10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"100", "10000"})
+    public int userCount;
+
+    private Dataset data;
+    private DeadlineService deadlines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = Dataset.build(taskCount, userCount);
+        deadlines = new DeadlineService(data.taskService.getTaskRepo(), data.userService);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = System.currentTimeMillis();
+        for (Task task : data.taskService.getTaskRepo().findAll()) {
+            Date deadline = new Date(now + random.nextLong(-15 * DAY, 15 * DAY));
+            task.update(task.getTitle(), task.getDescription(), deadline, task.getStatus());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        deadlines.close();
+    }
+
+    @Benchmark
+    public List<Task> overdue() {
+        return deadlines.getOverdueTasks(new Date(), 100);
+    }
+
+    @Benchmark
+    public List<Task> overdueByScan() {
+        Date now = new Date();
+        List<Task> result = new ArrayList<>();
+        for (Task task : data.taskService.getTaskRepo().findAll()) {
+            if (task.getDeadline().before(now) && result.size() < 100) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Task> dueWithinADay() {
+        return deadlines.getTasksDueWithin(1, TimeUnit.DAYS, 100);
+    }
+
+    @Benchmark
+    public List<Task> nextDeadlinesForUser() {
+        return deadlines.getNextDeadlines(TaskServiceBenchmark.pick(data.userIds, ThreadLocalRandom.current()), 10);
+    }
+
+    @Threads(Threads.MAX)
+    public static class Contended extends DeadlineBenchmark {
+    }
+}
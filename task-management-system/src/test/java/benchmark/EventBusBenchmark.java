@@ -0,0 +1,62 @@
+package benchmark;
+
+import event.EventBus;
+import event.Subscription;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Cost of task mutations while every change is published to the event bus and
+// read by a number of subscribers. subscriberCount 0 is the baseline without a bus.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class EventBusBenchmark {
+    @Param({"100000"})
+    public int taskCount;
+
+    @Param({"0", "1", "4"})
+    public int subscriberCount;
+
+    private Dataset data;
+    private EventBus bus;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final LongAdder handled = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = Dataset.build(taskCount, 100);
+        if (subscriberCount > 0) {
+            bus = new EventBus(data.userService, data.taskService, data.storyService);
+            for (int i = 0; i < subscriberCount; i++) {
+                subscriptions.add(bus.subscribe((event, sequence, endOfBatch) -> handled.increment()));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (bus != null) {
+            bus.close();
+        }
+    }
+
+    @Benchmark
+    public void updateStatus() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        data.taskService.getTaskById(TaskServiceBenchmark.pick(data.rootTaskIds, random))
+                .setStatus(TaskStatus.values()[random.nextInt(TaskStatus.values().length)]);
+    }
+
+    @Threads(Threads.MAX)
+    public static class Contended extends EventBusBenchmark {
+    }
+}
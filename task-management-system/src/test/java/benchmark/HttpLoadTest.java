@@ -0,0 +1,268 @@
+package benchmark;
+
+import app.TaskManagementApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives the HTTP API at a fixed request rate and reports p50, p99 and p99.9
+// latency per endpoint. Each request's latency is measured from the time it
+// was due rather than the time it was sent, so a stalled server shows up as
+// latency instead of quietly lowering the rate.
+//
+//   args: [base URL, or "local" to start the application in this JVM]
+//         [requests per second, default 2000] [seconds, default 30]
+//
+// A remote server's credentials come from LOAD_USER and LOAD_PASSWORD.
+public class HttpLoadTest {
+    private static final int USERS = 100;
+    private static final int TASKS = 2_000;
+    private static final int STORIES = 20;
+    private static final long WARM_UP_SECONDS = 10;
+    private static final String[] STATUSES = {"PENDING", "IN_PROGRESS", "IN_REVIEW", "COMPLETED", "BLOCKED"};
+
+    private static final ObjectMapper json = new ObjectMapper();
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String authorization;
+    private final List<String> userIds = new ArrayList<>();
+    private final List<String> taskIds = new ArrayList<>();
+    private final List<String> storyIds = new ArrayList<>();
+
+    private HttpLoadTest(HttpClient client, String baseUrl, String user, String password) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void main(String[] args) throws Exception {
+        // The benchmark profile passes its arguments as one string
+        String[] options = String.join(" ", args).trim().split("\\s+");
+        String target = options.length > 0 && !options[0].isEmpty() && !options[0].equals(".*") ? options[0] : "local";
+        int rate = options.length > 1 ? Integer.parseInt(options[1]) : 2000;
+        int seconds = options.length > 2 ? Integer.parseInt(options[2]) : 30;
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = target;
+        String user = System.getenv("LOAD_USER");
+        String password = System.getenv("LOAD_PASSWORD");
+        if (target.equals("local")) {
+            user = "load";
+            password = UUID.randomUUID().toString();
+            context = SpringApplication.run(TaskManagementApplication.class, "--server.port=0",
+                    "--spring.security.user.name=" + user, "--spring.security.user.password=" + password,
+                    "--task-management.data-dir=" + Files.createTempDirectory("http-load"));
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+        HttpLoadTest test = new HttpLoadTest(client, baseUrl, user, password);
+        test.seed();
+        System.out.printf("Warming up for %ds at %d requests/s%n", WARM_UP_SECONDS, rate);
+        test.run(rate, WARM_UP_SECONDS);
+        System.out.printf("Measuring for %ds at %d requests/s against %s%n", seconds, rate, baseUrl);
+        Endpoint[] endpoints = test.run(rate, seconds);
+        report(endpoints);
+
+        executor.shutdown();
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    private void seed() throws Exception {
+        for (int i = 0; i < USERS; i++) {
+            String body = "{\"name\":\"User " + i + "\",\"email\":\"load-" + UUID.randomUUID() + "@example.com\","
+                    + "\"password\":\"password\"}";
+            userIds.add(send("POST", "/api/users", body).get("id").asText());
+        }
+        for (int i = 0; i < TASKS; i++) {
+            // Every fourth task is a subtask of the one before it
+            String parent = i % 4 == 3 ? ",\"parentTaskId\":\"" + taskIds.get(i - 1) + "\"" : "";
+            taskIds.add(send("POST", "/api/tasks", taskBody("Task " + i) + ",\"userId\":\""
+                    + userIds.get(i % USERS) + "\"" + parent + "}").get("id").asText());
+        }
+        for (int i = 0; i < STORIES; i++) {
+            StringBuilder ids = new StringBuilder();
+            for (int j = 0; j < 20; j++) {
+                ids.append(j == 0 ? "" : ",").append('"').append(taskIds.get((i * 20 + j) % TASKS)).append('"');
+            }
+            storyIds.add(send("POST", "/api/stories", "{\"title\":\"Story " + i + "\",\"description\":\"Load\","
+                    + "\"taskIds\":[" + ids + "]}").get("id").asText());
+        }
+    }
+
+    private JsonNode send(String method, String path, String body) throws Exception {
+        HttpResponse<String> response = client.send(request(method, path, body), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(method + " " + path + " returned " + response.statusCode()
+                    + ": " + response.body());
+        }
+        return json.readTree(response.body());
+    }
+
+    private HttpRequest request(String method, String path, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", authorization);
+        if (body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        return builder.header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    // Unterminated, so the caller can add fields
+    private static String taskBody(String title) {
+        return "{\"title\":\"" + title + "\",\"description\":\"Load test\",\"deadline\":"
+                + (System.currentTimeMillis() + TimeUnit.DAYS.toMillis(7));
+    }
+
+    private Endpoint[] run(int rate, long seconds) {
+        Endpoint[] endpoints = {
+                new Endpoint("GET /api/tasks/{id}", 40),
+                new Endpoint("GET /api/tasks?userId=", 20),
+                new Endpoint("GET /api/tasks/{id}/summary", 10),
+                new Endpoint("GET /api/stories/{id}/progress", 10),
+                new Endpoint("PUT /api/tasks/{id}", 15),
+                new Endpoint("POST /api/tasks", 5),
+        };
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        for (long due = start; due < end; due += interval) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = pick(endpoints);
+            long scheduled = due;
+            inFlight.add(client.sendAsync(next(endpoint), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> endpoint.record(System.nanoTime() - scheduled,
+                            failure == null && response.statusCode() / 100 == 2)));
+            if (inFlight.size() >= 10_000) {
+                inFlight.removeIf(CompletableFuture::isDone);
+            }
+        }
+        for (CompletableFuture<?> future : inFlight) {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                // Already counted as an error
+            }
+        }
+        return endpoints;
+    }
+
+    private static Endpoint pick(Endpoint[] endpoints) {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        for (Endpoint endpoint : endpoints) {
+            roll -= endpoint.weight;
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints[0];
+    }
+
+    private HttpRequest next(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String taskId = taskIds.get(random.nextInt(taskIds.size()));
+        switch (endpoint.name) {
+            case "GET /api/tasks/{id}":
+                return request("GET", "/api/tasks/" + taskId, null);
+            case "GET /api/tasks?userId=":
+                return request("GET", "/api/tasks?userId=" + userIds.get(random.nextInt(userIds.size())), null);
+            case "GET /api/tasks/{id}/summary":
+                return request("GET", "/api/tasks/" + taskId + "/summary", null);
+            case "GET /api/stories/{id}/progress":
+                return request("GET", "/api/stories/" + storyIds.get(random.nextInt(storyIds.size())) + "/progress",
+                        null);
+            case "PUT /api/tasks/{id}":
+                return request("PUT", "/api/tasks/" + taskId, taskBody("Updated") + ",\"status\":\""
+                        + STATUSES[random.nextInt(STATUSES.length)] + "\"}");
+            default:
+                return request("POST", "/api/tasks", taskBody("Created") + ",\"userId\":\""
+                        + userIds.get(random.nextInt(userIds.size())) + "\"}");
+        }
+    }
+
+    private static void report(Endpoint[] endpoints) {
+        System.out.printf("%-32s %8s %7s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "p50 ms", "p99 ms",
+                "p99.9 ms", "max ms");
+        Endpoint all = new Endpoint("all", 0);
+        for (Endpoint endpoint : endpoints) {
+            endpoint.print();
+            synchronized (endpoint) {
+                for (int i = 0; i < endpoint.count; i++) {
+                    all.record(endpoint.latencies[i], true);
+                }
+                all.errors += endpoint.errors;
+            }
+        }
+        all.print();
+    }
+
+    private static class Endpoint {
+        final String name;
+        final int weight;
+        // Guarded by this
+        long[] latencies = new long[1024];
+        int count;
+        int errors;
+
+        Endpoint(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        synchronized void record(long nanos, boolean ok) {
+            if (!ok) {
+                errors++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        synchronized void print() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("%-32s %8d %7d %9.2f %9.2f %9.2f %9.2f%n", name, count, errors,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    percentile(sorted, 1.0));
+        }
+
+        static double percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(sorted.length * fraction) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
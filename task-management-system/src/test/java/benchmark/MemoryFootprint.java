@@ -0,0 +1,39 @@
+package benchmark;
+
+import model.Task;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Date;
+
+// Reports the heap cost of Task objects with JOL: the field layout of one task
+// and the retained size per task of a forest where a quarter of the tasks are
+// subtasks. Id and title strings are measured separately and subtracted, so
+// the figure is what the model itself costs on top of its data.
+public class MemoryFootprint {
+    public static void main(String[] args) {
+        int taskCount = args.length > 0 && !args[0].equals(".*") ? Integer.parseInt(args[0]) : 1_000_000;
+
+        String[] ids = new String[taskCount];
+        String[] titles = new String[taskCount];
+        Task[] tasks = new Task[taskCount];
+        String description = "Description";
+        Date deadline = new Date();
+        for (int i = 0; i < taskCount; i++) {
+            ids[i] = "task-" + i;
+            titles[i] = "Task " + i;
+            tasks[i] = new Task(ids[i], titles[i], description, deadline);
+            if (i % 4 == 3) {
+                tasks[i - 1].addSubtask(tasks[i]);
+            }
+        }
+
+        System.out.println(ClassLayout.parseClass(Task.class).toPrintable());
+        // The arrays holding the roots are not part of any task
+        long array = GraphLayout.parseInstance((Object) new Object[taskCount]).totalSize();
+        long total = GraphLayout.parseInstance((Object) tasks).totalSize() - array;
+        long strings = GraphLayout.parseInstance(ids, titles, description).totalSize() - 2 * array;
+        System.out.printf("%d tasks: %.1f bytes per task (%.1f including id and title strings)%n",
+                taskCount, (total - strings) / (double) taskCount, total / (double) taskCount);
+    }
+}
@@ -0,0 +1,116 @@
+package benchmark;
+
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+import persistence.Persistence;
+import service.StoryService;
+import service.TaskService;
+import service.UserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class PersistenceBenchmark {
+
+    // Cost of a durable createTask: append to the log, then wait for its group commit.
+    // Compare the single-threaded and Contended runs to see fsyncs amortized across writers.
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    @State(Scope.Benchmark)
+    public static class DurableWrite {
+        @Param({"true", "false"})
+        public boolean fsync;
+
+        private Path directory;
+        private TaskService taskService;
+        private Persistence persistence;
+        private final Date deadline = new Date();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("wal-bench");
+            UserService userService = new UserService();
+            taskService = new TaskService();
+            persistence = Persistence.open(directory, fsync, userService, taskService,
+                    new StoryService(taskService.getTaskRepo()));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            persistence.close();
+            deleteRecursively(directory);
+        }
+
+        @Benchmark
+        public Task createTaskDurably() {
+            Task task = taskService.createTask("Task", "Description", deadline, "user");
+            persistence.awaitDurable();
+            return task;
+        }
+    }
+
+    @Threads(Threads.MAX)
+    public static class ContendedDurableWrite extends DurableWrite {
+    }
+
+    // Startup time: recover a dataset from a snapshot, or from the log alone
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+    @State(Scope.Benchmark)
+    public static class Recovery {
+        @Param({"10000", "100000", "1000000"})
+        public int taskCount;
+
+        @Param({"true", "false"})
+        public boolean fromSnapshot;
+
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("recovery-bench");
+            UserService userService = new UserService();
+            TaskService taskService = new TaskService();
+            StoryService storyService = new StoryService(taskService.getTaskRepo());
+            try (Persistence persistence = Persistence.open(directory, false, userService, taskService, storyService)) {
+                Date deadline = new Date();
+                for (int i = 0; i < taskCount; i++) {
+                    taskService.createTask("Task " + i, "Description " + i, deadline, "user-" + (i % 1000));
+                }
+                if (fromSnapshot) {
+                    persistence.snapshot();
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(directory);
+        }
+
+        @Benchmark
+        public TaskService recover() {
+            TaskService taskService = new TaskService();
+            Persistence.open(directory, false, new UserService(), taskService,
+                    new StoryService(taskService.getTaskRepo())).close();
+            return taskService;
+        }
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package benchmark;
+
+import event.EventBus;
+import factory.IdGenerators;
+import model.Task;
+import model.TaskPriority;
+import model.TaskStatus;
+import model.User;
+import push.PushSink;
+import push.SubscriptionHub;
+import push.TaskDelta;
+import service.StoryService;
+import service.TaskService;
+import service.UserService;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Simulates many push subscribers against a steady rate of task changes.
+// Most subscribers watch a user's tasks, the rest a story or a subtree, and
+// one in a hundred is a slow client that takes 500ms per batch; those are
+// dropped on their first batch, during warm-up. Reports the deltas delivered
+// per second, the batch size and the delay from change to delivery, which
+// includes the linger.
+//
+//   args: [subscribers, default 10000] [changes per second, default 20000]
+public class PushLoadTest {
+    private static final int USERS = 1_000;
+    private static final int ROOTS = 2_000;
+    private static final int SUBTASKS_PER_ROOT = 4;
+    private static final int STORIES = 200;
+    private static final int WRITERS = 4;
+    private static final long DURATION_MILLIS = 10_000;
+    // Delivery delay histogram, one bucket per millisecond
+    private static final int MAX_DELAY_MILLIS = 10_000;
+
+    private static final AtomicLong delivered = new AtomicLong();
+    private static final AtomicLong batches = new AtomicLong();
+    private static final AtomicLongArray delays = new AtomicLongArray(MAX_DELAY_MILLIS + 1);
+
+    public static void main(String[] args) throws Exception {
+        int subscriberCount = args.length > 0 && !args[0].equals(".*") ? Integer.parseInt(args[0]) : 10_000;
+        int changesPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        UserService userService = new UserService();
+        TaskService taskService = new TaskService();
+        StoryService storyService = new StoryService(taskService.getTaskRepo());
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User(IdGenerators.nextId(), "User " + i, "user" + i + "@example.com", Dataset.PASSWORD_HASH);
+            userService.getUserRepo().save(user);
+            userIds.add(user.getId());
+        }
+        Random random = new Random(42);
+        List<Task> roots = new ArrayList<>();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < ROOTS; i++) {
+            Task root = taskService.createTask("Task " + i, "Description", new Date(),
+                    userIds.get(random.nextInt(USERS)));
+            roots.add(root);
+            tasks.add(root);
+            for (int j = 0; j < SUBTASKS_PER_ROOT; j++) {
+                tasks.add(taskService.createSubtask(root.getId(), "Subtask " + j, "Description", new Date(),
+                        userIds.get(random.nextInt(USERS))));
+            }
+        }
+        List<String> storyIds = new ArrayList<>();
+        for (int i = 0; i < STORIES; i++) {
+            List<Task> members = new ArrayList<>();
+            for (int j = 0; j < 25; j++) {
+                members.add(tasks.get(random.nextInt(tasks.size())));
+            }
+            storyIds.add(storyService.createStory("Story " + i, "Description", members).getId());
+        }
+
+        EventBus bus = new EventBus(EventBus.DEFAULT_CAPACITY, userService, taskService, storyService);
+        SubscriptionHub hub = new SubscriptionHub(bus, taskService.getTaskRepo(), storyService.getStoryRepo());
+        int slowCount = 0;
+        for (int i = 0; i < subscriberCount; i++) {
+            boolean slow = i % 100 == 99;
+            slowCount += slow ? 1 : 0;
+            PushSink sink = new RecordingSink(slow ? 500 : 0);
+            if (i % 10 < 7) {
+                hub.subscribeToUser(userIds.get(i % USERS), sink);
+            } else if (i % 10 < 9) {
+                hub.subscribeToStory(storyIds.get(i % STORIES), sink);
+            } else {
+                hub.subscribeToSubtree(roots.get(i % ROOTS).getId(), sink);
+            }
+        }
+        long warmUpEnd = System.currentTimeMillis() + 60_000;
+        while (hub.getDroppedCount() < slowCount && System.currentTimeMillis() < warmUpEnd) {
+            Thread.sleep(100);
+        }
+        Thread.sleep(500);
+        delivered.set(0);
+        batches.set(0);
+        for (int i = 0; i <= MAX_DELAY_MILLIS; i++) {
+            delays.set(i, 0);
+        }
+
+        AtomicLong changes = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + DURATION_MILLIS * 1_000_000;
+        long interval = 1_000_000_000L * WRITERS / changesPerSecond;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < WRITERS; t++) {
+            Thread writer = new Thread(() -> {
+                ThreadLocalRandom local = ThreadLocalRandom.current();
+                TaskStatus[] statuses = TaskStatus.values();
+                TaskPriority[] priorities = TaskPriority.values();
+                // Each change is due at a fixed time, so a stalled writer catches up instead of lowering the rate
+                for (long due = start; due < end; due += interval) {
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    Task task = tasks.get(local.nextInt(tasks.size()));
+                    switch (local.nextInt(3)) {
+                        case 0:
+                            task.setStatus(statuses[local.nextInt(statuses.length)]);
+                            break;
+                        case 1:
+                            task.setPriority(priorities[local.nextInt(priorities.length)]);
+                            break;
+                        default:
+                            task.setAssignedUserId(userIds.get(local.nextInt(USERS)));
+                    }
+                    changes.incrementAndGet();
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        // Let the last lingering batches go out
+        Thread.sleep(2 * SubscriptionHub.DEFAULT_LINGER_MILLIS + 500);
+
+        long deltaCount = delivered.get();
+        System.out.printf("%d subscribers, %d changes in %ds (%.0f/s)%n", subscriberCount, changes.get(),
+                DURATION_MILLIS / 1000, changes.get() * 1000.0 / DURATION_MILLIS);
+        System.out.printf("delivered %d deltas in %d batches (%.0f deltas/s, %.1f per batch)%n", deltaCount,
+                batches.get(), deltaCount * 1000.0 / DURATION_MILLIS, deltaCount / (double) Math.max(1, batches.get()));
+        System.out.printf("delay p50 %dms, p99 %dms, p99.9 %dms%n",
+                percentile(0.50), percentile(0.99), percentile(0.999));
+        System.out.printf("dropped %d of %d slow subscribers, %d remaining%n",
+                hub.getDroppedCount(), slowCount, hub.getSubscriberCount());
+        hub.close();
+        bus.close();
+    }
+
+    private static long percentile(double fraction) {
+        long total = 0;
+        for (int i = 0; i <= MAX_DELAY_MILLIS; i++) {
+            total += delays.get(i);
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i <= MAX_DELAY_MILLIS; i++) {
+            seen += delays.get(i);
+            if (seen >= rank && seen > 0) {
+                return i;
+            }
+        }
+        return MAX_DELAY_MILLIS;
+    }
+
+    private static class RecordingSink implements PushSink {
+        private final long sendMillis;
+
+        RecordingSink(long sendMillis) {
+            this.sendMillis = sendMillis;
+        }
+
+        @Override
+        public void send(List<TaskDelta> batch) throws InterruptedException {
+            long now = System.currentTimeMillis();
+            for (TaskDelta delta : batch) {
+                delays.incrementAndGet((int) Math.min(MAX_DELAY_MILLIS, now - delta.getTimestamp()));
+            }
+            delivered.addAndGet(batch.size());
+            batches.incrementAndGet();
+            if (sendMillis > 0) {
+                Thread.sleep(sendMillis);
+            }
+        }
+
+        @Override
+        public void close(String reason) {
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import search.InvertedIndex;
+import search.SearchHit;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Query latency of the inverted index over synthetic documents: a 4-word title
+// and 20-word description drawn from a Zipf-distributed 50k-word vocabulary, so
+// a few words appear in most documents and most words in very few. SampleTime
+// mode reports p50/p99 per query shape.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private static final int VOCABULARY = 50_000;
+
+    @Param({"1000000", "5000000"})
+    public int docCount;
+
+    private String[] words;
+    private InvertedIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        words = new String[VOCABULARY];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        double[] cdf = new double[VOCABULARY];
+        double sum = 0;
+        for (int i = 0; i < cdf.length; i++) {
+            sum += 1.0 / (i + 1);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < cdf.length; i++) {
+            cdf[i] /= sum;
+        }
+
+        index = new InvertedIndex();
+        for (int doc = 0; doc < docCount; doc++) {
+            index.put(SearchHit.Type.TASK, "task-" + doc, text(random, cdf, 4), text(random, cdf, 20));
+        }
+    }
+
+    private String text(Random random, double[] cdf, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble());
+            text.append(words[Math.min(rank < 0 ? -rank - 1 : rank, words.length - 1)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    @Benchmark
+    public List<SearchHit> rareWords() {
+        return index.search(words[20_000] + " " + words[3_000], false, 10);
+    }
+
+    @Benchmark
+    public List<SearchHit> midFrequencyWords() {
+        return index.search(words[200] + " " + words[500], false, 10);
+    }
+
+    @Benchmark
+    public List<SearchHit> mostCommonWord() {
+        return index.search(words[0], false, 10);
+    }
+
+    @Benchmark
+    public List<SearchHit> commonWords() {
+        return index.search(words[1] + " " + words[5], false, 10);
+    }
+
+    @Benchmark
+    public List<SearchHit> typeaheadTwoLetters() {
+        return index.search(words[1_000].substring(0, 2), true, 10);
+    }
+
+    @Benchmark
+    public List<SearchHit> typeaheadWordAndPrefix() {
+        return index.search(words[300] + " " + words[1_000].substring(0, 3), true, 10);
+    }
+
+    @Threads(Threads.MAX)
+    public static class Contended extends SearchBenchmark {
+    }
+}
@@ -0,0 +1,53 @@
+package benchmark;
+
+import model.Story;
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Compares the old story membership scan in getUserWorkloadDetails
+// (stories x storyTasks x userTasks) against the task -> story index.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StoryMembershipBenchmark {
+    @Param({"1000", "4000", "16000"})
+    public int storyCount;
+
+    private Dataset data;
+    private String userId;
+    private List<Task> userTasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // A quarter of the tasks are subtasks; the remaining root tasks form storyCount stories
+        data = Dataset.build(storyCount * Dataset.TASKS_PER_STORY * 4 / 3, 100);
+        userId = data.userIds[0];
+        userTasks = data.taskService.getTasksByUser(userId);
+    }
+
+    @Benchmark
+    public List<Story> scan() {
+        List<Story> stories = new ArrayList<>();
+        for (Story story : data.storyService.getStoryRepo().findAll()) {
+            List<String> storyTaskIds = story.getTasks();
+            boolean hasUserTasks = storyTaskIds.stream()
+                    .anyMatch(taskId -> userTasks.stream().anyMatch(task -> task.getId().equals(taskId)));
+            if (hasUserTasks) {
+                stories.add(story);
+            }
+        }
+        return stories;
+    }
+
+    @Benchmark
+    public Object index() {
+        return data.workloadService.getUserWorkloadDetails(userId).get("stories");
+    }
+}
@@ -0,0 +1,112 @@
+package benchmark;
+
+import model.TaskPriority;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+import query.TaskPage;
+import query.TaskQuery;
+import query.TaskQueryEngine;
+import query.TaskSort;
+
+import java.util.EnumSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// First pages against pages 100 deep, for a broad filter (ordered plan), a
+// bitmap filter and a per-user filter. Deep pages should cost the same.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class TaskQueryBenchmark {
+    private static final int PAGE = 50;
+    private static final int DEEP = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"100", "10000"})
+    public int userCount;
+
+    private Dataset data;
+    private TaskQueryEngine engine;
+    private String deepByDeadline;
+    private String deepByPriority;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = Dataset.build(taskCount, userCount);
+        engine = new TaskQueryEngine(data.taskService.getTaskRepo(), data.storyService.getStoryRepo());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        TaskStatus[] statuses = TaskStatus.values();
+        TaskPriority[] priorities = TaskPriority.values();
+        data.taskService.getTaskRepo().findAll().forEach(task -> {
+            task.setStatus(statuses[random.nextInt(statuses.length)]);
+            task.setPriority(priorities[random.nextInt(priorities.length)]);
+        });
+        deepByDeadline = cursorAfter(byDeadline(), DEEP);
+        deepByPriority = cursorAfter(byStatusAndPriority(), DEEP);
+    }
+
+    private String cursorAfter(TaskQuery query, int pages) {
+        for (int i = 0; i < pages && (i == 0 || query.getCursor() != null); i++) {
+            query.setCursor(engine.find(query).getNextCursor());
+        }
+        return query.getCursor();
+    }
+
+    private static TaskQuery byDeadline() {
+        TaskQuery query = new TaskQuery();
+        query.setSort(TaskSort.DEADLINE);
+        query.setLimit(PAGE);
+        return query;
+    }
+
+    private static TaskQuery byStatusAndPriority() {
+        TaskQuery query = new TaskQuery();
+        query.setStatuses(EnumSet.of(TaskStatus.BLOCKED));
+        query.setPriorities(EnumSet.of(TaskPriority.CRITICAL));
+        query.setSort(TaskSort.PRIORITY);
+        query.setLimit(PAGE);
+        return query;
+    }
+
+    @Benchmark
+    public TaskPage firstPageByDeadline() {
+        return engine.find(byDeadline());
+    }
+
+    @Benchmark
+    public TaskPage deepPageByDeadline() {
+        TaskQuery query = byDeadline();
+        query.setCursor(deepByDeadline);
+        return engine.find(query);
+    }
+
+    @Benchmark
+    public TaskPage firstPageByStatusAndPriority() {
+        return engine.find(byStatusAndPriority());
+    }
+
+    @Benchmark
+    public TaskPage deepPageByStatusAndPriority() {
+        TaskQuery query = byStatusAndPriority();
+        query.setCursor(deepByPriority);
+        return engine.find(query);
+    }
+
+    @Benchmark
+    public TaskPage pageForUser() {
+        TaskQuery query = new TaskQuery();
+        query.setAssigneeId(TaskServiceBenchmark.pick(data.userIds, ThreadLocalRandom.current()));
+        query.setStatuses(EnumSet.of(TaskStatus.PENDING, TaskStatus.IN_PROGRESS));
+        query.setLimit(PAGE);
+        return engine.find(query);
+    }
+
+    @Threads(Threads.MAX)
+    public static class Contended extends TaskQueryBenchmark {
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Dashboard-style read fan-out on a small set of hot tasks while one thread
+// keeps updating them. Readers take no lock, so their throughput should not
+// depend on the writer, and the writer should not slow down with more readers.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskReadBenchmark {
+    @Param({"16", "1024"})
+    public int hotTasks;
+
+    private Task[] tasks;
+    private final Date deadline = new Date();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tasks = new Task[hotTasks];
+        for (int i = 0; i < hotTasks; i++) {
+            tasks[i] = new Task("Task " + i, "Description", deadline);
+            for (int j = 0; j < 8; j++) {
+                tasks[i].addSubtask(new Task("Subtask " + j, "Description", deadline));
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(7)
+    public void read(Blackhole blackhole) {
+        Task task = tasks[ThreadLocalRandom.current().nextInt(tasks.length)];
+        Task.State state = task.getState();
+        blackhole.consume(state.getTitle());
+        blackhole.consume(state.getStatus());
+        blackhole.consume(state.getDeadline());
+        blackhole.consume(task.getSubtasks());
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void write() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Task task = tasks[random.nextInt(tasks.length)];
+        TaskStatus status = random.nextBoolean() ? TaskStatus.IN_PROGRESS : TaskStatus.PENDING;
+        task.update("Task " + random.nextInt(), "Description", deadline, status);
+    }
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import model.SubtreeSummary;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class TaskServiceBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"100", "10000"})
+    public int userCount;
+
+    private Dataset data;
+    private final Date deadline = new Date();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = Dataset.build(taskCount, userCount);
+    }
+
+    @Benchmark
+    public Task createTask() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return data.taskService.createTask("New task", "Description", deadline, pick(data.userIds, random));
+    }
+
+    @Benchmark
+    public Task createSubtask() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return data.taskService.createSubtask(pick(data.rootTaskIds, random), "New subtask", "Description",
+                deadline, pick(data.userIds, random));
+    }
+
+    @Benchmark
+    public void moveTask(Blackhole bh) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            data.taskService.moveTask(pick(data.subtaskIds, random), pick(data.rootTaskIds, random));
+        } catch (RuntimeException e) {
+            // Racing moves of the same subtask may be rejected; that still counts as an operation
+            bh.consume(e);
+        }
+    }
+
+    @Benchmark
+    public List<Task> getTasksByUser() {
+        return data.taskService.getTasksByUser(pick(data.userIds, ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public SubtreeSummary getSubtreeSummary() {
+        return data.taskService.getSubtreeSummary(pick(data.rootTaskIds, ThreadLocalRandom.current()));
+    }
+
+    // Every status change is passed up to the subtask's ancestors
+    @Benchmark
+    public void updateSubtaskStatus() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        data.taskService.getTaskById(pick(data.subtaskIds, random))
+                .setStatus(TaskStatus.values()[random.nextInt(TaskStatus.values().length)]);
+    }
+
+    static String pick(String[] ids, ThreadLocalRandom random) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    // Same benchmarks with one thread per core hammering the shared dataset
+    @Threads(Threads.MAX)
+    public static class Contended extends TaskServiceBenchmark {
+    }
+}
@@ -0,0 +1,35 @@
+package benchmark;
+
+import model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int userCount;
+
+    private Dataset data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = Dataset.build(0, userCount);
+    }
+
+    @Benchmark
+    public User login() {
+        String email = TaskServiceBenchmark.pick(data.userEmails, ThreadLocalRandom.current());
+        return data.userService.login(email, "password");
+    }
+
+    @Threads(Threads.MAX)
+    public static class Contended extends UserServiceBenchmark {
+    }
+}
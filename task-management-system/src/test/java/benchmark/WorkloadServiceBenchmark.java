@@ -0,0 +1,80 @@
+package benchmark;
+
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class WorkloadServiceBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"100", "10000"})
+    public int userCount;
+
+    private Dataset data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = Dataset.build(taskCount, userCount);
+    }
+
+    @Benchmark
+    public Map<TaskStatus, Integer> getUserWorkload() {
+        return data.workloadService.getUserWorkload(randomUser());
+    }
+
+    @Benchmark
+    public Map<String, Object> getDetailedWorkload() {
+        return data.workloadService.getDetailedWorkload(randomUser());
+    }
+
+    @Benchmark
+    public Map<String, Object> getUserWorkloadDetails() {
+        return data.workloadService.getUserWorkloadDetails(randomUser());
+    }
+
+    // Aggregations over every task: primitive columns vs walking Task objects
+    @Benchmark
+    public Map<TaskStatus, Integer> getStatusCounts() {
+        return data.workloadService.getStatusCounts();
+    }
+
+    @Benchmark
+    public Map<TaskStatus, Integer> getStatusCountsByScan() {
+        Map<TaskStatus, Integer> counts = new EnumMap<>(TaskStatus.class);
+        for (Task task : data.taskService.getTaskRepo().findAll()) {
+            counts.merge(task.getStatus(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public Map<String, Integer> getTaskCountsByUser() {
+        return data.workloadService.getTaskCountsByUser();
+    }
+
+    @Benchmark
+    public int getOverdueCount() {
+        return data.workloadService.getOverdueCount(new Date());
+    }
+
+    private String randomUser() {
+        return TaskServiceBenchmark.pick(data.userIds, ThreadLocalRandom.current());
+    }
+
+    @Threads(Threads.MAX)
+    public static class Contended extends WorkloadServiceBenchmark {
+    }
+}